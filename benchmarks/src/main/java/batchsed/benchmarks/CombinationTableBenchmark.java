@@ -0,0 +1,89 @@
+/* This Source Code Form is subject to the terms of the hermA Licence.
+ * If a copy of the licence was not distributed with this file, You have
+ * received this Source Code Form in a manner that does not comply with
+ * the terms of the licence.
+ */
+package batchsed.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import batchsed.CombinationTable;
+
+/**
+ * Benchmarks of {@link CombinationTable}: loading a synthetic
+ * output file (see {@link SyntheticCorpus}) and looking up
+ * and adding combinations from several threads.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class CombinationTableBenchmark {
+	
+	private static final int FILE_COUNT = 20000;
+	
+	@Param({ "100000", "1000000" })
+	public int lines;
+	
+	private Path pOutputFile;
+	private CombinationTable pTable;
+	
+	@Setup
+	public void setUp() throws IOException {
+		pOutputFile = Files.createTempFile("batchsed-benchmark", ".txt");
+		SyntheticCorpus.writeOutputFile(pOutputFile, lines, FILE_COUNT, 1L);
+		pTable = new CombinationTable();
+		pTable.load(pOutputFile);
+	}
+	
+	@TearDown
+	public void tearDown() throws IOException {
+		Files.delete(pOutputFile);
+	}
+	
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public CombinationTable load() throws IOException {
+		final CombinationTable table = new CombinationTable();
+		table.load(pOutputFile);
+		return table;
+	}
+	
+	@Benchmark
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	@Threads(4)
+	public boolean lookup() {
+		final ThreadLocalRandom random = ThreadLocalRandom.current();
+		return pTable.containsCombination(random.nextInt(FILE_COUNT), random.nextInt(FILE_COUNT));
+	}
+	
+	@Benchmark
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	@Threads(4)
+	public boolean add() {
+		final ThreadLocalRandom random = ThreadLocalRandom.current();
+		return pTable.addCombination(random.nextInt(FILE_COUNT), random.nextInt(FILE_COUNT));
+	}
+	
+}
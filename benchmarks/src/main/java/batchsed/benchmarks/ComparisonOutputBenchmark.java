@@ -0,0 +1,87 @@
+/* This Source Code Form is subject to the terms of the hermA Licence.
+ * If a copy of the licence was not distributed with this file, You have
+ * received this Source Code Form in a manner that does not comply with
+ * the terms of the licence.
+ */
+package batchsed.benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import batchsed.FullTextComparison;
+import batchsed.ToAppendableComparisonOutput;
+
+/**
+ * Benchmark of {@link ToAppendableComparisonOutput} writing
+ * to a {@link BufferedWriter} (discarding the data) from
+ * several threads at the same time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ComparisonOutputBenchmark {
+	
+	private ToAppendableComparisonOutput pOutput;
+	
+	@Setup
+	public void setUp() {
+		pOutput = new ToAppendableComparisonOutput(new BufferedWriter(new DiscardingWriter()));
+	}
+	
+	@Benchmark
+	@Threads(1)
+	public void outputSingleThread() {
+		output();
+	}
+	
+	@Benchmark
+	@Threads(8)
+	public void outputContended() {
+		output();
+	}
+	
+	private void output() {
+		final ThreadLocalRandom random = ThreadLocalRandom.current();
+		final int size1 = 1000 + random.nextInt(100000);
+		final int size2 = 1000 + random.nextInt(100000);
+		pOutput.output(Integer.toString(random.nextInt(20000)), Integer.toString(random.nextInt(20000)), new FullTextComparison(random.nextInt(size1), random.nextInt(size2), size1, size2));
+	}
+	
+	private static class DiscardingWriter extends Writer {
+		
+		@Override
+		public void write(final char[] cbuf, final int off, final int len) throws IOException {
+			// discard
+		}
+		
+		@Override
+		public void flush() throws IOException {
+			// nothing to flush
+		}
+		
+		@Override
+		public void close() throws IOException {
+			// nothing to close
+		}
+		
+	}
+	
+}
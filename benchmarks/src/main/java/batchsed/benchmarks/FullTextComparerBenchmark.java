@@ -0,0 +1,107 @@
+/* This Source Code Form is subject to the terms of the hermA Licence.
+ * If a copy of the licence was not distributed with this file, You have
+ * received this Source Code Form in a manner that does not comply with
+ * the terms of the licence.
+ */
+package batchsed.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import batchsed.FullTextComparison;
+import batchsed.MaximumDistance;
+import batchsed.SimpleFullTextComparer;
+import batchsed.TextTokenSequenceLoader;
+import batchsed.TokenDictionary;
+import batchsed.TokenSequenceCache;
+
+/**
+ * Benchmarks of {@link SimpleFullTextComparer#compare(Path, Path)}
+ * on two synthetic text files (see {@link SyntheticCorpus}),
+ * including loading the token sequences: with a new
+ * {@link TokenDictionary} for every comparison, with a shared
+ * dictionary, with a {@link TokenSequenceCache} and with a
+ * maximum distance.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class FullTextComparerBenchmark {
+	
+	@Param({ "10000", "100000" })
+	public int tokens;
+	
+	@Param({ "10000" })
+	public int vocabularySize;
+	
+	private Path pDirectory;
+	private Path pFile1;
+	private Path pFile2;
+	
+	private SimpleFullTextComparer pPerPairComparer;
+	private SimpleFullTextComparer pSharedDictionaryComparer;
+	private SimpleFullTextComparer pCachedComparer;
+	private SimpleFullTextComparer pMaxDistanceComparer;
+	
+	@Setup
+	public void setUp() throws IOException {
+		pDirectory = Files.createTempDirectory("batchsed-benchmark");
+		pFile1 = pDirectory.resolve("1.txt");
+		pFile2 = pDirectory.resolve("2.txt");
+		final int[] tokens1 = SyntheticCorpus.tokens(tokens, vocabularySize, 1L);
+		SyntheticCorpus.writeText(pFile1, tokens1);
+		SyntheticCorpus.writeText(pFile2, SyntheticCorpus.mutate(tokens1, 0.05, vocabularySize, 2L));
+		
+		pPerPairComparer = new SimpleFullTextComparer();
+		final TextTokenSequenceLoader loader = new TextTokenSequenceLoader(new TokenDictionary());
+		pSharedDictionaryComparer = new SimpleFullTextComparer(loader);
+		pCachedComparer = new SimpleFullTextComparer(new TokenSequenceCache(loader, Long.MAX_VALUE));
+		pMaxDistanceComparer = new SimpleFullTextComparer(new TokenSequenceCache(loader, Long.MAX_VALUE), new SimpleFullTextComparer.Options().maxDistance(MaximumDistance.relative(0.1)));
+	}
+	
+	@TearDown
+	public void tearDown() throws IOException {
+		Files.delete(pFile1);
+		Files.delete(pFile2);
+		Files.delete(pDirectory);
+	}
+	
+	@Benchmark
+	public FullTextComparison perPairDictionary() {
+		return pPerPairComparer.compare(pFile1, pFile2);
+	}
+	
+	@Benchmark
+	public FullTextComparison sharedDictionary() {
+		return pSharedDictionaryComparer.compare(pFile1, pFile2);
+	}
+	
+	@Benchmark
+	public FullTextComparison cached() {
+		return pCachedComparer.compare(pFile1, pFile2);
+	}
+	
+	@Benchmark
+	public FullTextComparison cachedWithMaxDistance() {
+		return pMaxDistanceComparer.compare(pFile1, pFile2);
+	}
+	
+}
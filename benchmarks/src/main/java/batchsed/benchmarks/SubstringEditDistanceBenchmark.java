@@ -0,0 +1,98 @@
+/* This Source Code Form is subject to the terms of the hermA Licence.
+ * If a copy of the licence was not distributed with this file, You have
+ * received this Source Code Form in a manner that does not comply with
+ * the terms of the licence.
+ */
+package batchsed.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import batchsed.BitParallelSubstringEditDistance;
+import batchsed.SubstringEditDistance;
+
+/**
+ * Benchmarks of the substring edit distance computations on
+ * synthetic token sequences (see {@link SyntheticCorpus}).
+ * With <i>m</i> &ge; <i>n</i> and <i>m</i> &lt; <i>n</i>,
+ * the two variants of the dynamic programming algorithm
+ * are covered. The sub-sequence is a near-duplicate of
+ * (a part of) the super-sequence with the given mutation rate;
+ * a rate of 1 makes the sequences unrelated.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class SubstringEditDistanceBenchmark {
+	
+	@Param({ "1000", "10000" })
+	public int m;
+	
+	@Param({ "1000", "10000" })
+	public int n;
+	
+	@Param({ "100", "10000" })
+	public int vocabularySize;
+	
+	@Param({ "0.05", "1" })
+	public double mutationRate;
+	
+	private int[] pSubSequence;
+	private int[] pSuperSequence;
+	private Integer[] pBoxedSubSequence;
+	private Integer[] pBoxedSuperSequence;
+	
+	@Setup
+	public void setUp() {
+		pSuperSequence = SyntheticCorpus.tokens(n, vocabularySize, 1L);
+		// m tokens of the super-sequence (repeated cyclically if m > n)
+		final int[] original = new int[m];
+		for (int i = 0; i < m; i++)
+			original[i] = pSuperSequence[i % n];
+		pSubSequence = SyntheticCorpus.mutate(original, mutationRate, vocabularySize, 2L);
+		pBoxedSubSequence = box(pSubSequence);
+		pBoxedSuperSequence = box(pSuperSequence);
+	}
+	
+	@Benchmark
+	public long genericDynamicProgramming() {
+		return SubstringEditDistance.substringEditDistance(pBoxedSubSequence, pBoxedSuperSequence, v -> 1L, u -> 1L, (u, v) -> u.equals(v) ? 0L : 1L);
+	}
+	
+	@Benchmark
+	public long dynamicProgramming() {
+		return SubstringEditDistance.dynamicProgrammingSubstringEditDistance(pSubSequence, pSuperSequence);
+	}
+	
+	@Benchmark
+	public long bitParallel() {
+		return BitParallelSubstringEditDistance.substringEditDistance(pSubSequence, pSuperSequence, null, null);
+	}
+	
+	@Benchmark
+	public long bitParallelBounded() {
+		return SubstringEditDistance.substringEditDistance(pSubSequence, pSuperSequence, pSubSequence.length / 10);
+	}
+	
+	private static Integer[] box(final int[] tokens) {
+		final Integer[] boxed = new Integer[tokens.length];
+		for (int i = 0; i < tokens.length; i++)
+			boxed[i] = Integer.valueOf(tokens[i]);
+		return boxed;
+	}
+	
+}
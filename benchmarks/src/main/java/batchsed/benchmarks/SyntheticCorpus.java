@@ -0,0 +1,200 @@
+/* This Source Code Form is subject to the terms of the hermA Licence.
+ * If a copy of the licence was not distributed with this file, You have
+ * received this Source Code Form in a manner that does not comply with
+ * the terms of the licence.
+ */
+package batchsed.benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Generates reproducible synthetic token sequences, text files,
+ * comparison plans and output files for the benchmarks, so that
+ * they can be run without a real corpus.
+ * <p>
+ * Token frequencies follow Zipf&rsquo;s law (the <i>r</i>-th
+ * most frequent token has a frequency proportional to
+ * 1/<i>r</i>), as in natural language texts. Near-duplicates
+ * are derived from a sequence by random insertions, deletions
+ * and replacements.
+ * <p>
+ * Run with the arguments <i>directory</i> <i>files</i>
+ * <i>tokens</i> <i>vocabulary size</i> <i>seed</i> to write
+ * a corpus of text files and a comparison plan for all pairs
+ * (file {@code plan.txt}) to a directory.
+ */
+public class SyntheticCorpus {
+	
+	/**
+	 * Generates a random token sequence.
+	 * 
+	 * @param length
+	 * the number of tokens
+	 * 
+	 * @param vocabularySize
+	 * the number of distinct tokens (IDs 0 to
+	 * {@code vocabularySize - 1}, 0 being the most frequent)
+	 * 
+	 * @param seed
+	 * the seed for the random numbers
+	 * 
+	 * @return
+	 * a new array with the token IDs; not {@code null}
+	 */
+	public static int[] tokens(final int length, final int vocabularySize, final long seed) {
+		final double[] cumulative = new double[vocabularySize];
+		double sum = 0.0;
+		for (int r = 0; r < vocabularySize; r++) {
+			sum += 1.0 / (r + 1);
+			cumulative[r] = sum;
+		}
+		final Random random = new Random(seed);
+		final int[] tokens = new int[length];
+		for (int i = 0; i < length; i++) {
+			final int index = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+			tokens[i] = Math.min((index < 0) ? -index - 1 : index, vocabularySize - 1);
+		}
+		return tokens;
+	}
+	
+	/**
+	 * Derives a near-duplicate from a token sequence.
+	 * 
+	 * @param tokens
+	 * the token sequence; not {@code null}
+	 * 
+	 * @param rate
+	 * the probability of an edit operation at every position
+	 * (an insertion, deletion or replacement with equal probability)
+	 * 
+	 * @param vocabularySize
+	 * the number of distinct tokens for inserted and replacing tokens
+	 * 
+	 * @param seed
+	 * the seed for the random numbers
+	 * 
+	 * @return
+	 * a new array with the token IDs of the near-duplicate;
+	 * not {@code null}
+	 */
+	public static int[] mutate(final int[] tokens, final double rate, final int vocabularySize, final long seed) {
+		final Random random = new Random(seed);
+		final int[] inserted = tokens(tokens.length, vocabularySize, seed + 1L);
+		final int[] result = new int[2 * tokens.length];
+		int length = 0;
+		for (int i = 0; i < tokens.length; i++) {
+			if (random.nextDouble() >= rate) {
+				result[length++] = tokens[i];
+				continue;
+			}
+			switch (random.nextInt(3)) {
+				case 0:
+					result[length++] = inserted[i];
+					result[length++] = tokens[i];
+					break;
+				case 1:
+					// deletion
+					break;
+				default:
+					result[length++] = inserted[i];
+			}
+		}
+		return Arrays.copyOf(result, length);
+	}
+	
+	/**
+	 * Writes a token sequence to a UTF-8 plain text file
+	 * with one token per line, every token ID <i>i</i>
+	 * written as {@code w}<i>i</i>.
+	 * 
+	 * @param file
+	 * (a {@link Path} locating) the file to write; not {@code null}
+	 * 
+	 * @param tokens
+	 * the token IDs; not {@code null}
+	 * 
+	 * @throws IOException
+	 * if an I/O error occurs
+	 */
+	public static void writeText(final Path file, final int[] tokens) throws IOException {
+		try (final BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+			for (final int token : tokens) {
+				writer.write('w');
+				writer.write(Integer.toString(token));
+				writer.write('\n');
+			}
+		}
+	}
+	
+	/**
+	 * Writes an output file (as written by
+	 * {@link batchsed.ToAppendableComparisonOutput}) with
+	 * results for random pairs of file indices.
+	 * 
+	 * @param file
+	 * (a {@link Path} locating) the file to write; not {@code null}
+	 * 
+	 * @param lines
+	 * the number of lines
+	 * 
+	 * @param fileCount
+	 * the number of files the indices refer to
+	 * 
+	 * @param seed
+	 * the seed for the random numbers
+	 * 
+	 * @throws IOException
+	 * if an I/O error occurs
+	 */
+	public static void writeOutputFile(final Path file, final int lines, final int fileCount, final long seed) throws IOException {
+		final Random random = new Random(seed);
+		try (final BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+			for (int i = 0; i < lines; i++) {
+				final int size1 = 1000 + random.nextInt(100000);
+				final int size2 = 1000 + random.nextInt(100000);
+				writer.write(random.nextInt(fileCount) + "\t" + random.nextInt(fileCount) + "\t" + size1 + "\t" + size2 + "\t" + random.nextInt(size1) + "\t" + random.nextInt(size2) + "\n");
+			}
+		}
+	}
+	
+	public static void main(final String[] args) throws IOException {
+		if (args.length != 5) {
+			System.err.println("expecting five arguments:");
+			System.err.println("output directory");
+			System.err.println("number of files");
+			System.err.println("number of tokens per file");
+			System.err.println("vocabulary size");
+			System.err.println("seed");
+			System.exit(1);
+			return;
+		}
+		final Path directory = Paths.get(args[0]);
+		final int fileCount = Integer.parseInt(args[1]);
+		final int length = Integer.parseInt(args[2]);
+		final int vocabularySize = Integer.parseInt(args[3]);
+		final long seed = Long.parseLong(args[4]);
+		
+		Files.createDirectories(directory);
+		final Random random = new Random(seed);
+		try (final BufferedWriter plan = Files.newBufferedWriter(directory.resolve("plan.txt"), StandardCharsets.UTF_8)) {
+			int[] previous = null;
+			for (int i = 0; i < fileCount; i++) {
+				// every other file is a near-duplicate of its predecessor
+				final int[] tokens = ((previous != null) && (i % 2 == 1)) ? mutate(previous, 0.05, vocabularySize, random.nextLong()) : tokens(length, vocabularySize, random.nextLong());
+				final String filename = String.format("t%05d.txt", Integer.valueOf(i));
+				writeText(directory.resolve(filename), tokens);
+				plan.write(filename + "\n");
+				previous = tokens;
+			}
+			plan.write("\n*\n");
+		}
+	}
+	
+}
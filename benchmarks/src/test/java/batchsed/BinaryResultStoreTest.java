@@ -0,0 +1,124 @@
+/* This Source Code Form is subject to the terms of the hermA Licence.
+ * If a copy of the licence was not distributed with this file, You have
+ * received this Source Code Form in a manner that does not comply with
+ * the terms of the licence.
+ */
+package batchsed;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BinaryResultStoreTest {
+	
+	private static final List<String> LINES = Arrays.asList(
+			"3\t1\t120\t80\t40\t7",
+			"2\t5\t10\t2000000000\t>9\t0",
+			"0\t4\t0\t15\t0\t>15",
+			"7\t6\t33\t44\t>12\t>3",
+			"1\t3\t80\t120\t1\t2");
+	
+	@Rule
+	public final TemporaryFolder pFolder = new TemporaryFolder();
+	
+	@Test
+	public void roundTrip() throws IOException {
+		final Path log = fromText(LINES);
+		assertTrue(BinaryResultStore.isLog(log));
+		final Path textFile = pFolder.getRoot().toPath().resolve("results.txt");
+		assertEquals(LINES.size(), BinaryResultStore.toText(log, textFile));
+		assertEquals(LINES, Files.readAllLines(textFile, StandardCharsets.UTF_8));
+	}
+	
+	@Test
+	public void findWithoutIndex() throws IOException {
+		checkFind(BinaryResultStore.open(fromText(LINES)));
+	}
+	
+	@Test
+	public void findWithIndex() throws IOException {
+		final Path log = fromText(LINES);
+		// the pair of IDs 1 and 3 is contained twice
+		assertEquals(LINES.size() - 1, BinaryResultStore.index(log));
+		checkFind(BinaryResultStore.open(log));
+	}
+	
+	@Test
+	public void findAppendedAfterIndexing() throws IOException {
+		final Path log = fromText(LINES.subList(0, 2));
+		BinaryResultStore.index(log);
+		append(log, LINES.subList(2, LINES.size()));
+		final BinaryResultStore store = BinaryResultStore.open(log);
+		assertEquals(LINES.size(), store.getRecordCount());
+		checkFind(store);
+	}
+	
+	@Test
+	public void findDuplicateAppendedAfterIndexing() throws IOException {
+		final Path log = fromText(LINES);
+		BinaryResultStore.index(log);
+		append(log, Arrays.asList("4\t0\t15\t0\t1\t1", "9\t8\t1\t1\t1\t1", "8\t9\t2\t2\t2\t2"));
+		final BinaryResultStore store = BinaryResultStore.open(log);
+		assertEquals("0\t4\t0\t15\t0\t>15", line(0, 4, store));
+		assertEquals("9\t8\t1\t1\t1\t1", line(9, 8, store));
+		assertEquals("8\t9\t1\t1\t1\t1", line(8, 9, store));
+	}
+	
+	@Test
+	public void rejectsLengthOutOfRange() throws IOException {
+		final Path log = pFolder.getRoot().toPath().resolve("results.log");
+		try (final DurableFileComparisonOutput output = BinaryResultStore.openOutput(log, 1000L, 16)) {
+			output.output("1", "2", new FullTextComparison(0L, 0L, 10L, 1L << 31));
+			fail();
+		} catch (final IllegalArgumentException e) {
+			// expected
+		}
+		assertEquals(0L, BinaryResultStore.open(log).getRecordCount());
+	}
+	
+	// checks the lookup of all pairs of LINES in both orders;
+	// of the pairs contained twice, the first record counts
+	private static void checkFind(final BinaryResultStore store) {
+		assertEquals("1\t3\t80\t120\t7\t40", line(1, 3, store));
+		assertEquals("3\t1\t120\t80\t40\t7", line(3, 1, store));
+		assertEquals("2\t5\t10\t2000000000\t>9\t0", line(2, 5, store));
+		assertEquals("5\t2\t2000000000\t10\t0\t>9", line(5, 2, store));
+		assertEquals("0\t4\t0\t15\t0\t>15", line(0, 4, store));
+		assertEquals("4\t0\t15\t0\t>15\t0", line(4, 0, store));
+		assertEquals("6\t7\t44\t33\t>3\t>12", line(6, 7, store));
+		assertEquals("7\t6\t33\t44\t>12\t>3", line(7, 6, store));
+		assertNull(store.find(1, 2));
+		assertNull(store.find(3, 3));
+		assertNull(store.find(8, 9));
+	}
+	
+	private static String line(final int id1, final int id2, final BinaryResultStore store) {
+		final String line = ToAppendableComparisonOutput.line(Integer.toString(id1), Integer.toString(id2), store.find(id1, id2));
+		return line.substring(0, line.length() - 1);
+	}
+	
+	private Path fromText(final List<String> lines) throws IOException {
+		final Path log = pFolder.getRoot().toPath().resolve("results.log");
+		append(log, lines);
+		return log;
+	}
+	
+	private void append(final Path log, final List<String> lines) throws IOException {
+		final Path textFile = pFolder.newFile().toPath();
+		Files.write(textFile, lines, StandardCharsets.UTF_8);
+		assertEquals(lines.size(), BinaryResultStore.fromText(textFile, log));
+	}
+	
+}
@@ -0,0 +1,225 @@
+/* This Source Code Form is subject to the terms of the hermA Licence.
+ * If a copy of the licence was not distributed with this file, You have
+ * received this Source Code Form in a manner that does not comply with
+ * the terms of the licence.
+ */
+package batchsed;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Checks the bit-parallel computations against
+ * {@link SubstringEditDistance#dynamicProgrammingSubstringEditDistance(int[], int[])}
+ * on random sequences, with lengths around the boundaries of the
+ * blocks of 64 rows and of the groups of blocks computed together.
+ */
+public class BitParallelSubstringEditDistanceTest {
+	
+	// sub-sequence lengths around 1, 2 and 4 blocks (a group of lanes),
+	// 5 blocks (a group and a single block) and 8 blocks (two groups)
+	private static final int[] LENGTHS = { 0, 1, 2, 63, 64, 65, 127, 128, 129, 191, 192, 193, 255, 256, 257, 319, 320, 321, 511, 512, 513 };
+	
+	@Rule
+	public final TemporaryFolder pFolder = new TemporaryFolder();
+	
+	@Test
+	public void matchesDynamicProgramming() {
+		final Random random = new Random(1L);
+		for (final int m : LENGTHS) {
+			for (int k = 0; k < 8; k++) {
+				final int[][] sequences = randomPair(random, m, random.nextInt(400));
+				assertEquals(reference(sequences[0], sequences[1]), BitParallelSubstringEditDistance.substringEditDistance(sequences[0], sequences[1]));
+				assertEquals(reference(sequences[1], sequences[0]), BitParallelSubstringEditDistance.substringEditDistance(sequences[1], sequences[0]));
+			}
+		}
+	}
+	
+	@Test
+	public void matchesDynamicProgrammingForShortSuperSequences() {
+		final Random random = new Random(2L);
+		for (final int m : LENGTHS) {
+			for (int n = 0; n < 5; n++) {
+				final int[][] sequences = randomPair(random, m, n);
+				assertEquals(reference(sequences[0], sequences[1]), BitParallelSubstringEditDistance.substringEditDistance(sequences[0], sequences[1]));
+			}
+		}
+	}
+	
+	@Test
+	public void boundedMatchesDynamicProgrammingAroundCutOff() {
+		final Random random = new Random(3L);
+		for (final int m : LENGTHS) {
+			for (int k = 0; k < 8; k++) {
+				final int[][] sequences = randomPair(random, m, random.nextInt(600));
+				final long ed = reference(sequences[0], sequences[1]);
+				final long[] maxDistances = { 0L, 1L, m / 10, ed - 2L, ed - 1L, ed, ed + 1L, m, m + 5L };
+				for (final long maxDistance : maxDistances) {
+					if (maxDistance < 0L)
+						continue;
+					final long expected = Math.min(ed, maxDistance + 1L);
+					assertEquals("m = " + m + ", max = " + maxDistance, expected, BitParallelSubstringEditDistance.boundedSubstringEditDistance(sequences[0], sequences[1], maxDistance));
+					assertEquals("m = " + m + ", max = " + maxDistance, expected, SubstringEditDistance.substringEditDistance(sequences[0], sequences[1], maxDistance));
+				}
+			}
+		}
+	}
+	
+	@Test
+	public void boundedMatchesDynamicProgrammingForSimilarSequences() {
+		// few edits, so that the cut-off leaves out most blocks
+		final Random random = new Random(4L);
+		for (final int m : LENGTHS) {
+			for (int k = 0; k < 8; k++) {
+				final int[] subSequence = randomSequence(random, m, 50);
+				final int[] superSequence = embed(random, subSequence, random.nextInt(10), 200);
+				final long ed = reference(subSequence, superSequence);
+				for (long maxDistance = Math.max(0L, ed - 3L); maxDistance <= ed + 3L; maxDistance++)
+					assertEquals(Math.min(ed, maxDistance + 1L), BitParallelSubstringEditDistance.boundedSubstringEditDistance(subSequence, superSequence, maxDistance));
+			}
+		}
+	}
+	
+	@Test
+	public void checkpointedMatchesDynamicProgramming() throws IOException {
+		final Random random = new Random(5L);
+		for (final int m : LENGTHS) {
+			final int[][] sequences = randomPair(random, m, random.nextInt(400));
+			final long ed = reference(sequences[0], sequences[1]);
+			final Path file = pFolder.getRoot().toPath().resolve("checkpoint-" + m);
+			
+			// saves after the first group of blocks only, so that
+			// the second computation resumes from there
+			final FirstSaveCheckpoint first = new FirstSaveCheckpoint(file);
+			assertEquals(ed, BitParallelSubstringEditDistance.substringEditDistance(sequences[0], sequences[1], first));
+			if (m > 4 * 64)
+				assertTrue(first.pBlocksDone < (m + 63) / 64);
+			assertEquals(ed, BitParallelSubstringEditDistance.substringEditDistance(sequences[0], sequences[1], new Checkpoint(file, 0L)));
+			// resumed from the final state
+			assertEquals(ed, BitParallelSubstringEditDistance.substringEditDistance(sequences[0], sequences[1], new Checkpoint(file, 0L)));
+			assertEquals(ed, BitParallelSubstringEditDistance.boundedSubstringEditDistance(sequences[0], sequences[1], m, new Checkpoint(file, 0L)));
+			Files.deleteIfExists(file);
+		}
+	}
+	
+	@Test
+	public void parallelMatchesDynamicProgramming() throws IOException {
+		// more than one tile (8 blocks by 4096 columns) in both dimensions
+		final Random random = new Random(6L);
+		final ForkJoinPool pool = new ForkJoinPool(3);
+		try {
+			for (final int m : new int[] { 100, 513, 1100 }) {
+				final int[][] sequences = randomPair(random, m, 9000);
+				final long ed = reference(sequences[0], sequences[1]);
+				assertEquals(ed, BitParallelSubstringEditDistance.substringEditDistance(sequences[0], sequences[1], pool));
+				final Path file = pFolder.getRoot().toPath().resolve("parallel-" + m);
+				assertEquals(ed, BitParallelSubstringEditDistance.substringEditDistance(sequences[0], sequences[1], pool, new Checkpoint(file, 0L)));
+				// the state does not depend on whether it was computed in parallel
+				assertEquals(ed, BitParallelSubstringEditDistance.substringEditDistance(sequences[0], sequences[1], new Checkpoint(file, 0L)));
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+	
+	@Test
+	public void bidirectionalMatchesDynamicProgramming() {
+		final Random random = new Random(7L);
+		for (final int m : LENGTHS) {
+			for (int k = 0; k < 4; k++) {
+				final int[][] sequences = randomPair(random, m, random.nextInt(600));
+				final long[] ed = BitParallelSubstringEditDistance.bidirectionalSubstringEditDistance(sequences[0], sequences[1]);
+				assertEquals(reference(sequences[0], sequences[1]), ed[0]);
+				assertEquals(reference(sequences[1], sequences[0]), ed[1]);
+			}
+		}
+	}
+	
+	@Test
+	public void batchMatchesDynamicProgramming() {
+		final Random random = new Random(8L);
+		for (final int m : LENGTHS) {
+			final int[] sequence = randomSequence(random, m, 1 + random.nextInt(30));
+			final int[][] others = new int[5][];
+			for (int k = 0; k < others.length; k++)
+				others[k] = randomSequence(random, random.nextInt(300), 40);
+			final long[][] ed = BitParallelSubstringEditDistance.bidirectionalSubstringEditDistances(sequence, others);
+			for (int k = 0; k < others.length; k++) {
+				assertEquals(reference(sequence, others[k]), ed[k][0]);
+				assertEquals(reference(others[k], sequence), ed[k][1]);
+			}
+		}
+	}
+	
+	private static long reference(final int[] subSequence, final int[] superSequence) {
+		return SubstringEditDistance.dynamicProgrammingSubstringEditDistance(subSequence, superSequence);
+	}
+	
+	// two random sequences over a common vocabulary of random size,
+	// sometimes with large IDs
+	private static int[][] randomPair(final Random random, final int m, final int n) {
+		final int vocabularySize = 1 + random.nextInt(40);
+		final int offset = random.nextBoolean() ? 0 : 1000000;
+		final int[] subSequence = randomSequence(random, m, vocabularySize);
+		final int[] superSequence = randomSequence(random, n, vocabularySize);
+		for (int i = 0; i < m; i++)
+			subSequence[i] += offset;
+		for (int j = 0; j < n; j++)
+			superSequence[j] += offset;
+		return new int[][] { subSequence, superSequence };
+	}
+	
+	private static int[] randomSequence(final Random random, final int length, final int vocabularySize) {
+		final int[] sequence = new int[length];
+		for (int i = 0; i < length; i++)
+			sequence[i] = random.nextInt(vocabularySize);
+		return sequence;
+	}
+	
+	// a copy of the sequence with some random edits, surrounded
+	// by random tokens
+	private static int[] embed(final Random random, final int[] sequence, final int edits, final int vocabularySize) {
+		final int[] copy = sequence.clone();
+		for (int e = 0; (e < edits) && (copy.length > 0); e++)
+			copy[random.nextInt(copy.length)] = random.nextInt(vocabularySize);
+		final int before = random.nextInt(100);
+		final int after = random.nextInt(100);
+		final int[] superSequence = randomSequence(random, before + copy.length + after, vocabularySize);
+		System.arraycopy(copy, 0, superSequence, before, copy.length);
+		return superSequence;
+	}
+	
+	// a checkpoint saving only the first state it is given
+	private static class FirstSaveCheckpoint extends Checkpoint {
+		
+		private int pBlocksDone;
+		private boolean pSaved;
+		
+		public FirstSaveCheckpoint(final Path file) {
+			super(file, 0L);
+			pBlocksDone = 0;
+			pSaved = false;
+		}
+		
+		@Override
+		public void save(final long fingerprint, final int blocksDone, final byte[] horizontal) {
+			if (pSaved)
+				return;
+			super.save(fingerprint, blocksDone, horizontal);
+			pBlocksDone = blocksDone;
+			pSaved = true;
+		}
+		
+	}
+	
+}
@@ -0,0 +1,88 @@
+/* This Source Code Form is subject to the terms of the hermA Licence.
+ * If a copy of the licence was not distributed with this file, You have
+ * received this Source Code Form in a manner that does not comply with
+ * the terms of the licence.
+ */
+package batchsed;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class FullTextComparisonOrganizerTest {
+	
+	@Test
+	public void splitsLargeGroupAmongThreads() {
+		final int threadCount = 8;
+		final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+		final Set<String> outputs = Collections.synchronizedSet(new HashSet<>());
+		final FullTextComparisonOrganizer organizer = newOrganizer(65, batchSizes, outputs);
+		for (int i = 1; i <= 64; i++)
+			organizer.schedule("0\t" + i);
+		organizer.sortSchedule(threadCount);
+		
+		int tasks = 0;
+		while (organizer.compareNext())
+			tasks++;
+		assertTrue("only " + tasks + " tasks", tasks >= threadCount);
+		assertEquals(64, outputs.size());
+		for (final int batchSize : batchSizes)
+			assertTrue(batchSize <= (64 + threadCount - 1) / threadCount);
+	}
+	
+	@Test
+	public void batchesUpToMaximumSize() {
+		final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+		final Set<String> outputs = Collections.synchronizedSet(new HashSet<>());
+		final int partners = 4 * FullTextComparisonOrganizer.MAX_BATCH_SIZE;
+		final FullTextComparisonOrganizer organizer = newOrganizer(partners + 1, batchSizes, outputs);
+		for (int i = 1; i <= partners; i++)
+			organizer.schedule("0\t" + i);
+		organizer.sortSchedule(2);
+		
+		int tasks = 0;
+		while (organizer.compareNext())
+			tasks++;
+		assertEquals(4, tasks);
+		assertEquals(partners, outputs.size());
+		for (final int batchSize : batchSizes)
+			assertEquals(FullTextComparisonOrganizer.MAX_BATCH_SIZE, batchSize);
+	}
+	
+	// an organizer for files of equal size with a comparer recording
+	// the sizes of the batches it compares
+	private static FullTextComparisonOrganizer newOrganizer(final int fileCount, final List<Integer> batchSizes, final Set<String> outputs) {
+		final ArrayList<Path> pathTable = new ArrayList<>();
+		for (int i = 0; i < fileCount; i++)
+			pathTable.add(Paths.get(i + ".txt"));
+		final BatchFullTextComparer comparer = new BatchFullTextComparer() {
+			
+			@Override
+			public FullTextComparison compare(final Path file1, final Path file2) {
+				return new FullTextComparison(0L, 0L, 1L, 1L);
+			}
+			
+			@Override
+			public FullTextComparison[] compareAll(final Path file, final Path[] otherFiles) {
+				batchSizes.add(otherFiles.length);
+				final FullTextComparison[] results = new FullTextComparison[otherFiles.length];
+				for (int k = 0; k < otherFiles.length; k++)
+					results[k] = compare(file, otherFiles[k]);
+				return results;
+			}
+			
+		};
+		final ComparisonOutput output = (id1, id2, comparisonResult) -> outputs.add(id1 + "\t" + id2);
+		return new FullTextComparisonOrganizer(new CombinationTable(), pathTable, comparer, output, new FullTextComparisonOrganizer.Options().sizeEstimator(path -> 100L));
+	}
+	
+}
@@ -0,0 +1,81 @@
+/* This Source Code Form is subject to the terms of the hermA Licence.
+ * If a copy of the licence was not distributed with this file, You have
+ * received this Source Code Form in a manner that does not comply with
+ * the terms of the licence.
+ */
+package batchsed;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+public class MemoryBudgetTest {
+	
+	@Test(timeout = 10000L)
+	public void waitingLargeAcquireIsNotOvertaken() throws InterruptedException {
+		// the footprint of a file is the number in its name
+		final MemoryBudget budget = new MemoryBudget(100L, path -> Long.parseLong(path.toString()));
+		final List<String> admitted = Collections.synchronizedList(new ArrayList<>());
+		
+		final long inProgress = budget.acquire(Paths.get("60"));
+		final Thread large = acquire(budget, "large", Paths.get("80"), admitted);
+		awaitWaiting(large);
+		final List<Thread> small = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			final Thread thread = acquire(budget, "small", Paths.get("5"), admitted);
+			awaitWaiting(thread);
+			small.add(thread);
+		}
+		// the small comparisons would fit besides the one in progress
+		assertEquals(60L, budget.getUsed());
+		assertEquals(Collections.emptyList(), admitted);
+		
+		budget.release(inProgress);
+		large.join();
+		for (final Thread thread : small)
+			thread.join();
+		assertEquals(Arrays.asList("large", "small", "small", "small"), admitted);
+		assertEquals(95L, budget.getUsed());
+	}
+	
+	@Test(timeout = 10000L)
+	public void oversizedAcquireIsAdmittedAlone() throws InterruptedException {
+		final MemoryBudget budget = new MemoryBudget(100L, path -> Long.parseLong(path.toString()));
+		final List<String> admitted = Collections.synchronizedList(new ArrayList<>());
+		
+		final long inProgress = budget.acquire(Paths.get("10"));
+		final Thread oversized = acquire(budget, "oversized", Paths.get("150"), admitted);
+		awaitWaiting(oversized);
+		assertEquals(Collections.emptyList(), admitted);
+		
+		budget.release(inProgress);
+		oversized.join();
+		assertEquals(Collections.singletonList("oversized"), admitted);
+		assertEquals(150L, budget.getUsed());
+	}
+	
+	// starts a thread acquiring the footprint of a file
+	// and recording its name when admitted
+	private static Thread acquire(final MemoryBudget budget, final String name, final Path file, final List<String> admitted) {
+		final Thread thread = new Thread(() -> {
+			budget.acquire(file);
+			admitted.add(name);
+		});
+		thread.start();
+		return thread;
+	}
+	
+	// returns when the thread waits (or has been admitted and finished)
+	private static void awaitWaiting(final Thread thread) throws InterruptedException {
+		while (thread.isAlive() && (thread.getState() != Thread.State.WAITING))
+			Thread.sleep(1L);
+	}
+	
+}
@@ -0,0 +1,87 @@
+/* This Source Code Form is subject to the terms of the hermA Licence.
+ * If a copy of the licence was not distributed with this file, You have
+ * received this Source Code Form in a manner that does not comply with
+ * the terms of the licence.
+ */
+package batchsed;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+/**
+ * {@link ComparisonOutput} implementation that appends the
+ * {@link SubstringAlignment}s of {@link FullTextComparison} objects
+ * (where computed) to a UTF-8 plain text file, durably as described
+ * for {@link DurableFileComparisonOutput}. Every alignment is output
+ * as one line (terminated by {@code "\n"}) with the following fields
+ * (separated by {@code "\t"}):
+ * <ol>
+ * <li>ID of the full text turned into a sub-sequence</li>
+ * <li>ID of the other full text</li>
+ * <li>offset of the first token of the matching part
+ *     of the other full text (counting from 0)</li>
+ * <li>offset after the last token of the matching part
+ *     of the other full text</li>
+ * <li>edit script (see {@link SubstringAlignment});
+ *     empty if not computed</li>
+ * </ol>
+ * Comparisons without alignments are not output at all.
+ */
+public class AlignmentFileOutput extends DurableFileComparisonOutput {
+	
+	private static final byte[] NOTHING = new byte[0];
+	
+	/**
+	 * Initializes a new instance of this class, opening a file
+	 * for appending (creating it if it does not yet exist)
+	 * and starting the writer thread.
+	 * 
+	 * @param file
+	 * (a {@link Path} locating) the output file; not {@code null}
+	 * 
+	 * @param syncInterval
+	 * the maximum time (in milliseconds) between outputting a result
+	 * and forcing it to the storage device
+	 * 
+	 * @param syncCount
+	 * the number of queued results at which they are written
+	 * and forced to the storage device before the time
+	 * interval has passed
+	 * 
+	 * @throws IOException
+	 * if an I/O error occurs
+	 */
+	public AlignmentFileOutput(final Path file, final long syncInterval, final int syncCount) throws IOException {
+		super(file, syncInterval, syncCount);
+	}
+	
+	@Override
+	protected byte[] encode(final String id1, final String id2, final FullTextComparison comparisonResult) {
+		final SubstringAlignment alignment1in2 = comparisonResult.getAlignment1in2();
+		final SubstringAlignment alignment2in1 = comparisonResult.getAlignment2in1();
+		if ((alignment1in2 == null) && (alignment2in1 == null))
+			return NOTHING;
+		final StringBuilder sb = new StringBuilder();
+		if (alignment1in2 != null)
+			appendLine(sb, id1, id2, alignment1in2);
+		if (alignment2in1 != null)
+			appendLine(sb, id2, id1, alignment2in1);
+		return sb.toString().getBytes(StandardCharsets.UTF_8);
+	}
+	
+	private static void appendLine(final StringBuilder sb, final String subSequenceId, final String superSequenceId, final SubstringAlignment alignment) {
+		sb.append(subSequenceId);
+		sb.append('\t');
+		sb.append(superSequenceId);
+		sb.append('\t');
+		sb.append(alignment.getStart());
+		sb.append('\t');
+		sb.append(alignment.getEnd());
+		sb.append('\t');
+		if (alignment.getEditScript() != null)
+			sb.append(alignment.getEditScript());
+		sb.append('\n');
+	}
+	
+}
@@ -0,0 +1,464 @@
+/* This Source Code Form is subject to the terms of the hermA Licence.
+ * If a copy of the licence was not distributed with this file, You have
+ * received this Source Code Form in a manner that does not comply with
+ * the terms of the licence.
+ */
+package batchsed;
+
+import java.util.Arrays;
+
+/**
+ * Contains code for computing substring edit distances with unit costs
+ * between near-duplicates (such as reprints or different OCR results
+ * of the same text) in time roughly linear in the lengths of the
+ * sequences, falling back to {@link BitParallelSubstringEditDistance}
+ * for other sequences.
+ * <p>
+ * The computation has two phases:
+ * <ol>
+ * <li>The <i>anchors</i> are the <i>k</i>-grams (sequences of
+ *     {@link #ANCHOR_LENGTH} consecutive tokens) that occur exactly
+ *     once in each sequence. The longest chain of anchors in the same
+ *     order in both sequences is a rough path through the dynamic
+ *     programming table. Computing the table only in a narrow band
+ *     around this path yields the cost <i>U</i> of an actual
+ *     alignment, an upper bound of the substring edit distance.</li>
+ * <li>If the sub-sequence is divided into <i>U</i> + 1 pieces, each
+ *     alignment with at most <i>U</i> operations leaves one of the
+ *     pieces unchanged, which therefore occurs in the super-sequence,
+ *     and between any two cells of the alignment path the diagonal
+ *     changes by at most <i>U</i>. So the optimal path lies within
+ *     <i>U</i> diagonals of an occurrence of one of the pieces, and
+ *     computing the table in bands of that width around all occurrences
+ *     yields the exact substring edit distance.</li>
+ * </ol>
+ * For near-duplicates, <i>U</i> is small and the pieces are long and
+ * occur only once, so that both phases compute only a small part of
+ * the table. If a band would be too large (no anchors, many occurrences
+ * or a large <i>U</i>), the whole computation is done by
+ * {@link BitParallelSubstringEditDistance} instead.
+ */
+public class AnchoredSubstringEditDistance {
+	
+	/**
+	 * The length of the <i>k</i>-grams used as anchors.
+	 */
+	public static final int ANCHOR_LENGTH = 6;
+	
+	/**
+	 * The number of diagonals on either side of the anchor path
+	 * in which the upper bound is computed.
+	 */
+	public static final int ANCHOR_BAND_WIDTH = 16;
+	
+	// the number of table cells from which on anchors are looked for;
+	// below, the bit-parallel computation is fast enough
+	private static final long ANCHOR_THRESHOLD = 1L << 22;
+	
+	// the bands are computed one cell at a time, the bit-parallel
+	// computation 64 cells at a time (in a few word operations), so
+	// the bands must cover only a small part of the table to be faster
+	private static final int BAND_FRACTION_BITS = 6;
+	
+	private static final int INFINITY = Integer.MAX_VALUE / 2;
+	
+	private static final long HASH_BASE = 0x9E3779B97F4A7C15L;
+	
+	/**
+	 * Computes the substring edit distance between two sequences
+	 * of token IDs with unit costs. The result is the same as the
+	 * result of {@link SubstringEditDistance#substringEditDistance(int[], int[])}.
+	 * If the computation falls back to
+	 * {@link BitParallelSubstringEditDistance}, its intermediate state
+	 * is saved to a {@link Checkpoint} periodically as with
+	 * {@link BitParallelSubstringEditDistance#substringEditDistance(int[], int[], Checkpoint)}.
+	 * 
+	 * @param subSequence
+	 * the sequence to become a sub-sequence of the other;
+	 * not {@code null}, no negative IDs
+	 * 
+	 * @param superSequence
+	 * the other sequence; not {@code null}, no negative IDs
+	 * 
+	 * @param checkpoint
+	 * the checkpoint; {@code null} for no checkpoint
+	 * 
+	 * @return
+	 * the smallest number of insertions into the second sequence,
+	 * deletions from the first sequence and replacements of items
+	 * between the sequences to make the first sequence
+	 * a sub-sequence of the second sequence
+	 */
+	public static long substringEditDistance(final int[] subSequence, final int[] superSequence, final Checkpoint checkpoint) {
+		final long distance = anchoredSubstringEditDistance(subSequence, superSequence, Long.MAX_VALUE);
+		if (distance >= 0L)
+			return distance;
+		return BitParallelSubstringEditDistance.substringEditDistance(subSequence, superSequence, checkpoint);
+	}
+	
+	/**
+	 * Computes the substring edit distance between two sequences
+	 * of token IDs with unit costs if it does not exceed a given
+	 * maximum distance. The result is the same as the result of
+	 * {@link BitParallelSubstringEditDistance#boundedSubstringEditDistance(int[], int[], long, Checkpoint)},
+	 * to which the computation falls back.
+	 * 
+	 * @param subSequence
+	 * the sequence to become a sub-sequence of the other;
+	 * not {@code null}, no negative IDs
+	 * 
+	 * @param superSequence
+	 * the other sequence; not {@code null}, no negative IDs
+	 * 
+	 * @param maxDistance
+	 * the maximum distance; not negative
+	 * 
+	 * @param checkpoint
+	 * the checkpoint; {@code null} for no checkpoint
+	 * 
+	 * @return
+	 * the substring edit distance if it does not exceed
+	 * {@code maxDistance}; {@code maxDistance + 1} otherwise
+	 */
+	public static long boundedSubstringEditDistance(final int[] subSequence, final int[] superSequence, final long maxDistance, final Checkpoint checkpoint) {
+		final long distance = anchoredSubstringEditDistance(subSequence, superSequence, maxDistance);
+		if (distance >= 0L)
+			return (distance <= maxDistance) ? distance : maxDistance + 1L;
+		return BitParallelSubstringEditDistance.boundedSubstringEditDistance(subSequence, superSequence, maxDistance, checkpoint);
+	}
+	
+	// returns the substring edit distance if it does not exceed
+	// maxDistance, a greater value if it does and -1 if the bands
+	// would be too large
+	private static long anchoredSubstringEditDistance(final int[] subSequence, final int[] superSequence, final long maxDistance) {
+		final int m = subSequence.length;
+		final int n = superSequence.length;
+		if (m == 0)
+			return 0L;
+		if (((long) m * n < ANCHOR_THRESHOLD) || ((long) m + n >= INFINITY))
+			return -1L;
+		final long maxCells = ((long) m * n) >>> BAND_FRACTION_BITS;
+		
+		// phase 1: upper bound from the band around the anchor path
+		final int[] anchors = anchorChain(subSequence, superSequence);
+		if (anchors.length == 0)
+			return -1L;
+		final int[] centres = centres(anchors, m, n);
+		final int[] lo = new int[m + 1];
+		final int[] hi = new int[m + 1];
+		long cells = 0L;
+		for (int i = 0; i <= m; i++) {
+			lo[i] = Math.max(0, centres[i] - ANCHOR_BAND_WIDTH);
+			hi[i] = Math.min(n, centres[Math.min(i + 1, m)] + ANCHOR_BAND_WIDTH);
+			cells += hi[i] - lo[i] + 1;
+		}
+		if (cells > maxCells)
+			return -1L;
+		final int upperBound = band(subSequence, superSequence, lo, hi);
+		if (upperBound == 0)
+			return 0L;
+		
+		// phase 2: exact distance (up to maxDistance) from the bands
+		// around the occurrences of the pieces
+		final int k = (int) Math.min(upperBound, maxDistance);
+		if (k >= m)
+			return -1L;
+		final int[] diagonals = pieceDiagonals(subSequence, superSequence, k, (int) Math.min(maxCells / (m + 1), Integer.MAX_VALUE));
+		if (diagonals == null)
+			return -1L;
+		// merged ranges of diagonals, as pairs of first and last diagonal
+		final int[] ranges = new int[2 * diagonals.length];
+		int rangeCount = 0;
+		cells = 0L;
+		for (final int d : diagonals) {
+			if ((rangeCount > 0) && (d - k <= ranges[2 * rangeCount - 1] + 1)) {
+				cells += d + k - ranges[2 * rangeCount - 1];
+				ranges[2 * rangeCount - 1] = d + k;
+			} else {
+				ranges[2 * rangeCount] = d - k;
+				ranges[2 * rangeCount + 1] = d + k;
+				rangeCount++;
+				cells += 2 * k + 1;
+			}
+		}
+		if (cells * (m + 1) > maxCells)
+			return -1L;
+		int distance = (k == upperBound) ? upperBound : k + 1;
+		for (int r = 0; r < rangeCount; r++) {
+			final int first = ranges[2 * r];
+			final int last = ranges[2 * r + 1];
+			// the range may lie completely outside the table
+			if ((last < -m) || (first > n))
+				continue;
+			for (int i = 0; i <= m; i++) {
+				lo[i] = Math.max(0, Math.min(n, i + first));
+				hi[i] = Math.max(0, Math.min(n, i + last));
+			}
+			distance = Math.min(distance, band(subSequence, superSequence, lo, hi));
+		}
+		return distance;
+	}
+	
+	// finds the anchors and returns the longest chain of anchors in the
+	// same order in both sequences, as pairs of start offsets in the
+	// sub-sequence and in the super-sequence
+	private static int[] anchorChain(final int[] subSequence, final int[] superSequence) {
+		final int grams = subSequence.length - ANCHOR_LENGTH + 1;
+		if ((grams <= 0) || (superSequence.length < ANCHOR_LENGTH))
+			return new int[0];
+		final GramTable table = new GramTable(grams);
+		long power = 1L;
+		for (int t = 1; t < ANCHOR_LENGTH; t++)
+			power *= HASH_BASE;
+		
+		long hash = 0L;
+		for (int i = 0; i < subSequence.length; i++) {
+			if (i >= ANCHOR_LENGTH)
+				hash -= subSequence[i - ANCHOR_LENGTH] * power;
+			hash = hash * HASH_BASE + subSequence[i];
+			if (i >= ANCHOR_LENGTH - 1)
+				table.addFirst(hash, i - ANCHOR_LENGTH + 1);
+		}
+		hash = 0L;
+		for (int j = 0; j < superSequence.length; j++) {
+			if (j >= ANCHOR_LENGTH)
+				hash -= superSequence[j - ANCHOR_LENGTH] * power;
+			hash = hash * HASH_BASE + superSequence[j];
+			if (j >= ANCHOR_LENGTH - 1)
+				table.addSecond(hash, j - ANCHOR_LENGTH + 1);
+		}
+		
+		// anchors in the order of the sub-sequence
+		final int[] positions = new int[grams];
+		Arrays.fill(positions, -1);
+		int anchorCount = 0;
+		for (int slot = table.getSlotCount() - 1; slot >= 0; slot--) {
+			final int i = table.getFirst(slot);
+			final int j = table.getSecond(slot);
+			if ((j >= 0) && equal(subSequence, i, superSequence, j, ANCHOR_LENGTH)) {
+				positions[i] = j;
+				anchorCount++;
+			}
+		}
+		if (anchorCount == 0)
+			return new int[0];
+		
+		// longest increasing sub-sequence of the positions in the
+		// super-sequence (patience sorting): tails[l] is the anchor
+		// ending the best known chain of length l + 1
+		final int[] tails = new int[anchorCount];
+		final int[] predecessors = new int[grams];
+		int length = 0;
+		for (int i = 0; i < grams; i++) {
+			final int j = positions[i];
+			if (j < 0)
+				continue;
+			int low = 0;
+			int high = length;
+			while (low < high) {
+				final int middle = (low + high) >>> 1;
+				if (positions[tails[middle]] < j)
+					low = middle + 1;
+				else
+					high = middle;
+			}
+			predecessors[i] = (low > 0) ? tails[low - 1] : -1;
+			tails[low] = i;
+			if (low == length)
+				length++;
+		}
+		final int[] chain = new int[2 * length];
+		int i = tails[length - 1];
+		for (int l = length - 1; l >= 0; l--) {
+			chain[2 * l] = i;
+			chain[2 * l + 1] = positions[i];
+			i = predecessors[i];
+		}
+		return chain;
+	}
+	
+	// determines the column of the anchor path in every row of the
+	// table (non-decreasing, from 0 to n): along the diagonals through
+	// the anchors, interpolated between the anchors
+	private static int[] centres(final int[] anchors, final int m, final int n) {
+		final int[] centres = new int[m + 1];
+		final int last = anchors.length - 2;
+		for (int i = 0; i <= anchors[0]; i++)
+			centres[i] = Math.max(0, anchors[1] - (anchors[0] - i));
+		for (int a = 0; a < last; a += 2) {
+			final int i1 = anchors[a];
+			final int j1 = anchors[a + 1];
+			final int i2 = anchors[a + 2];
+			final int j2 = anchors[a + 3];
+			for (int i = i1 + 1; i <= i2; i++)
+				centres[i] = j1 + (int) ((long) (i - i1) * (j2 - j1) / (i2 - i1));
+		}
+		for (int i = anchors[last] + 1; i <= m; i++)
+			centres[i] = (int) Math.min(n, (long) anchors[last + 1] + (i - anchors[last]));
+		return centres;
+	}
+	
+	// divides the sub-sequence into k + 1 pieces and returns the sorted
+	// diagonals (column minus row) of the occurrences of the pieces
+	// in the super-sequence, or null if there are more than maxCount
+	private static int[] pieceDiagonals(final int[] subSequence, final int[] superSequence, final int k, final int maxCount) {
+		final int pieces = k + 1;
+		final int length = subSequence.length / pieces;
+		final GramTable table = new GramTable(pieces);
+		// pieces with the same hash value, linked
+		final int[] next = new int[pieces];
+		for (int p = 0; p < pieces; p++) {
+			final int slot = table.find(gramHash(subSequence, p * length, length));
+			next[p] = table.getFirst(slot);
+			table.setFirst(slot, p);
+		}
+		long power = 1L;
+		for (int t = 1; t < length; t++)
+			power *= HASH_BASE;
+		
+		int[] diagonals = new int[Math.min(maxCount, 2 * pieces)];
+		int count = 0;
+		long hash = 0L;
+		for (int j = 0; j < superSequence.length; j++) {
+			if (j >= length)
+				hash -= superSequence[j - length] * power;
+			hash = hash * HASH_BASE + superSequence[j];
+			if (j < length - 1)
+				continue;
+			final int start = j - length + 1;
+			for (int p = table.getFirst(table.find(hash)); p >= 0; p = next[p]) {
+				if (!equal(subSequence, p * length, superSequence, start, length))
+					continue;
+				if (count == maxCount)
+					return null;
+				if (count == diagonals.length)
+					diagonals = Arrays.copyOf(diagonals, Math.min(maxCount, 2 * count));
+				diagonals[count++] = start - p * length;
+			}
+		}
+		diagonals = Arrays.copyOf(diagonals, count);
+		Arrays.sort(diagonals);
+		return diagonals;
+	}
+	
+	// computes the table in the columns lo[i] to hi[i] (inclusive) of
+	// every row i (both non-decreasing, lo[i] <= hi[i], overlapping
+	// or adjacent in consecutive rows), taking the cells outside as
+	// infinite, and returns the minimum in the last row: the cost
+	// of the best alignment whose path lies in the band
+	private static int band(final int[] subSequence, final int[] superSequence, final int[] lo, final int[] hi) {
+		final int m = subSequence.length;
+		int width = hi[0] - lo[0] + 1;
+		for (int i = 1; i <= m; i++)
+			width = Math.max(width, hi[i] - lo[i - 1] + 1);
+		int[] previous = new int[width + 1];
+		int[] current = new int[width + 1];
+		// row 0: the alignment can start anywhere
+		Arrays.fill(previous, 0, hi[0] - lo[0] + 1, 0);
+		
+		for (int i = 1; i <= m; i++) {
+			final int u = subSequence[i - 1];
+			final int shift = lo[i] - lo[i - 1];
+			final int cells = hi[i] - lo[i] + 1;
+			// cells of the previous row right of the band
+			Arrays.fill(previous, hi[i - 1] - lo[i - 1] + 1, shift + cells, INFINITY);
+			
+			// first cell: no left neighbour, diagonal neighbour
+			// only if in the band of the previous row
+			int left = previous[shift] + 1;
+			if (shift > 0)
+				left = Math.min(left, previous[shift - 1] + ((superSequence[lo[i] - 1] == u) ? 0 : 1));
+			current[0] = left;
+			final int columnOffset = lo[i] - 1;
+			for (int t = 1; t < cells; t++) {
+				final int diagonal = previous[shift + t - 1] + ((superSequence[columnOffset + t] == u) ? 0 : 1);
+				left = Math.min(Math.min(previous[shift + t], left) + 1, diagonal);
+				current[t] = left;
+			}
+			
+			final int[] swap = previous;
+			previous = current;
+			current = swap;
+		}
+		
+		int min = INFINITY;
+		for (int t = hi[m] - lo[m]; t >= 0; t--)
+			min = Math.min(min, previous[t]);
+		return min;
+	}
+	
+	private static long gramHash(final int[] sequence, final int from, final int length) {
+		long hash = 0L;
+		for (int i = from; i < from + length; i++)
+			hash = hash * HASH_BASE + sequence[i];
+		return hash;
+	}
+	
+	private static boolean equal(final int[] sequence1, final int from1, final int[] sequence2, final int from2, final int length) {
+		for (int t = 0; t < length; t++)
+			if (sequence1[from1 + t] != sequence2[from2 + t])
+				return false;
+		return true;
+	}
+	
+	// open addressing hash table from hash values of k-grams to
+	// offsets in the first and in the second sequence (-1: none,
+	// -2: several); only hash values added with addFirst are kept
+	private static class GramTable {
+		
+		private final long[] pKeys;
+		private final int[] pFirst;
+		private final int[] pSecond;
+		private final int pMask;
+		
+		public GramTable(final int capacity) {
+			final int slots = Integer.highestOneBit(Math.max(2 * capacity - 1, 1)) << 1;
+			pKeys = new long[slots];
+			pFirst = new int[slots];
+			pSecond = new int[slots];
+			Arrays.fill(pFirst, -1);
+			Arrays.fill(pSecond, -1);
+			pMask = slots - 1;
+		}
+		
+		public void addFirst(final long hash, final int offset) {
+			final int slot = find(hash);
+			pFirst[slot] = (pFirst[slot] == -1) ? offset : -2;
+		}
+		
+		public void addSecond(final long hash, final int offset) {
+			final int slot = find(hash);
+			if (pFirst[slot] != -1)
+				pSecond[slot] = (pSecond[slot] == -1) ? offset : -2;
+		}
+		
+		public int getSlotCount() {
+			return pKeys.length;
+		}
+		
+		public int getFirst(final int slot) {
+			return pFirst[slot];
+		}
+		
+		public void setFirst(final int slot, final int offset) {
+			pFirst[slot] = offset;
+		}
+		
+		// the offset in the second sequence if the k-gram occurs exactly
+		// once in each sequence; -1 otherwise
+		public int getSecond(final int slot) {
+			return (pFirst[slot] >= 0) ? pSecond[slot] : -1;
+		}
+		
+		// finds the slot of the hash value or the empty slot for it
+		public int find(final long hash) {
+			int slot = (int) ((hash ^ (hash >>> 29)) * HASH_BASE >>> 32) & pMask;
+			while ((pFirst[slot] != -1) && (pKeys[slot] != hash))
+				slot = (slot + 1) & pMask;
+			pKeys[slot] = hash;
+			return slot;
+		}
+		
+	}
+	
+}
@@ -0,0 +1,37 @@
+/* This Source Code Form is subject to the terms of the hermA Licence.
+ * If a copy of the licence was not distributed with this file, You have
+ * received this Source Code Form in a manner that does not comply with
+ * the terms of the licence.
+ */
+package batchsed;
+
+import java.nio.file.Path;
+
+/**
+ * A {@link FullTextComparer} that can also compare one full text
+ * with many other full texts at once, preparing the one full text
+ * only once for all comparisons.
+ */
+public interface BatchFullTextComparer extends FullTextComparer {
+	
+	/**
+	 * Compares a full text file with several other full text files,
+	 * with the same results as {@link #compare(Path, Path)} for
+	 * the file and every other file.
+	 * 
+	 * @param file
+	 * (a {@link Path} locating) the file compared with all
+	 * other files; not {@code null}
+	 * 
+	 * @param otherFiles
+	 * (the {@link Path}s locating) the other files;
+	 * not {@code null}, no {@code null} elements
+	 * 
+	 * @return
+	 * for every other file (at the same index), a
+	 * {@link FullTextComparison} with the comparison result,
+	 * with {@code file} as the first file; not {@code null}
+	 */
+	FullTextComparison[] compareAll(Path file, Path[] otherFiles);
+	
+}
@@ -0,0 +1,240 @@
+/* This Source Code Form is subject to the terms of the hermA Licence.
+ * If a copy of the licence was not distributed with this file, You have
+ * received this Source Code Form in a manner that does not comply with
+ * the terms of the licence.
+ */
+package batchsed;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * {@link TokenSequenceLoader} implementation that reads
+ * pre-tokenized full texts from a single binary corpus file,
+ * which is mapped into memory.
+ * <p>
+ * A corpus file is created with {@link #create(List, Path, Path)}
+ * from UTF-8 plain text files with one token per line
+ * (ignoring empty lines); all tokens of all files are mapped
+ * to IDs with one {@link TokenDictionary}.
+ * The file consists of (all numbers in little-endian byte order):
+ * <ol>
+ * <li>a header: the ASCII characters {@code BatchSED},
+ *     the format version (4 bytes), the number of texts (4 bytes),
+ *     the number of distinct tokens (4 bytes), 4 unused bytes and
+ *     the offset of the vocabulary in the file (8 bytes)</li>
+ * <li>an index with an entry for every text: the offset of the
+ *     token IDs in the file (8 bytes), the number of tokens
+ *     (4 bytes), the number of bytes of the text&rsquo;s filename
+ *     (4 bytes) and the UTF-8 encoded filename as given
+ *     when creating the corpus</li>
+ * <li>the token IDs of every text (4 bytes each)</li>
+ * <li>the vocabulary: every token, ordered by ID, as the
+ *     number of bytes (4 bytes) and the UTF-8 encoded token</li>
+ * </ol>
+ * This class is thread safe.
+ */
+public class BinaryCorpus implements TokenSequenceLoader {
+	
+	private static final byte[] MAGIC = "BatchSED".getBytes(StandardCharsets.US_ASCII);
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 32;
+	
+	private final HashMap<Path, IntBuffer> pTexts;
+	private final int pVocabularySize;
+	
+	private BinaryCorpus(final HashMap<Path, IntBuffer> texts, final int vocabularySize) {
+		pTexts = texts;
+		pVocabularySize = vocabularySize;
+	}
+	
+	/**
+	 * Opens a corpus file, mapping the token IDs
+	 * of all texts into memory.
+	 * 
+	 * @param corpusFile
+	 * (a {@link Path} locating) the corpus file; not {@code null}
+	 * 
+	 * @param baseDir
+	 * the directory to resolve the filenames in the corpus
+	 * against; not {@code null}
+	 * 
+	 * @return
+	 * the corpus; not {@code null}
+	 * 
+	 * @throws IOException
+	 * if an I/O error occurs or the file is not a corpus file
+	 */
+	public static BinaryCorpus open(final Path corpusFile, final Path baseDir) throws IOException {
+		try (final FileChannel channel = FileChannel.open(corpusFile, StandardOpenOption.READ)) {
+			final ByteBuffer header = readFully(channel, 0L, HEADER_SIZE);
+			final byte[] magic = new byte[MAGIC.length];
+			header.get(magic);
+			if (!Arrays.equals(magic, MAGIC) || (header.getInt() != VERSION))
+				throw new IOException("not a corpus file: " + corpusFile);
+			final int textCount = header.getInt();
+			final int vocabularySize = header.getInt();
+			
+			final HashMap<Path, IntBuffer> texts = new HashMap<>();
+			long position = HEADER_SIZE;
+			for (int i = 0; i < textCount; i++) {
+				final ByteBuffer entry = readFully(channel, position, 16);
+				final long dataOffset = entry.getLong();
+				final int tokenCount = entry.getInt();
+				final int nameLength = entry.getInt();
+				final ByteBuffer name = readFully(channel, position + 16, nameLength);
+				position += 16 + nameLength;
+				final Path path = baseDir.resolve(baseDir.getFileSystem().getPath(new String(name.array(), StandardCharsets.UTF_8))).normalize();
+				texts.put(path, channel.map(FileChannel.MapMode.READ_ONLY, dataOffset, 4L * tokenCount).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer());
+			}
+			return new BinaryCorpus(texts, vocabularySize);
+		}
+	}
+	
+	/**
+	 * Creates a corpus file from UTF-8 plain text files
+	 * with one token per line (ignoring empty lines).
+	 * 
+	 * @param filenames
+	 * the filenames of the text files, as stored in the corpus;
+	 * not {@code null}
+	 * 
+	 * @param baseDir
+	 * the directory to resolve the filenames against;
+	 * not {@code null}
+	 * 
+	 * @param corpusFile
+	 * (a {@link Path} locating) the corpus file to create
+	 * (or overwrite); not {@code null}
+	 * 
+	 * @throws IOException
+	 * if an I/O error occurs
+	 */
+	public static void create(final List<String> filenames, final Path baseDir, final Path corpusFile) throws IOException {
+		final int textCount = filenames.size();
+		final byte[][] names = new byte[textCount][];
+		long dataOffset = HEADER_SIZE;
+		for (int i = 0; i < textCount; i++) {
+			names[i] = filenames.get(i).getBytes(StandardCharsets.UTF_8);
+			dataOffset += 16 + names[i].length;
+		}
+		dataOffset = (dataOffset + 7L) & ~7L;
+		
+		final TokenDictionary dictionary = new TokenDictionary();
+		final long[] dataOffsets = new long[textCount];
+		final int[] tokenCounts = new int[textCount];
+		try (final FileChannel channel = FileChannel.open(corpusFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+			channel.position(dataOffset);
+			for (int i = 0; i < textCount; i++) {
+				final int[] tokens = dictionary.intern(TextTokenSequenceLoader.loadTokens(baseDir.resolve(baseDir.getFileSystem().getPath(filenames.get(i)))));
+				dataOffsets[i] = channel.position() + buffer.position();
+				tokenCounts[i] = tokens.length;
+				for (final int token : tokens) {
+					if (buffer.remaining() < 4)
+						flush(channel, buffer);
+					buffer.putInt(token);
+				}
+			}
+			
+			final String[] vocabulary = dictionary.toArray();
+			final long vocabularyOffset = channel.position() + buffer.position();
+			for (final String token : vocabulary) {
+				final byte[] bytes = token.getBytes(StandardCharsets.UTF_8);
+				if (buffer.remaining() < 4)
+					flush(channel, buffer);
+				buffer.putInt(bytes.length);
+				putBytes(channel, buffer, bytes);
+			}
+			flush(channel, buffer);
+			
+			channel.position(0L);
+			buffer.put(MAGIC).putInt(VERSION).putInt(textCount).putInt(vocabulary.length).putInt(0).putLong(vocabularyOffset);
+			for (int i = 0; i < textCount; i++) {
+				if (buffer.remaining() < 16)
+					flush(channel, buffer);
+				buffer.putLong(dataOffsets[i]).putInt(tokenCounts[i]).putInt(names[i].length);
+				putBytes(channel, buffer, names[i]);
+			}
+			flush(channel, buffer);
+		}
+	}
+	
+	@Override
+	public int[] loadTokenSequence(final Path file) {
+		final IntBuffer text = pTexts.get(file.normalize());
+		if (text == null)
+			throw new IllegalArgumentException("file not in corpus: " + file);
+		final int[] tokens = new int[text.capacity()];
+		text.duplicate().get(tokens);
+		return tokens;
+	}
+	
+	/**
+	 * Returns the number of tokens of a text in this corpus.
+	 * 
+	 * @param file
+	 * (a {@link Path} locating) the text file; not {@code null}
+	 * 
+	 * @return
+	 * the number of tokens of the text;
+	 * -1 if the text is not in the corpus
+	 */
+	public long getTokenCount(final Path file) {
+		final IntBuffer text = pTexts.get(file.normalize());
+		if (text == null)
+			return -1L;
+		return text.capacity();
+	}
+	
+	/**
+	 * Returns the number of distinct tokens in this corpus.
+	 * All token IDs are smaller than this number.
+	 * 
+	 * @return
+	 * the number of distinct tokens in this corpus
+	 */
+	public int getVocabularySize() {
+		return pVocabularySize;
+	}
+	
+	private static ByteBuffer readFully(final FileChannel channel, final long position, final int length) throws IOException {
+		final ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0)
+				throw new IOException("unexpected end of corpus file");
+		}
+		buffer.flip();
+		return buffer;
+	}
+	
+	private static void putBytes(final FileChannel channel, final ByteBuffer buffer, final byte[] bytes) throws IOException {
+		if (buffer.remaining() < bytes.length)
+			flush(channel, buffer);
+		if (buffer.remaining() < bytes.length) {
+			// more bytes than fit into the buffer
+			final ByteBuffer large = ByteBuffer.wrap(bytes);
+			while (large.hasRemaining())
+				channel.write(large);
+		} else {
+			buffer.put(bytes);
+		}
+	}
+	
+	private static void flush(final FileChannel channel, final ByteBuffer buffer) throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+		buffer.clear();
+	}
+	
+}
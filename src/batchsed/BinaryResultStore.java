@@ -0,0 +1,633 @@
+/* This Source Code Form is subject to the terms of the hermA Licence.
+ * If a copy of the licence was not distributed with this file, You have
+ * received this Source Code Form in a manner that does not comply with
+ * the terms of the licence.
+ */
+package batchsed;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Binary alternative to the output file format of
+ * {@link ToAppendableComparisonOutput}, which can be read
+ * without parsing text: an append log of fixed-width records
+ * and, optionally, a sorted index for looking up pairs.
+ * <p>
+ * Both files start with the ASCII characters {@code BatchSED}
+ * followed by {@code LOG } (log) or {@code IDX } (index) and the
+ * format version (4 bytes). The index (named like the log with
+ * the suffix {@link #INDEX_SUFFIX}) continues with the number of
+ * log records it covers (8 bytes), the number of its records
+ * (8 bytes) and 8 unused bytes. Every record consists of six
+ * numbers of 4 bytes: the IDs of the two full texts, their lengths
+ * and the substring edit distances for turning the first full text
+ * into a sub-sequence of the second one and vice versa,
+ * a distance only known to exceed <i>k</i> being stored as
+ * &minus;<i>k</i>&minus;1. All numbers are in little-endian
+ * byte order. In the index, the records are ordered by the smaller
+ * and then by the larger ID, with the smaller ID first; every
+ * pair is contained only once.
+ * <p>
+ * Results are appended to a log with a {@link ComparisonOutput}
+ * returned by {@link #openOutput(Path, long, int)}. The index
+ * is created by {@link #index(Path)}; results appended to the
+ * log later are found by scanning the records not covered.
+ * Logs and indices are mapped into memory for reading.
+ * This class is thread safe.
+ */
+public class BinaryResultStore {
+	
+	/**
+	 * The suffix appended to the name of the log
+	 * for naming the index.
+	 */
+	public static final String INDEX_SUFFIX = ".index";
+	
+	private static final byte[] MAGIC = "BatchSED".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] LOG_TYPE = "LOG ".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] INDEX_TYPE = "IDX ".getBytes(StandardCharsets.US_ASCII);
+	private static final int VERSION = 1;
+	private static final int LOG_HEADER_SIZE = 16;
+	private static final int INDEX_HEADER_SIZE = 40;
+	
+	private static final int RECORD_INTS = 6;
+	private static final int RECORD_SIZE = 4 * RECORD_INTS;
+	
+	// records per memory-mapped region
+	private static final int REGION_RECORDS = 1 << 24;
+	
+	private final MappedRecords pLog;
+	private final MappedRecords pIndex;
+	private final long pIndexedLogRecords;
+	
+	private BinaryResultStore(final MappedRecords log, final MappedRecords index, final long indexedLogRecords) {
+		pLog = log;
+		pIndex = index;
+		pIndexedLogRecords = indexedLogRecords;
+	}
+	
+	/**
+	 * Opens a log (and its index, if there is an index
+	 * covering no more records than the log contains),
+	 * mapping the records into memory. Results appended
+	 * later are not seen by the returned object.
+	 * 
+	 * @param log
+	 * (a {@link Path} locating) the log; not {@code null}
+	 * 
+	 * @return
+	 * the store; not {@code null}
+	 * 
+	 * @throws IOException
+	 * if an I/O error occurs or the file is not a log
+	 */
+	public static BinaryResultStore open(final Path log) throws IOException {
+		final MappedRecords logRecords;
+		try (final FileChannel channel = FileChannel.open(log, StandardOpenOption.READ)) {
+			if (!hasHeader(channel, LOG_TYPE))
+				throw new IOException("not a result log: " + log);
+			logRecords = new MappedRecords(channel, LOG_HEADER_SIZE, (channel.size() - LOG_HEADER_SIZE) / RECORD_SIZE);
+		}
+		final Path indexFile = indexFile(log);
+		try (final FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+			if (!hasHeader(channel, INDEX_TYPE))
+				throw new IOException("not a result index: " + indexFile);
+			final ByteBuffer header = readFully(channel, LOG_HEADER_SIZE, 16);
+			final long indexedLogRecords = header.getLong();
+			final long indexRecords = header.getLong();
+			if (indexedLogRecords <= logRecords.size())
+				return new BinaryResultStore(logRecords, new MappedRecords(channel, INDEX_HEADER_SIZE, indexRecords), indexedLogRecords);
+		} catch (final FileNotFoundException | NoSuchFileException e) {
+			// no index
+		}
+		return new BinaryResultStore(logRecords, null, 0L);
+	}
+	
+	/**
+	 * Determines whether a file is a log.
+	 * 
+	 * @param file
+	 * (a {@link Path} locating) the file; not {@code null}
+	 * 
+	 * @return
+	 * {@code true} if the file starts like a log;
+	 * {@code false} otherwise
+	 * 
+	 * @throws IOException
+	 * if an I/O error occurs
+	 */
+	public static boolean isLog(final Path file) throws IOException {
+		try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			return hasHeader(channel, LOG_TYPE);
+		}
+	}
+	
+	/**
+	 * Creates a log if it does not exist or is empty and
+	 * otherwise removes an incomplete last record (left
+	 * by an earlier termination of the program while writing).
+	 * 
+	 * @param log
+	 * (a {@link Path} locating) the log; not {@code null}
+	 * 
+	 * @return
+	 * {@code true} if an incomplete record has been removed;
+	 * {@code false} otherwise
+	 * 
+	 * @throws IOException
+	 * if an I/O error occurs or the file is not a log
+	 */
+	public static boolean repair(final Path log) throws IOException {
+		try (final FileChannel channel = FileChannel.open(log, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			final long size = channel.size();
+			if (size == 0L) {
+				final ByteBuffer header = ByteBuffer.allocate(LOG_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+				header.put(MAGIC);
+				header.put(LOG_TYPE);
+				header.putInt(VERSION);
+				header.flip();
+				while (header.hasRemaining())
+					channel.write(header);
+				channel.force(true);
+				return false;
+			}
+			if (!hasHeader(channel, LOG_TYPE))
+				throw new IOException("not a result log: " + log);
+			final long end = size - (size - LOG_HEADER_SIZE) % RECORD_SIZE;
+			if (end == size)
+				return false;
+			channel.truncate(end);
+			channel.force(true);
+			return true;
+		}
+	}
+	
+	/**
+	 * Opens a log for appending results, creating it if it does
+	 * not yet exist and removing an incomplete last record.
+	 * The results are written durably in batches as described
+	 * for {@link DurableFileComparisonOutput}. The IDs of the
+	 * results must be non-negative integers and the lengths of
+	 * the full texts must not exceed {@link Integer#MAX_VALUE}.
+	 * 
+	 * @param log
+	 * (a {@link Path} locating) the log; not {@code null}
+	 * 
+	 * @param syncInterval
+	 * the maximum time (in milliseconds) between outputting a result
+	 * and forcing it to the storage device
+	 * 
+	 * @param syncCount
+	 * the number of queued results at which they are written
+	 * and forced to the storage device before the time
+	 * interval has passed
+	 * 
+	 * @return
+	 * the output, which must be closed after the last result;
+	 * not {@code null}
+	 * 
+	 * @throws IOException
+	 * if an I/O error occurs or the file is not a log
+	 */
+	public static DurableFileComparisonOutput openOutput(final Path log, final long syncInterval, final int syncCount) throws IOException {
+		repair(log);
+		return new LogOutput(FileChannel.open(log, StandardOpenOption.WRITE, StandardOpenOption.APPEND), syncInterval, syncCount);
+	}
+	
+	/**
+	 * Creates (or replaces) the index of a log,
+	 * covering all records of the log. If a pair is contained
+	 * in the log more than once, the first record is indexed.
+	 * The records are sorted in memory.
+	 * 
+	 * @param log
+	 * (a {@link Path} locating) the log; not {@code null}
+	 * 
+	 * @return
+	 * the number of records in the index
+	 * 
+	 * @throws IOException
+	 * if an I/O error occurs or the file is not a log
+	 */
+	public static long index(final Path log) throws IOException {
+		final MappedRecords logRecords;
+		try (final FileChannel channel = FileChannel.open(log, StandardOpenOption.READ)) {
+			if (!hasHeader(channel, LOG_TYPE))
+				throw new IOException("not a result log: " + log);
+			logRecords = new MappedRecords(channel, LOG_HEADER_SIZE, (channel.size() - LOG_HEADER_SIZE) / RECORD_SIZE);
+		}
+		final long logSize = logRecords.size();
+		if (logSize > Integer.MAX_VALUE / RECORD_INTS)
+			throw new IOException("too many records for indexing: " + log);
+		final int n = (int) logSize;
+		final int[] records = new int[n * RECORD_INTS];
+		final int[] record = new int[RECORD_INTS];
+		for (int i = 0; i < n; i++) {
+			logRecords.get(i, record);
+			if (record[0] > record[1])
+				swap(record);
+			System.arraycopy(record, 0, records, i * RECORD_INTS, RECORD_INTS);
+		}
+		// stable with respect to the first record of a pair,
+		// as the log position is the last sort criterion
+		final int[] order = new int[n];
+		for (int i = 0; i < n; i++)
+			order[i] = i;
+		sort(records, order);
+		
+		final Path indexFile = indexFile(log);
+		final Path temporaryFile = indexFile.resolveSibling(indexFile.getFileName().toString() + ".tmp");
+		long count = 0L;
+		try (final FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			final ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE << 12).order(ByteOrder.LITTLE_ENDIAN);
+			buffer.position(INDEX_HEADER_SIZE);
+			long previousKey = -1L;
+			for (int i = 0; i < n; i++) {
+				final int offset = order[i] * RECORD_INTS;
+				final long key = key(records[offset], records[offset + 1]);
+				if (key == previousKey)
+					continue;
+				previousKey = key;
+				count++;
+				if (buffer.remaining() < RECORD_SIZE)
+					write(channel, buffer);
+				for (int j = 0; j < RECORD_INTS; j++)
+					buffer.putInt(records[offset + j]);
+			}
+			write(channel, buffer);
+			buffer.put(MAGIC);
+			buffer.put(INDEX_TYPE);
+			buffer.putInt(VERSION);
+			buffer.putLong(logSize);
+			buffer.putLong(count);
+			buffer.putLong(0L);
+			buffer.flip();
+			while (buffer.hasRemaining())
+				channel.write(buffer, buffer.position());
+			channel.force(true);
+		}
+		Files.move(temporaryFile, indexFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		return count;
+	}
+	
+	/**
+	 * Appends the results in an output file in the format
+	 * of {@link ToAppendableComparisonOutput} to a log,
+	 * creating the log if it does not exist.
+	 * 
+	 * @param textFile
+	 * (a {@link Path} locating) the output file; not {@code null}
+	 * 
+	 * @param log
+	 * (a {@link Path} locating) the log; not {@code null}
+	 * 
+	 * @return
+	 * the number of results appended
+	 * 
+	 * @throws IOException
+	 * if an I/O error occurs or the log is not a log
+	 * 
+	 * @throws IllegalArgumentException
+	 * if a line of the output file has a wrong format
+	 */
+	public static long fromText(final Path textFile, final Path log) throws IOException {
+		long count = 0L;
+		try (final DurableFileComparisonOutput output = openOutput(log, 1000L, 1 << 16)) {
+			try (final BufferedReader reader = Files.newBufferedReader(textFile, StandardCharsets.UTF_8)) {
+				while (true) {
+					final String line = reader.readLine();
+					if (line == null)
+						break;
+					final String[] fields = line.split("\t", -1);
+					if (fields.length != 6)
+						throw new IllegalArgumentException("line has wrong format: " + line);
+					final boolean exceeded1in2 = fields[4].startsWith(">");
+					final boolean exceeded2in1 = fields[5].startsWith(">");
+					try {
+						output.output(fields[0], fields[1], new FullTextComparison(
+								Long.parseLong(exceeded1in2 ? fields[4].substring(1) : fields[4]), exceeded1in2,
+								Long.parseLong(exceeded2in1 ? fields[5].substring(1) : fields[5]), exceeded2in1,
+								Long.parseLong(fields[2]), Long.parseLong(fields[3])));
+					} catch (final NumberFormatException e) {
+						throw new IllegalArgumentException("line has wrong format: " + line, e);
+					}
+					count++;
+				}
+			}
+		}
+		return count;
+	}
+	
+	/**
+	 * Writes the results in a log to a (new or overwritten)
+	 * output file in the format of {@link ToAppendableComparisonOutput}.
+	 * 
+	 * @param log
+	 * (a {@link Path} locating) the log; not {@code null}
+	 * 
+	 * @param textFile
+	 * (a {@link Path} locating) the output file; not {@code null}
+	 * 
+	 * @return
+	 * the number of results written
+	 * 
+	 * @throws IOException
+	 * if an I/O error occurs or the log is not a log
+	 */
+	public static long toText(final Path log, final Path textFile) throws IOException {
+		final BinaryResultStore store = open(log);
+		try (final BufferedWriter writer = Files.newBufferedWriter(textFile, StandardCharsets.UTF_8)) {
+			final ComparisonOutput output = new ToAppendableComparisonOutput(writer);
+			store.forEach((id1, id2, comparisonResult) -> output.output(Integer.toString(id1), Integer.toString(id2), comparisonResult));
+		} catch (final UncheckedIOException e) {
+			throw e.getCause();
+		}
+		return store.getRecordCount();
+	}
+	
+	/**
+	 * Returns the number of records in the log.
+	 * 
+	 * @return
+	 * the number of records
+	 */
+	public long getRecordCount() {
+		return pLog.size();
+	}
+	
+	/**
+	 * Adds the ID combinations of all records in the log
+	 * to a {@link CombinationTable}.
+	 * 
+	 * @param combinationTable
+	 * the combination table; not {@code null}
+	 */
+	public void addCombinations(final CombinationTable combinationTable) {
+		final long n = pLog.size();
+		for (long i = 0L; i < n; i++)
+			combinationTable.addCombination(pLog.getInt(i, 0), pLog.getInt(i, 1));
+	}
+	
+	/**
+	 * Passes all records in the log to a {@link RecordConsumer},
+	 * in the order in which they have been appended.
+	 * 
+	 * @param consumer
+	 * the consumer; not {@code null}
+	 */
+	public void forEach(final RecordConsumer consumer) {
+		final long n = pLog.size();
+		final int[] record = new int[RECORD_INTS];
+		for (long i = 0L; i < n; i++) {
+			pLog.get(i, record);
+			consumer.accept(record[0], record[1], comparison(record));
+		}
+	}
+	
+	/**
+	 * Looks up the result for a pair of IDs (in either order),
+	 * by binary search in the index and a scan of the log
+	 * records not covered by the index.
+	 * 
+	 * @param id1
+	 * the first ID
+	 * 
+	 * @param id2
+	 * the second ID
+	 * 
+	 * @return
+	 * the result, with {@code id1} as the ID of the first
+	 * full text; {@code null} if the pair is not contained
+	 */
+	public FullTextComparison find(final int id1, final int id2) {
+		final int[] record = new int[RECORD_INTS];
+		if (pIndex != null) {
+			final long key = key(Math.min(id1, id2), Math.max(id1, id2));
+			long low = 0L;
+			long high = pIndex.size() - 1L;
+			while (low <= high) {
+				final long middle = (low + high) >>> 1;
+				final long middleKey = key(pIndex.getInt(middle, 0), pIndex.getInt(middle, 1));
+				if (middleKey < key) {
+					low = middle + 1L;
+				} else if (middleKey > key) {
+					high = middle - 1L;
+				} else {
+					pIndex.get(middle, record);
+					return oriented(record, id1);
+				}
+			}
+		}
+		final long n = pLog.size();
+		for (long i = pIndexedLogRecords; i < n; i++) {
+			final int recordId1 = pLog.getInt(i, 0);
+			final int recordId2 = pLog.getInt(i, 1);
+			if (((recordId1 == id1) && (recordId2 == id2)) || ((recordId1 == id2) && (recordId2 == id1))) {
+				pLog.get(i, record);
+				return oriented(record, id1);
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * Receives the records of a log.
+	 */
+	@FunctionalInterface
+	public interface RecordConsumer {
+		
+		/**
+		 * Receives a record.
+		 * 
+		 * @param id1
+		 * the ID of the first full text
+		 * 
+		 * @param id2
+		 * the ID of the second full text
+		 * 
+		 * @param comparisonResult
+		 * the result of the comparison between the two full texts;
+		 * not {@code null}
+		 */
+		void accept(int id1, int id2, FullTextComparison comparisonResult);
+		
+	}
+	
+	private static Path indexFile(final Path log) {
+		return log.resolveSibling(log.getFileName().toString() + INDEX_SUFFIX);
+	}
+	
+	private static boolean hasHeader(final FileChannel channel, final byte[] type) throws IOException {
+		if (channel.size() < LOG_HEADER_SIZE)
+			return false;
+		final ByteBuffer header = readFully(channel, 0L, LOG_HEADER_SIZE);
+		final byte[] magic = new byte[MAGIC.length];
+		header.get(magic);
+		final byte[] actualType = new byte[type.length];
+		header.get(actualType);
+		return Arrays.equals(magic, MAGIC) && Arrays.equals(actualType, type) && (header.getInt() == VERSION);
+	}
+	
+	private static ByteBuffer readFully(final FileChannel channel, final long position, final int length) throws IOException {
+		final ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+		while (buffer.hasRemaining())
+			if (channel.read(buffer, position + buffer.position()) < 0)
+				throw new IOException("unexpected end of file");
+		buffer.flip();
+		return buffer;
+	}
+	
+	private static void write(final FileChannel channel, final ByteBuffer buffer) throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+		buffer.clear();
+	}
+	
+	private static FullTextComparison comparison(final int[] record) {
+		return new FullTextComparison(distance(record[4]), record[4] < 0, distance(record[5]), record[5] < 0, record[2], record[3]);
+	}
+	
+	// the result of a record with the given ID first
+	private static FullTextComparison oriented(final int[] record, final int id1) {
+		if (record[0] != id1)
+			swap(record);
+		return comparison(record);
+	}
+	
+	private static long distance(final int stored) {
+		return (stored < 0) ? ~stored : stored;
+	}
+	
+	private static int stored(final long distance, final boolean exceeded) {
+		final int value = (int) Math.min(distance, Integer.MAX_VALUE);
+		return exceeded ? ~value : value;
+	}
+	
+	// exchanges the two full texts of a record
+	private static void swap(final int[] record) {
+		for (int i = 0; i < RECORD_INTS; i += 2) {
+			final int value = record[i];
+			record[i] = record[i + 1];
+			record[i + 1] = value;
+		}
+	}
+	
+	private static long key(final int id1, final int id2) {
+		return ((long) id1 << 32) | id2;
+	}
+	
+	// sorts the record numbers by the IDs of the records and then
+	// by record number; heapsort, as it needs no additional memory
+	private static void sort(final int[] records, final int[] order) {
+		final int n = order.length;
+		for (int i = n / 2 - 1; i >= 0; i--)
+			siftDown(records, order, i, n);
+		for (int end = n - 1; end > 0; end--) {
+			final int first = order[0];
+			order[0] = order[end];
+			order[end] = first;
+			siftDown(records, order, 0, end);
+		}
+	}
+	
+	private static void siftDown(final int[] records, final int[] order, final int start, final int end) {
+		int i = start;
+		while (true) {
+			int child = 2 * i + 1;
+			if (child >= end)
+				return;
+			if ((child + 1 < end) && (compare(records, order[child + 1], order[child]) > 0))
+				child++;
+			if (compare(records, order[i], order[child]) >= 0)
+				return;
+			final int value = order[i];
+			order[i] = order[child];
+			order[child] = value;
+			i = child;
+		}
+	}
+	
+	private static int compare(final int[] records, final int record1, final int record2) {
+		final int offset1 = record1 * RECORD_INTS;
+		final int offset2 = record2 * RECORD_INTS;
+		final int result = Long.compare(key(records[offset1], records[offset1 + 1]), key(records[offset2], records[offset2 + 1]));
+		return (result != 0) ? result : Integer.compare(record1, record2);
+	}
+	
+	// records of a file, mapped into memory in regions
+	private static class MappedRecords {
+		
+		private final ByteBuffer[] pRegions;
+		private final long pSize;
+		
+		public MappedRecords(final FileChannel channel, final long offset, final long size) throws IOException {
+			pSize = size;
+			pRegions = new ByteBuffer[(int) ((size + REGION_RECORDS - 1L) / REGION_RECORDS)];
+			for (int i = 0; i < pRegions.length; i++) {
+				final long first = (long) i * REGION_RECORDS;
+				final long records = Math.min(REGION_RECORDS, size - first);
+				pRegions[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset + first * RECORD_SIZE, records * RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			}
+		}
+		
+		public long size() {
+			return pSize;
+		}
+		
+		public int getInt(final long record, final int field) {
+			return pRegions[(int) (record / REGION_RECORDS)].getInt((int) (record % REGION_RECORDS) * RECORD_SIZE + 4 * field);
+		}
+		
+		public void get(final long record, final int[] values) {
+			for (int i = 0; i < RECORD_INTS; i++)
+				values[i] = getInt(record, i);
+		}
+		
+	}
+	
+	private static class LogOutput extends DurableFileComparisonOutput {
+		
+		public LogOutput(final FileChannel channel, final long syncInterval, final int syncCount) {
+			super(channel, syncInterval, syncCount);
+		}
+		
+		@Override
+		protected byte[] encode(final String id1, final String id2, final FullTextComparison comparisonResult) {
+			final int index1 = Integer.parseInt(id1);
+			final int index2 = Integer.parseInt(id2);
+			if ((index1 < 0) || (index2 < 0))
+				throw new IllegalArgumentException("negative ID: " + ((index1 < 0) ? id1 : id2));
+			final ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			record.putInt(index1);
+			record.putInt(index2);
+			record.putInt(length(comparisonResult.getSize1()));
+			record.putInt(length(comparisonResult.getSize2()));
+			record.putInt(stored(comparisonResult.getEditDistance1in2(), comparisonResult.isEditDistance1in2Exceeded()));
+			record.putInt(stored(comparisonResult.getEditDistance2in1(), comparisonResult.isEditDistance2in1Exceeded()));
+			return record.array();
+		}
+		
+		private static int length(final long size) {
+			if ((size < 0L) || (size > Integer.MAX_VALUE))
+				throw new IllegalArgumentException("length out of range: " + size);
+			return (int) size;
+		}
+		
+	}
+	
+}
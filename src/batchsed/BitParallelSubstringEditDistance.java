@@ -0,0 +1,1107 @@
+/* This Source Code Form is subject to the terms of the hermA Licence.
+ * If a copy of the licence was not distributed with this file, You have
+ * received this Source Code Form in a manner that does not comply with
+ * the terms of the licence.
+ */
+package batchsed;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Contains a bit-parallel implementation of substring edit distance
+ * computations with unit costs (Myers&rsquo; algorithm for approximate
+ * string matching, with Hyyr&ouml;&rsquo;s extension to multiple
+ * machine words).
+ * <p>
+ * The dynamic programming table has the sub-sequence along the rows
+ * and the super-sequence along the columns; the bit vectors encode
+ * the vertical differences between adjacent cells of 64 consecutive
+ * rows (a <i>block</i>) in one {@code long} each, so that one column
+ * of a block is computed with a constant number of word operations.
+ * The blocks are processed in groups of four, each group over all
+ * columns, passing the horizontal differences at the bottom of a group
+ * to the next group. Within a group, every block lags one column behind
+ * the block above it, so that the four blocks depend on each other only
+ * across columns and their word operations can be executed by the
+ * processor in parallel. This needs time proportional to
+ * &lceil;<i>m</i>/64&rceil; &middot; <i>n</i>
+ * and memory proportional to <i>m</i> + <i>n</i>
+ * (plus the number of distinct tokens in the sub-sequence).
+ * For very large tables, the computation can be distributed
+ * over several threads, and the intermediate state of long
+ * computations can be saved to a {@link Checkpoint}.
+ */
+public class BitParallelSubstringEditDistance {
+	
+	/**
+	 * The number of table cells (<i>m</i> &middot; <i>n</i>) from
+	 * which on {@link #substringEditDistance(int[], int[])} computes
+	 * a single substring edit distance in parallel.
+	 */
+	public static final long PARALLEL_THRESHOLD = 1L << 32;
+	
+	// tile size for the parallel computation
+	private static final int TILE_BLOCKS = 8;
+	private static final int TILE_COLUMNS = 4096;
+	
+	// number of blocks computed together, interleaved
+	private static final int LANE_BITS = 2;
+	private static final int LANES = 1 << LANE_BITS;
+	
+	private static final ThreadLocal<long[]> MASKS = new ThreadLocal<>();
+	
+	/**
+	 * Computes the substring edit distance between two sequences
+	 * of token IDs with unit costs. The result is the same as the
+	 * result of {@link SubstringEditDistance#substringEditDistance(int[], int[])}.
+	 * <p>
+	 * If the product of the sequence lengths is at least
+	 * {@link #PARALLEL_THRESHOLD} and the common
+	 * {@link ForkJoinPool} has a parallelism above 1,
+	 * the computation is distributed over the common pool
+	 * as with {@link #substringEditDistance(int[], int[], ForkJoinPool)}.
+	 * 
+	 * @param subSequence
+	 * the sequence to become a sub-sequence of the other;
+	 * not {@code null}, no negative IDs
+	 * 
+	 * @param superSequence
+	 * the other sequence; not {@code null}, no negative IDs
+	 * 
+	 * @return
+	 * the smallest number of insertions into the second sequence,
+	 * deletions from the first sequence and replacements of items
+	 * between the sequences to make the first sequence
+	 * a sub-sequence of the second sequence
+	 */
+	public static long substringEditDistance(final int[] subSequence, final int[] superSequence) {
+		return substringEditDistance(subSequence, superSequence, (Checkpoint) null);
+	}
+	
+	/**
+	 * Computes the substring edit distance between two sequences
+	 * of token IDs with unit costs like
+	 * {@link #substringEditDistance(int[], int[])},
+	 * saving the intermediate state of the computation to a
+	 * {@link Checkpoint} periodically. If the checkpoint contains
+	 * a state of the same computation, the computation is resumed
+	 * from this state.
+	 * 
+	 * @param subSequence
+	 * the sequence to become a sub-sequence of the other;
+	 * not {@code null}, no negative IDs
+	 * 
+	 * @param superSequence
+	 * the other sequence; not {@code null}, no negative IDs
+	 * 
+	 * @param checkpoint
+	 * the checkpoint; {@code null} for no checkpoint
+	 * 
+	 * @return
+	 * the smallest number of insertions into the second sequence,
+	 * deletions from the first sequence and replacements of items
+	 * between the sequences to make the first sequence
+	 * a sub-sequence of the second sequence
+	 */
+	public static long substringEditDistance(final int[] subSequence, final int[] superSequence, final Checkpoint checkpoint) {
+		if (((long) subSequence.length * superSequence.length >= PARALLEL_THRESHOLD) && (ForkJoinPool.getCommonPoolParallelism() > 1))
+			return substringEditDistance(subSequence, superSequence, ForkJoinPool.commonPool(), checkpoint);
+		return substringEditDistance(subSequence, superSequence, null, checkpoint);
+	}
+	
+	/**
+	 * Computes the substring edit distance between two sequences
+	 * of token IDs with unit costs, optionally in parallel.
+	 * The result is the same as the result of
+	 * {@link SubstringEditDistance#substringEditDistance(int[], int[])}.
+	 * <p>
+	 * For the parallel computation, the table is divided into
+	 * tiles of several blocks and a few thousand columns.
+	 * A tile can be computed as soon as the tile above it
+	 * (which provides the horizontal differences at its top)
+	 * and the tile to its left (which provides the bit vectors
+	 * of its blocks in the preceding column) have been computed,
+	 * so the tiles are computed in anti-diagonals
+	 * (a <i>wavefront</i>), the tiles of each anti-diagonal
+	 * in parallel.
+	 * 
+	 * @param subSequence
+	 * the sequence to become a sub-sequence of the other;
+	 * not {@code null}, no negative IDs
+	 * 
+	 * @param superSequence
+	 * the other sequence; not {@code null}, no negative IDs
+	 * 
+	 * @param pool
+	 * the pool to compute the tiles in;
+	 * {@code null} to compute sequentially in the calling thread
+	 * 
+	 * @return
+	 * the smallest number of insertions into the second sequence,
+	 * deletions from the first sequence and replacements of items
+	 * between the sequences to make the first sequence
+	 * a sub-sequence of the second sequence
+	 */
+	public static long substringEditDistance(final int[] subSequence, final int[] superSequence, final ForkJoinPool pool) {
+		return substringEditDistance(subSequence, superSequence, pool, null);
+	}
+	
+	/**
+	 * Computes the substring edit distance between two sequences
+	 * of token IDs with unit costs like
+	 * {@link #substringEditDistance(int[], int[], ForkJoinPool)},
+	 * saving the intermediate state of the computation to a
+	 * {@link Checkpoint} periodically. If the checkpoint contains
+	 * a state of the same computation, the computation is resumed
+	 * from this state. The state does not depend on whether the
+	 * computation is performed in parallel.
+	 * <p>
+	 * A state can only be saved when all blocks above a certain
+	 * row have been computed over all columns. Therefore, with a
+	 * checkpoint, the parallel computation is divided into bands
+	 * of several rows of tiles, which are computed one after
+	 * another.
+	 * 
+	 * @param subSequence
+	 * the sequence to become a sub-sequence of the other;
+	 * not {@code null}, no negative IDs
+	 * 
+	 * @param superSequence
+	 * the other sequence; not {@code null}, no negative IDs
+	 * 
+	 * @param pool
+	 * the pool to compute the tiles in;
+	 * {@code null} to compute sequentially in the calling thread
+	 * 
+	 * @param checkpoint
+	 * the checkpoint; {@code null} for no checkpoint
+	 * 
+	 * @return
+	 * the smallest number of insertions into the second sequence,
+	 * deletions from the first sequence and replacements of items
+	 * between the sequences to make the first sequence
+	 * a sub-sequence of the second sequence
+	 */
+	public static long substringEditDistance(final int[] subSequence, final int[] superSequence, final ForkJoinPool pool, final Checkpoint checkpoint) {
+		final int m = subSequence.length;
+		final int n = superSequence.length;
+		if (m == 0)
+			return 0L;
+		
+		final int[] pattern = new int[m];
+		final int[] text = new int[n];
+		final int vocabularySize = localize(subSequence, superSequence, pattern, text);
+		
+		// horizontal differences below the last computed block; above the
+		// first block (row 0 of the table), all values are 0
+		final byte[] horizontal = new byte[n];
+		final int blocks = (m + 63) >>> 6;
+		final long fingerprint = (checkpoint == null) ? 0L : fingerprint(pattern, text);
+		final int blocksDone = (checkpoint == null) ? 0 : checkpoint.restore(fingerprint, blocks, horizontal);
+		// bit vectors of every block in the last computed column;
+		// in the first column, every cell is 1 higher than the cell above
+		final long[] vertical = new long[2 * blocks];
+		for (int b = blocksDone; b < blocks; b++)
+			vertical[2 * b] = -1L;
+		
+		if (pool == null) {
+			final long[] masks = new long[(vocabularySize + 1) << LANE_BITS];
+			for (int b = blocksDone; b < blocks; b += LANES) {
+				final int blockTo = Math.min(b + LANES, blocks);
+				advanceTile(pattern, text, horizontal, vertical, masks, b, blockTo, 0, n);
+				if ((checkpoint != null) && checkpoint.isDue())
+					checkpoint.save(fingerprint, blockTo, horizontal);
+			}
+		} else {
+			// without a checkpoint, all blocks form a single band
+			final int bandBlocks = (checkpoint == null) ? blocks : 4 * TILE_BLOCKS * pool.getParallelism();
+			for (int bandFrom = blocksDone; bandFrom < blocks; bandFrom += bandBlocks) {
+				final int bandTo = Math.min(bandFrom + bandBlocks, blocks);
+				advanceBand(pool, pattern, text, horizontal, vertical, vocabularySize, bandFrom, bandTo);
+				if ((checkpoint != null) && checkpoint.isDue())
+					checkpoint.save(fingerprint, bandTo, horizontal);
+			}
+		}
+		// the result is kept until both directions of the comparison
+		// have been output, so save the final state of long computations
+		if ((checkpoint != null) && checkpoint.hasState() && (blocksDone < blocks))
+			checkpoint.save(fingerprint, blocks, horizontal);
+		
+		// bottom row of the table
+		long score = m;
+		long min = score;
+		for (final byte delta : horizontal) {
+			score += delta;
+			if (score < min)
+				min = score;
+		}
+		return min;
+	}
+	
+	/**
+	 * Computes the substring edit distances between two sequences
+	 * of token IDs with unit costs in both directions.
+	 * The results are the same as the results of
+	 * {@link #substringEditDistance(int[], int[])} for the sequences
+	 * in the given and in the reverse order.
+	 * <p>
+	 * Both tables are computed in a single pass. They have the same
+	 * cells (with the shorter sequence along the rows and the longer
+	 * sequence along the columns, as every pass over the columns has some
+	 * overhead) and the same recurrence, evaluated with the same match
+	 * masks; they only differ in the values of the first row and the first
+	 * column. In the table for the sequence along the rows becoming
+	 * a sub-sequence of the other, the first row is 0 (the match may start
+	 * anywhere in the other sequence) and the minimum of the last row is
+	 * the result. In the table for the sequence along the columns becoming
+	 * a sub-sequence of the other, the first column is 0 and the minimum
+	 * of the last column is the result. The bit vectors of both tables are
+	 * advanced side by side in every column, two blocks at a time
+	 * (interleaved as in {@link #substringEditDistance(int[], int[], ForkJoinPool, Checkpoint)}),
+	 * so that the tokens and the match masks are loaded only once for
+	 * both tables.
+	 * Unlike the computations in one direction, this computation is
+	 * neither parallel nor saved to a {@link Checkpoint}.
+	 * 
+	 * @param sequence1
+	 * the first sequence; not {@code null}, no negative IDs
+	 * 
+	 * @param sequence2
+	 * the second sequence; not {@code null}, no negative IDs
+	 * 
+	 * @return
+	 * the substring edit distance with the first sequence
+	 * becoming a sub-sequence of the second (at index 0) and
+	 * the substring edit distance with the second sequence
+	 * becoming a sub-sequence of the first (at index 1)
+	 */
+	public static long[] bidirectionalSubstringEditDistance(final int[] sequence1, final int[] sequence2) {
+		if (sequence1.length > sequence2.length) {
+			final long[] ed = fusedSubstringEditDistances(sequence2, new int[][] { sequence1 })[0];
+			return new long[] { ed[1], ed[0] };
+		}
+		return fusedSubstringEditDistances(sequence1, new int[][] { sequence2 })[0];
+	}
+	
+	/**
+	 * Computes the substring edit distances between a sequence of
+	 * token IDs and several other sequences with unit costs in both
+	 * directions, with the same results as
+	 * {@link #substringEditDistance(int[], int[])} for the sequence
+	 * and every other sequence in both orders.
+	 * <p>
+	 * The local IDs of the first sequence are determined only once,
+	 * and the tokens of the other sequences are mapped to them, so that
+	 * the tables of the other sequences becoming sub-sequences of the
+	 * first sequence are computed with small local IDs even if the
+	 * token IDs are large. For the first sequence becoming a sub-sequence
+	 * of the other sequences, the match masks of every group of blocks
+	 * of the first sequence are set up once and used for all other
+	 * sequences before moving on to the next group, so that they stay
+	 * in the processor cache. This saves time when the first sequence is
+	 * compared with many shorter sequences, for which setting up the
+	 * local IDs and match masks takes a considerable part of the time.
+	 * The other sequences, with a byte of horizontal differences per
+	 * token, are kept in memory until all of them have been computed.
+	 * 
+	 * @param sequence1
+	 * the first sequence; not {@code null}, no negative IDs
+	 * 
+	 * @param sequences2
+	 * the other sequences; not {@code null}, no {@code null}
+	 * elements, no negative IDs
+	 * 
+	 * @return
+	 * for every other sequence (at the same index), the substring
+	 * edit distance with the first sequence becoming a sub-sequence
+	 * of the other (at index 0) and the substring edit distance with
+	 * the other sequence becoming a sub-sequence of the first
+	 * (at index 1)
+	 */
+	public static long[][] bidirectionalSubstringEditDistances(final int[] sequence1, final int[][] sequences2) {
+		final int m = sequence1.length;
+		final int count = sequences2.length;
+		final long[][] results = new long[count][];
+		if (m == 0) {
+			for (int k = 0; k < count; k++)
+				results[k] = new long[] { 0L, sequences2[k].length };
+			return results;
+		}
+		
+		final int[] pattern = new int[m];
+		final int[] localIds = localizePattern(sequence1, pattern);
+		final long[] masks = new long[(vocabularySize(pattern) + 1) << LANE_BITS];
+		
+		// the tokens of the other sequences not in the first sequence
+		// all become 0, which does not occur in the pattern
+		final int[][] texts = new int[count][];
+		final byte[][] horizontals = new byte[count][];
+		for (int k = 0; k < count; k++) {
+			texts[k] = new int[sequences2[k].length];
+			localizeText(localIds, sequences2[k], texts[k]);
+			horizontals[k] = new byte[sequences2[k].length];
+		}
+		final int blocks = (m + 63) >>> 6;
+		final long[] vertical = new long[2 * blocks];
+		int b = 0;
+		for (; b + LANES <= blocks; b += LANES) {
+			final int from = b << 6;
+			final int to = Math.min(from + (LANES << 6), m);
+			for (int i = from; i < to; i++)
+				masks[(pattern[i] << LANE_BITS) + ((i - from) >>> 6)] |= 1L << (i & 63);
+			for (int k = 0; k < count; k++) {
+				for (int r = b; r < b + LANES; r++) {
+					vertical[2 * r] = -1L;
+					vertical[2 * r + 1] = 0L;
+				}
+				advanceBlocks(masks, texts[k], horizontals[k], vertical, b, 0, texts[k].length, (to - 1) & 63);
+			}
+			for (int i = from; i < to; i++)
+				masks[(pattern[i] << LANE_BITS) + ((i - from) >>> 6)] = 0L;
+		}
+		for (; b < blocks; b++) {
+			final int from = b << 6;
+			final int to = Math.min(from + 64, m);
+			for (int i = from; i < to; i++)
+				masks[pattern[i] << LANE_BITS] |= 1L << (i - from);
+			for (int k = 0; k < count; k++) {
+				vertical[2 * b] = -1L;
+				vertical[2 * b + 1] = 0L;
+				advanceBlock(masks, texts[k], horizontals[k], vertical, b, 0, texts[k].length, 1L << (to - from - 1));
+			}
+			for (int i = from; i < to; i++)
+				masks[pattern[i] << LANE_BITS] = 0L;
+		}
+		
+		for (int k = 0; k < count; k++) {
+			// bottom row of the table
+			long score = m;
+			long min = score;
+			for (final byte delta : horizontals[k]) {
+				score += delta;
+				if (score < min)
+					min = score;
+			}
+			results[k] = new long[] { min, substringEditDistance(texts[k], pattern) };
+		}
+		return results;
+	}
+	
+	// computes the substring edit distances between a sequence and
+	// several other sequences in both directions, both tables of each
+	// pair in a single pass as described for
+	// bidirectionalSubstringEditDistance
+	private static long[][] fusedSubstringEditDistances(final int[] sequence1, final int[][] sequences2) {
+		final int m = sequence1.length;
+		final int count = sequences2.length;
+		final long[][] results = new long[count][];
+		if (m == 0) {
+			for (int k = 0; k < count; k++)
+				results[k] = new long[] { 0L, sequences2[k].length };
+			return results;
+		}
+		
+		final int[] pattern = new int[m];
+		final int[] localIds = localizePattern(sequence1, pattern);
+		final long[] masks = new long[(vocabularySize(pattern) + 1) << LANE_BITS];
+		
+		final int[][] texts = new int[count][];
+		// horizontal differences below the last computed block;
+		// above the first block, the first row of the second table
+		// increases by 1 per column
+		final byte[][] horizontals1 = new byte[count][];
+		final byte[][] horizontals2 = new byte[count][];
+		// the last column of the second table, from its top (n)
+		final long[] scores2 = new long[count];
+		final long[] mins2 = new long[count];
+		for (int k = 0; k < count; k++) {
+			final int n = sequences2[k].length;
+			texts[k] = new int[n];
+			localizeText(localIds, sequences2[k], texts[k]);
+			horizontals1[k] = new byte[n];
+			horizontals2[k] = new byte[n];
+			Arrays.fill(horizontals2[k], (byte) 1);
+			scores2[k] = n;
+			mins2[k] = n;
+		}
+		final long[] vertical2 = new long[4];
+		for (int from = 0; from < m; from += 128) {
+			final int to = Math.min(from + 128, m);
+			for (int i = from; i < to; i++)
+				masks[(pattern[i] << LANE_BITS) + ((i - from) >>> 6)] |= 1L << (i & 63);
+			for (int k = 0; k < count; k++) {
+				if (to - from > 64)
+					advanceBlocksBidirectional(masks, texts[k], horizontals1[k], horizontals2[k], vertical2, (to - 1) & 63);
+				else
+					advanceBlockBidirectional(masks, texts[k], horizontals1[k], horizontals2[k], vertical2, to - from - 1);
+				long score2 = scores2[k];
+				long min2 = mins2[k];
+				for (int bit = 0; bit < to - from; bit++) {
+					score2 += ((vertical2[bit >>> 6 << 1] >>> bit) & 1L) - ((vertical2[(bit >>> 6 << 1) + 1] >>> bit) & 1L);
+					if (score2 < min2)
+						min2 = score2;
+				}
+				scores2[k] = score2;
+				mins2[k] = min2;
+			}
+			for (int i = from; i < to; i++)
+				masks[(pattern[i] << LANE_BITS) + ((i - from) >>> 6)] = 0L;
+		}
+		
+		for (int k = 0; k < count; k++) {
+			// last row of the first table
+			long score1 = m;
+			long min1 = score1;
+			for (final byte delta : horizontals1[k]) {
+				score1 += delta;
+				if (score1 < min1)
+					min1 = score1;
+			}
+			results[k] = new long[] { min1, mins2[k] };
+		}
+		return results;
+	}
+	
+	/**
+	 * Computes the substring edit distance between two sequences
+	 * of token IDs with unit costs if it does not exceed a given
+	 * maximum distance.
+	 * <p>
+	 * This uses Ukkonen&rsquo;s cut-off technique as adapted to
+	 * blocks by Myers: The table is computed column by column,
+	 * and in every column only the blocks down to the last block
+	 * that can contain a value not exceeding the maximum distance
+	 * are computed. Besides, the computation stops as soon as the
+	 * remaining columns are too few for the values in the bottom row
+	 * to drop to the maximum distance. When the maximum distance is
+	 * much smaller than the length of the sub-sequence, this is much
+	 * faster than computing the whole table. If, however, the
+	 * computed blocks cover a large part of the table (as for
+	 * near-duplicates), the whole table is computed as by
+	 * {@link #substringEditDistance(int[], int[])} instead.
+	 * 
+	 * @param subSequence
+	 * the sequence to become a sub-sequence of the other;
+	 * not {@code null}, no negative IDs
+	 * 
+	 * @param superSequence
+	 * the other sequence; not {@code null}, no negative IDs
+	 * 
+	 * @param maxDistance
+	 * the maximum distance; not negative
+	 * 
+	 * @return
+	 * the substring edit distance if it does not exceed
+	 * {@code maxDistance}; {@code maxDistance + 1} otherwise
+	 */
+	public static long boundedSubstringEditDistance(final int[] subSequence, final int[] superSequence, final long maxDistance) {
+		return boundedSubstringEditDistance(subSequence, superSequence, maxDistance, null);
+	}
+	
+	/**
+	 * Computes the substring edit distance between two sequences
+	 * of token IDs with unit costs if it does not exceed a given
+	 * maximum distance, like
+	 * {@link #boundedSubstringEditDistance(int[], int[], long)}.
+	 * If the whole table is computed, the intermediate state
+	 * is saved to a {@link Checkpoint} periodically as with
+	 * {@link #substringEditDistance(int[], int[], Checkpoint)}.
+	 * (With the cut-off, the computation is fast enough not
+	 * to need a checkpoint.)
+	 * 
+	 * @param subSequence
+	 * the sequence to become a sub-sequence of the other;
+	 * not {@code null}, no negative IDs
+	 * 
+	 * @param superSequence
+	 * the other sequence; not {@code null}, no negative IDs
+	 * 
+	 * @param maxDistance
+	 * the maximum distance; not negative
+	 * 
+	 * @param checkpoint
+	 * the checkpoint; {@code null} for no checkpoint
+	 * 
+	 * @return
+	 * the substring edit distance if it does not exceed
+	 * {@code maxDistance}; {@code maxDistance + 1} otherwise
+	 */
+	public static long boundedSubstringEditDistance(final int[] subSequence, final int[] superSequence, final long maxDistance, final Checkpoint checkpoint) {
+		final int m = subSequence.length;
+		final int n = superSequence.length;
+		if (maxDistance >= m)
+			return substringEditDistance(subSequence, superSequence, checkpoint);
+		// the bottom row starts with m and can decrease by at most 1 per column
+		if ((long) m - n > maxDistance)
+			return maxDistance + 1L;
+		
+		final int[] pattern = new int[m];
+		final int[] text = new int[n];
+		localize(subSequence, superSequence, pattern, text);
+		final int blocks = (m + 63) >>> 6;
+		final BlockMasks masks = new BlockMasks(pattern, blocks);
+		final long lastBitOfLastBlock = 1L << ((m - 1) & 63);
+		
+		// the cut-off; values above it are irrelevant
+		int k = (int) maxDistance;
+		int best = m;
+		
+		final long[] vertical = new long[2 * blocks];
+		// value in the last row of every block
+		final int[] scores = new int[blocks];
+		int lastBlock = Math.min(blocks, (k + 64) >>> 6) - 1;
+		// number of blocks from which on computing all blocks in the
+		// usual order is faster (due to the larger match mask tables
+		// needed here); this is mostly reached for near-duplicates
+		final int fallbackBlocks = Math.max(blocks / 4, 2 * (lastBlock + 1));
+		for (int b = 0; b <= lastBlock; b++) {
+			vertical[2 * b] = -1L;
+			scores[b] = Math.min((b + 1) << 6, m);
+		}
+		
+		for (int j = 0; j < n; j++) {
+			final int t = text[j];
+			int hout = 0;
+			for (int b = 0; b <= lastBlock; b++) {
+				hout = advanceColumn(vertical, b, masks.get(b, t), hout, (b == blocks - 1) ? lastBitOfLastBlock : Long.MIN_VALUE);
+				scores[b] += hout;
+			}
+			
+			// adjust the number of blocks
+			final int lastScore = scores[lastBlock];
+			if ((lastBlock < blocks - 1) && (lastScore - hout <= k) && (((masks.get(lastBlock + 1, t) & 1L) != 0L) || (hout < 0))) {
+				lastBlock++;
+				vertical[2 * lastBlock] = -1L;
+				vertical[2 * lastBlock + 1] = 0L;
+				final int height = Math.min(64, m - (lastBlock << 6));
+				scores[lastBlock] = lastScore - hout + height + advanceColumn(vertical, lastBlock, masks.get(lastBlock, t), hout, (lastBlock == blocks - 1) ? lastBitOfLastBlock : Long.MIN_VALUE);
+				if ((lastBlock >= fallbackBlocks) && (lastBlock < blocks - 1)) {
+					final long distance = substringEditDistance(subSequence, superSequence, checkpoint);
+					return (distance <= maxDistance) ? distance : maxDistance + 1L;
+				}
+			} else {
+				while ((lastBlock > 0) && (scores[lastBlock] >= k + Math.min(64, m - (lastBlock << 6))))
+					lastBlock--;
+			}
+			
+			if (lastBlock == blocks - 1) {
+				final int score = scores[lastBlock];
+				if (score < best) {
+					best = score;
+					if (best < k)
+						k = best;
+				}
+			} else if ((long) m - ((lastBlock + 1) << 6) - (n - 1 - j) > k) {
+				// all values below the last block exceed k, and the
+				// remaining columns cannot bring them down to k
+				break;
+			}
+		}
+		
+		return (best <= maxDistance) ? best : maxDistance + 1L;
+	}
+	
+	// determines local IDs for the tokens: 1, 2, 3, ... for the distinct
+	// tokens of the sub-sequence, 0 for all tokens of the super-sequence
+	// not in the sub-sequence; returns the number of distinct tokens
+	// in the sub-sequence
+	private static int localize(final int[] subSequence, final int[] superSequence, final int[] pattern, final int[] text) {
+		final int[] localIds = localizePattern(subSequence, pattern);
+		localizeText(localIds, superSequence, text);
+		return vocabularySize(pattern);
+	}
+	
+	// determines the local IDs of the sub-sequence as by localize;
+	// returns the local ID of every ID up to the greatest ID
+	// in the sub-sequence (0 for IDs not in the sub-sequence)
+	private static int[] localizePattern(final int[] subSequence, final int[] pattern) {
+		int maxId = 0;
+		for (final int u : subSequence)
+			if (u > maxId)
+				maxId = u;
+		final int[] localIds = new int[maxId + 1];
+		int vocabularySize = 0;
+		for (int i = 0; i < subSequence.length; i++) {
+			final int u = subSequence[i];
+			int localId = localIds[u];
+			if (localId == 0) {
+				localId = ++vocabularySize;
+				localIds[u] = localId;
+			}
+			pattern[i] = localId;
+		}
+		return localIds;
+	}
+	
+	// determines the local IDs of the super-sequence as by localize,
+	// with the local IDs returned by localizePattern
+	private static void localizeText(final int[] localIds, final int[] superSequence, final int[] text) {
+		final int maxId = localIds.length - 1;
+		for (int j = 0; j < superSequence.length; j++) {
+			final int v = superSequence[j];
+			text[j] = (v <= maxId) ? localIds[v] : 0;
+		}
+	}
+	
+	// returns the number of distinct local IDs in the sub-sequence
+	private static int vocabularySize(final int[] pattern) {
+		int vocabularySize = 0;
+		for (final int localId : pattern)
+			if (localId > vocabularySize)
+				vocabularySize = localId;
+		return vocabularySize;
+	}
+	
+	// identifies a computation for checkpoints; depends only on the
+	// local IDs, which are the same in every run
+	private static long fingerprint(final int[] pattern, final int[] text) {
+		long hash = ((long) pattern.length << 32) | text.length;
+		for (final int u : pattern)
+			hash = (hash + u) * 0x9E3779B97F4A7C15L;
+		for (final int v : text)
+			hash = (hash + v) * 0x9E3779B97F4A7C15L;
+		return hash;
+	}
+	
+	// computes the blocks blockFrom (inclusive) to blockTo (exclusive)
+	// over all columns in tiles, in anti-diagonals
+	private static void advanceBand(final ForkJoinPool pool, final int[] pattern, final int[] text, final byte[] horizontal, final long[] vertical, final int vocabularySize, final int blockFrom, final int blockTo) {
+		final int n = text.length;
+		final int rows = (blockTo - blockFrom + TILE_BLOCKS - 1) / TILE_BLOCKS;
+		final int columns = (n + TILE_COLUMNS - 1) / TILE_COLUMNS;
+		pool.invoke(ForkJoinTask.adapt(() -> {
+			final ArrayList<Tile> diagonal = new ArrayList<>();
+			for (int d = 0; d < rows + columns - 1; d++) {
+				diagonal.clear();
+				for (int r = Math.max(0, d - columns + 1); r <= Math.min(d, rows - 1); r++) {
+					final int c = d - r;
+					diagonal.add(new Tile(pattern, text, horizontal, vertical, vocabularySize, blockFrom + r * TILE_BLOCKS, Math.min(blockFrom + (r + 1) * TILE_BLOCKS, blockTo), c * TILE_COLUMNS, Math.min((c + 1) * TILE_COLUMNS, n)));
+				}
+				ForkJoinTask.invokeAll(diagonal);
+			}
+		}));
+	}
+	
+	// computes the blocks blockFrom (inclusive) to blockTo (exclusive)
+	// in the columns columnFrom (inclusive) to columnTo (exclusive),
+	// LANES blocks at a time where possible; the masks (LANES per
+	// local ID) must be all 0 and are all 0 again afterwards
+	private static void advanceTile(final int[] pattern, final int[] text, final byte[] horizontal, final long[] vertical, final long[] masks, final int blockFrom, final int blockTo, final int columnFrom, final int columnTo) {
+		final int m = pattern.length;
+		int b = blockFrom;
+		for (; b + LANES <= blockTo; b += LANES) {
+			final int from = b << 6;
+			final int to = Math.min(from + (LANES << 6), m);
+			for (int i = from; i < to; i++)
+				masks[(pattern[i] << LANE_BITS) + ((i - from) >>> 6)] |= 1L << (i & 63);
+			advanceBlocks(masks, text, horizontal, vertical, b, columnFrom, columnTo, (to - 1) & 63);
+			for (int i = from; i < to; i++)
+				masks[(pattern[i] << LANE_BITS) + ((i - from) >>> 6)] = 0L;
+		}
+		for (; b < blockTo; b++) {
+			final int from = b << 6;
+			final int to = Math.min(from + 64, m);
+			for (int i = from; i < to; i++)
+				masks[pattern[i] << LANE_BITS] |= 1L << (i - from);
+			advanceBlock(masks, text, horizontal, vertical, b, columnFrom, columnTo, 1L << (to - from - 1));
+			for (int i = from; i < to; i++)
+				masks[pattern[i] << LANE_BITS] = 0L;
+		}
+	}
+	
+	// uses the masks of lane 0
+	private static void advanceBlock(final long[] masks, final int[] text, final byte[] horizontal, final long[] vertical, final int block, final int columnFrom, final int columnTo, final long lastBit) {
+		long pv = vertical[2 * block];
+		long mv = vertical[2 * block + 1];
+		for (int j = columnFrom; j < columnTo; j++) {
+			long eq = masks[text[j] << LANE_BITS];
+			final int hin = horizontal[j];
+			final long xv = eq | mv;
+			if (hin < 0)
+				eq |= 1L;
+			final long xh = (((eq & pv) + pv) ^ pv) | eq;
+			long ph = mv | ~(xh | pv);
+			long mh = pv & xh;
+			final int hout;
+			if ((ph & lastBit) != 0L)
+				hout = 1;
+			else if ((mh & lastBit) != 0L)
+				hout = -1;
+			else
+				hout = 0;
+			ph <<= 1;
+			mh <<= 1;
+			if (hin < 0)
+				mh |= 1L;
+			else if (hin > 0)
+				ph |= 1L;
+			pv = mh | ~(xv | ph);
+			mv = ph & xv;
+			horizontal[j] = (byte) hout;
+		}
+		vertical[2 * block] = pv;
+		vertical[2 * block + 1] = mv;
+	}
+	
+	// computes a block of both tables of fusedSubstringEditDistances
+	// over all columns (with the masks of lane 0), the first table with 1
+	// and the second table with 0 as the vertical differences in the first
+	// column; stores the vertical bit vectors of the second table in the
+	// last column in vertical2
+	private static void advanceBlockBidirectional(final long[] masks, final int[] text, final byte[] horizontal1, final byte[] horizontal2, final long[] vertical2, final int lastShift) {
+		long pv1 = -1L;
+		long mv1 = 0L;
+		long pv2 = 0L;
+		long mv2 = 0L;
+		for (int j = 0; j < text.length; j++) {
+			final long eq = masks[text[j] << LANE_BITS];
+			final long in1 = horizontal1[j];
+			final long in2 = horizontal2[j];
+			
+			final long m1 = in1 >>> 63;
+			final long e1 = eq | m1;
+			final long xv1 = eq | mv1;
+			final long xh1 = (((e1 & pv1) + pv1) ^ pv1) | e1;
+			final long ph1 = mv1 | ~(xh1 | pv1);
+			final long mh1 = pv1 & xh1;
+			final long sph1 = (ph1 << 1) | ((-in1) >>> 63);
+			final long smh1 = (mh1 << 1) | m1;
+			pv1 = smh1 | ~(xv1 | sph1);
+			mv1 = sph1 & xv1;
+			
+			final long m2 = in2 >>> 63;
+			final long e2 = eq | m2;
+			final long xv2 = eq | mv2;
+			final long xh2 = (((e2 & pv2) + pv2) ^ pv2) | e2;
+			final long ph2 = mv2 | ~(xh2 | pv2);
+			final long mh2 = pv2 & xh2;
+			final long sph2 = (ph2 << 1) | ((-in2) >>> 63);
+			final long smh2 = (mh2 << 1) | m2;
+			pv2 = smh2 | ~(xv2 | sph2);
+			mv2 = sph2 & xv2;
+			
+			horizontal1[j] = (byte) (((ph1 >>> lastShift) & 1L) - ((mh1 >>> lastShift) & 1L));
+			horizontal2[j] = (byte) (((ph2 >>> lastShift) & 1L) - ((mh2 >>> lastShift) & 1L));
+		}
+		vertical2[0] = pv2;
+		vertical2[1] = mv2;
+	}
+	
+	// like advanceBlockBidirectional, but for two blocks (with
+	// the masks of lanes 0 and 1), the lower one lagging one column
+	// behind as in advanceBlocks; stores the vertical bit vectors
+	// of both blocks of the second table in vertical2
+	private static void advanceBlocksBidirectional(final long[] masks, final int[] text, final byte[] horizontal1, final byte[] horizontal2, final long[] vertical2, final int lastShift) {
+		final int n = text.length;
+		final long[] vertical1 = { -1L, 0L, -1L, 0L };
+		Arrays.fill(vertical2, 0L);
+		if (n == 0)
+			return;
+		long h1 = advanceColumn(vertical1, 0, masks[text[0] << LANE_BITS], horizontal1[0], Long.MIN_VALUE);
+		long h2 = advanceColumn(vertical2, 0, masks[text[0] << LANE_BITS], horizontal2[0], Long.MIN_VALUE);
+		long pv10 = vertical1[0];
+		long mv10 = vertical1[1];
+		long pv11 = vertical1[2];
+		long mv11 = vertical1[3];
+		long pv20 = vertical2[0];
+		long mv20 = vertical2[1];
+		long pv21 = vertical2[2];
+		long mv21 = vertical2[3];
+		for (int s = 1; s < n; s++) {
+			final long eq0 = masks[text[s] << LANE_BITS];
+			final long eq1 = masks[(text[s - 1] << LANE_BITS) + 1];
+			final long in10 = horizontal1[s];
+			final long in20 = horizontal2[s];
+			
+			final long m10 = in10 >>> 63;
+			final long e10 = eq0 | m10;
+			final long xv10 = eq0 | mv10;
+			final long xh10 = (((e10 & pv10) + pv10) ^ pv10) | e10;
+			final long ph10 = mv10 | ~(xh10 | pv10);
+			final long mh10 = pv10 & xh10;
+			final long sph10 = (ph10 << 1) | ((-in10) >>> 63);
+			final long smh10 = (mh10 << 1) | m10;
+			pv10 = smh10 | ~(xv10 | sph10);
+			mv10 = sph10 & xv10;
+			
+			final long m20 = in20 >>> 63;
+			final long e20 = eq0 | m20;
+			final long xv20 = eq0 | mv20;
+			final long xh20 = (((e20 & pv20) + pv20) ^ pv20) | e20;
+			final long ph20 = mv20 | ~(xh20 | pv20);
+			final long mh20 = pv20 & xh20;
+			final long sph20 = (ph20 << 1) | ((-in20) >>> 63);
+			final long smh20 = (mh20 << 1) | m20;
+			pv20 = smh20 | ~(xv20 | sph20);
+			mv20 = sph20 & xv20;
+			
+			final long m11 = h1 >>> 63;
+			final long e11 = eq1 | m11;
+			final long xv11 = eq1 | mv11;
+			final long xh11 = (((e11 & pv11) + pv11) ^ pv11) | e11;
+			final long ph11 = mv11 | ~(xh11 | pv11);
+			final long mh11 = pv11 & xh11;
+			final long sph11 = (ph11 << 1) | ((-h1) >>> 63);
+			final long smh11 = (mh11 << 1) | m11;
+			pv11 = smh11 | ~(xv11 | sph11);
+			mv11 = sph11 & xv11;
+			
+			final long m21 = h2 >>> 63;
+			final long e21 = eq1 | m21;
+			final long xv21 = eq1 | mv21;
+			final long xh21 = (((e21 & pv21) + pv21) ^ pv21) | e21;
+			final long ph21 = mv21 | ~(xh21 | pv21);
+			final long mh21 = pv21 & xh21;
+			final long sph21 = (ph21 << 1) | ((-h2) >>> 63);
+			final long smh21 = (mh21 << 1) | m21;
+			pv21 = smh21 | ~(xv21 | sph21);
+			mv21 = sph21 & xv21;
+			
+			horizontal1[s - 1] = (byte) (((ph11 >>> lastShift) & 1L) - ((mh11 >>> lastShift) & 1L));
+			horizontal2[s - 1] = (byte) (((ph21 >>> lastShift) & 1L) - ((mh21 >>> lastShift) & 1L));
+			h1 = (ph10 >>> 63) - (mh10 >>> 63);
+			h2 = (ph20 >>> 63) - (mh20 >>> 63);
+		}
+		vertical1[2] = pv11;
+		vertical1[3] = mv11;
+		vertical2[0] = pv20;
+		vertical2[1] = mv20;
+		vertical2[2] = pv21;
+		vertical2[3] = mv21;
+		final long eq = masks[(text[n - 1] << LANE_BITS) + 1];
+		horizontal1[n - 1] = (byte) advanceColumn(vertical1, 1, eq, (int) h1, 1L << lastShift);
+		horizontal2[n - 1] = (byte) advanceColumn(vertical2, 1, eq, (int) h2, 1L << lastShift);
+	}
+	
+	// computes the LANES blocks from block on (the last of which may be
+	// the last block of the table, with its last row at bit lastShift)
+	// in the columns columnFrom (inclusive) to columnTo (exclusive);
+	// lane r works on column j - r while lane 0 works on column j,
+	// so that every lane takes its horizontal difference from
+	// the previous step of the lane above and the LANES independent
+	// dependency chains can be executed by the processor in parallel
+	private static void advanceBlocks(final long[] masks, final int[] text, final byte[] horizontal, final long[] vertical, final int block, final int columnFrom, final int columnTo, final int lastShift) {
+		// steps in which not all lanes are within the columns
+		final int fullFrom = columnFrom + LANES - 1;
+		for (int s = columnFrom; (s < fullFrom) && (s < columnTo + LANES - 1); s++)
+			advanceStep(masks, text, horizontal, vertical, block, s, columnFrom, columnTo, lastShift);
+		
+		if (fullFrom < columnTo) {
+			long pv0 = vertical[2 * block];
+			long mv0 = vertical[2 * block + 1];
+			long pv1 = vertical[2 * block + 2];
+			long mv1 = vertical[2 * block + 3];
+			long pv2 = vertical[2 * block + 4];
+			long mv2 = vertical[2 * block + 5];
+			long pv3 = vertical[2 * block + 6];
+			long mv3 = vertical[2 * block + 7];
+			// last horizontal differences below lanes 0 to 2
+			long h0 = horizontal[fullFrom - 1];
+			long h1 = horizontal[fullFrom - 2];
+			long h2 = horizontal[fullFrom - 3];
+			for (int s = fullFrom; s < columnTo; s++) {
+				// the sign bit and the 1 bit of -1, 0 or 1, as
+				// the bits to shift into the bit vectors
+				final long in0 = horizontal[s];
+				final long eq0 = masks[text[s] << LANE_BITS];
+				final long eq1 = masks[(text[s - 1] << LANE_BITS) + 1];
+				final long eq2 = masks[(text[s - 2] << LANE_BITS) + 2];
+				final long eq3 = masks[(text[s - 3] << LANE_BITS) + 3];
+				
+				final long m0 = in0 >>> 63;
+				final long e0 = eq0 | m0;
+				final long xv0 = eq0 | mv0;
+				final long xh0 = (((e0 & pv0) + pv0) ^ pv0) | e0;
+				final long ph0 = mv0 | ~(xh0 | pv0);
+				final long mh0 = pv0 & xh0;
+				final long out0 = (ph0 >>> 63) - (mh0 >>> 63);
+				final long sph0 = (ph0 << 1) | ((-in0) >>> 63);
+				final long smh0 = (mh0 << 1) | m0;
+				pv0 = smh0 | ~(xv0 | sph0);
+				mv0 = sph0 & xv0;
+				
+				final long m1 = h0 >>> 63;
+				final long e1 = eq1 | m1;
+				final long xv1 = eq1 | mv1;
+				final long xh1 = (((e1 & pv1) + pv1) ^ pv1) | e1;
+				final long ph1 = mv1 | ~(xh1 | pv1);
+				final long mh1 = pv1 & xh1;
+				final long out1 = (ph1 >>> 63) - (mh1 >>> 63);
+				final long sph1 = (ph1 << 1) | ((-h0) >>> 63);
+				final long smh1 = (mh1 << 1) | m1;
+				pv1 = smh1 | ~(xv1 | sph1);
+				mv1 = sph1 & xv1;
+				
+				final long m2 = h1 >>> 63;
+				final long e2 = eq2 | m2;
+				final long xv2 = eq2 | mv2;
+				final long xh2 = (((e2 & pv2) + pv2) ^ pv2) | e2;
+				final long ph2 = mv2 | ~(xh2 | pv2);
+				final long mh2 = pv2 & xh2;
+				final long out2 = (ph2 >>> 63) - (mh2 >>> 63);
+				final long sph2 = (ph2 << 1) | ((-h1) >>> 63);
+				final long smh2 = (mh2 << 1) | m2;
+				pv2 = smh2 | ~(xv2 | sph2);
+				mv2 = sph2 & xv2;
+				
+				final long m3 = h2 >>> 63;
+				final long e3 = eq3 | m3;
+				final long xv3 = eq3 | mv3;
+				final long xh3 = (((e3 & pv3) + pv3) ^ pv3) | e3;
+				final long ph3 = mv3 | ~(xh3 | pv3);
+				final long mh3 = pv3 & xh3;
+				final long out3 = ((ph3 >>> lastShift) & 1L) - ((mh3 >>> lastShift) & 1L);
+				final long sph3 = (ph3 << 1) | ((-h2) >>> 63);
+				final long smh3 = (mh3 << 1) | m3;
+				pv3 = smh3 | ~(xv3 | sph3);
+				mv3 = sph3 & xv3;
+				
+				horizontal[s - 3] = (byte) out3;
+				h0 = out0;
+				h1 = out1;
+				h2 = out2;
+			}
+			horizontal[columnTo - 1] = (byte) h0;
+			horizontal[columnTo - 2] = (byte) h1;
+			horizontal[columnTo - 3] = (byte) h2;
+			vertical[2 * block] = pv0;
+			vertical[2 * block + 1] = mv0;
+			vertical[2 * block + 2] = pv1;
+			vertical[2 * block + 3] = mv1;
+			vertical[2 * block + 4] = pv2;
+			vertical[2 * block + 5] = mv2;
+			vertical[2 * block + 6] = pv3;
+			vertical[2 * block + 7] = mv3;
+		}
+		
+		for (int s = Math.max(fullFrom, columnTo); s < columnTo + LANES - 1; s++)
+			advanceStep(masks, text, horizontal, vertical, block, s, columnFrom, columnTo, lastShift);
+	}
+	
+	// one step of advanceBlocks for the lanes within the columns;
+	// the horizontal differences are passed on through horizontal
+	private static void advanceStep(final long[] masks, final int[] text, final byte[] horizontal, final long[] vertical, final int block, final int step, final int columnFrom, final int columnTo, final int lastShift) {
+		for (int r = 0; r < LANES; r++) {
+			final int j = step - r;
+			if ((j >= columnFrom) && (j < columnTo))
+				horizontal[j] = (byte) advanceColumn(vertical, block + r, masks[(text[j] << LANE_BITS) + r], horizontal[j], 1L << ((r == LANES - 1) ? lastShift : 63));
+		}
+	}
+	
+	// computes one column of a block, returning the horizontal difference
+	// at the bit lastBit, given the horizontal difference hin above the block
+	private static int advanceColumn(final long[] vertical, final int block, long eq, final int hin, final long lastBit) {
+		final long pv = vertical[2 * block];
+		final long mv = vertical[2 * block + 1];
+		final long xv = eq | mv;
+		if (hin < 0)
+			eq |= 1L;
+		final long xh = (((eq & pv) + pv) ^ pv) | eq;
+		long ph = mv | ~(xh | pv);
+		long mh = pv & xh;
+		final int hout;
+		if ((ph & lastBit) != 0L)
+			hout = 1;
+		else if ((mh & lastBit) != 0L)
+			hout = -1;
+		else
+			hout = 0;
+		ph <<= 1;
+		mh <<= 1;
+		if (hin < 0)
+			mh |= 1L;
+		else if (hin > 0)
+			ph |= 1L;
+		vertical[2 * block] = mh | ~(xv | ph);
+		vertical[2 * block + 1] = ph & xv;
+		return hout;
+	}
+	
+	// the match masks of every block, as small hash tables
+	// (at most 64 distinct tokens per block) from local IDs to masks
+	private static class BlockMasks {
+		
+		private static final int SLOTS = 128;
+		
+		private final int[] pKeys;
+		private final long[] pMasks;
+		
+		public BlockMasks(final int[] pattern, final int blocks) {
+			pKeys = new int[blocks * SLOTS];
+			pMasks = new long[blocks * SLOTS];
+			for (int i = 0; i < pattern.length; i++) {
+				final int slot = find(i >>> 6, pattern[i]);
+				pKeys[slot] = pattern[i];
+				pMasks[slot] |= 1L << (i & 63);
+			}
+		}
+		
+		public long get(final int block, final int localId) {
+			if (localId == 0)
+				return 0L;
+			return pMasks[find(block, localId)];
+		}
+		
+		// finds the slot of the local ID or the empty slot for it
+		private int find(final int block, final int localId) {
+			final int base = block * SLOTS;
+			int offset = (localId * 0x9E3779B9) >>> 25;
+			while (true) {
+				final int key = pKeys[base + offset];
+				if ((key == localId) || (key == 0))
+					return base + offset;
+				offset = (offset + 1) & (SLOTS - 1);
+			}
+		}
+		
+	}
+	
+	private static class Tile extends RecursiveAction {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private final int[] pPattern;
+		private final int[] pText;
+		private final byte[] pHorizontal;
+		private final long[] pVertical;
+		private final int pVocabularySize;
+		private final int pBlockFrom;
+		private final int pBlockTo;
+		private final int pColumnFrom;
+		private final int pColumnTo;
+		
+		public Tile(final int[] pattern, final int[] text, final byte[] horizontal, final long[] vertical, final int vocabularySize, final int blockFrom, final int blockTo, final int columnFrom, final int columnTo) {
+			pPattern = pattern;
+			pText = text;
+			pHorizontal = horizontal;
+			pVertical = vertical;
+			pVocabularySize = vocabularySize;
+			pBlockFrom = blockFrom;
+			pBlockTo = blockTo;
+			pColumnFrom = columnFrom;
+			pColumnTo = columnTo;
+		}
+		
+		@Override
+		protected void compute() {
+			long[] masks = MASKS.get();
+			if ((masks == null) || (masks.length < ((pVocabularySize + 1) << LANE_BITS))) {
+				masks = new long[(pVocabularySize + 1) << LANE_BITS];
+				MASKS.set(masks);
+			}
+			try {
+				advanceTile(pPattern, pText, pHorizontal, pVertical, masks, pBlockFrom, pBlockTo, pColumnFrom, pColumnTo);
+			} catch (final Throwable e) {
+				// the masks may not have been reset
+				MASKS.remove();
+				throw e;
+			}
+		}
+		
+	}
+	
+}
@@ -0,0 +1,184 @@
+/* This Source Code Form is subject to the terms of the hermA Licence.
+ * If a copy of the licence was not distributed with this file, You have
+ * received this Source Code Form in a manner that does not comply with
+ * the terms of the licence.
+ */
+package batchsed;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A file to which the intermediate state of a single substring
+ * edit distance computation is saved periodically, so that the
+ * computation can be resumed after the program has been
+ * interrupted.
+ * <p>
+ * The state consists of the number of blocks of 64 rows of the
+ * dynamic programming table that have been computed completely
+ * (see {@link BitParallelSubstringEditDistance}) and the
+ * horizontal differences in the last row of these blocks.
+ * Together with a fingerprint of the sequences, which ensures
+ * that the state is only used for the same computation,
+ * the file contains (in big-endian byte order): the ASCII characters
+ * {@code BatchSED}, the format version (4 bytes),
+ * the fingerprint (8 bytes), the number of blocks (4 bytes),
+ * the number of horizontal differences (4 bytes)
+ * and the horizontal differences (1 byte each).
+ * The file is replaced atomically, so that an interruption
+ * while saving the state does not corrupt the previous state.
+ * <p>
+ * Instances of this class are not thread safe;
+ * every computation needs its own instance.
+ */
+public class Checkpoint {
+	
+	private static final byte[] MAGIC = "BatchSED".getBytes(StandardCharsets.US_ASCII);
+	private static final int VERSION = 1;
+	
+	private final Path pFile;
+	private final long pInterval;
+	
+	private long pLastSave;
+	private boolean pHasState;
+	
+	/**
+	 * Initializes a new instance of this class.
+	 * 
+	 * @param file
+	 * (a {@link Path} locating) the checkpoint file,
+	 * which need not exist; not {@code null}
+	 * 
+	 * @param interval
+	 * the minimum time between two saves, in milliseconds
+	 */
+	public Checkpoint(final Path file, final long interval) {
+		pFile = file;
+		pInterval = TimeUnit.MILLISECONDS.toNanos(interval);
+		
+		pLastSave = System.nanoTime();
+		pHasState = false;
+	}
+	
+	/**
+	 * Restores the state saved in the checkpoint file, if the file
+	 * exists and contains a state for the same computation.
+	 * 
+	 * @param fingerprint
+	 * the fingerprint of the computation
+	 * 
+	 * @param blocks
+	 * the total number of blocks of the computation
+	 * 
+	 * @param horizontal
+	 * the array to restore the horizontal differences into;
+	 * not {@code null}
+	 * 
+	 * @return
+	 * the number of blocks computed completely;
+	 * 0 if there is no state for the computation
+	 * (then {@code horizontal} is all 0)
+	 */
+	public int restore(final long fingerprint, final int blocks, final byte[] horizontal) {
+		try (final DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(pFile)))) {
+			final byte[] magic = new byte[MAGIC.length];
+			input.readFully(magic);
+			if (!Arrays.equals(magic, MAGIC) || (input.readInt() != VERSION) || (input.readLong() != fingerprint))
+				return 0;
+			final int blocksDone = input.readInt();
+			if ((blocksDone < 0) || (blocksDone > blocks) || (input.readInt() != horizontal.length))
+				return 0;
+			input.readFully(horizontal);
+			pHasState = true;
+			return blocksDone;
+		} catch (final NoSuchFileException | EOFException e) {
+			// no (complete) state
+			Arrays.fill(horizontal, (byte) 0);
+			return 0;
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	/**
+	 * Determines whether the minimum time between two saves
+	 * has elapsed since the last save (or since the creation
+	 * of this instance).
+	 * 
+	 * @return
+	 * {@code true} if the state should be saved now;
+	 * {@code false} otherwise
+	 */
+	public boolean isDue() {
+		return System.nanoTime() - pLastSave >= pInterval;
+	}
+	
+	/**
+	 * Determines whether a state has been restored from or
+	 * saved to the checkpoint file with this instance,
+	 * which indicates a long computation.
+	 * 
+	 * @return
+	 * {@code true} if a state has been restored or saved;
+	 * {@code false} otherwise
+	 */
+	public boolean hasState() {
+		return pHasState;
+	}
+	
+	/**
+	 * Saves a state to the checkpoint file.
+	 * 
+	 * @param fingerprint
+	 * the fingerprint of the computation
+	 * 
+	 * @param blocksDone
+	 * the number of blocks computed completely
+	 * 
+	 * @param horizontal
+	 * the horizontal differences in the last row
+	 * of these blocks; not {@code null}
+	 */
+	public void save(final long fingerprint, final int blocksDone, final byte[] horizontal) {
+		final Path temporaryFile = pFile.resolveSibling(pFile.getFileName() + ".tmp");
+		try {
+			try (final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryFile)))) {
+				output.write(MAGIC);
+				output.writeInt(VERSION);
+				output.writeLong(fingerprint);
+				output.writeInt(blocksDone);
+				output.writeInt(horizontal.length);
+				output.write(horizontal);
+			}
+			Files.move(temporaryFile, pFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		pLastSave = System.nanoTime();
+		pHasState = true;
+	}
+	
+	/**
+	 * Deletes the checkpoint file (if it exists).
+	 */
+	public void delete() {
+		try {
+			Files.deleteIfExists(pFile);
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+}
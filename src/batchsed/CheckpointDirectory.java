@@ -0,0 +1,93 @@
+/* This Source Code Form is subject to the terms of the hermA Licence.
+ * If a copy of the licence was not distributed with this file, You have
+ * received this Source Code Form in a manner that does not comply with
+ * the terms of the licence.
+ */
+package batchsed;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * A directory with a {@link Checkpoint} file for every
+ * direction of every comparison in progress.
+ * The name of a checkpoint file is derived from a hash of
+ * the paths of the two compared files.
+ * This class is thread safe.
+ */
+public class CheckpointDirectory {
+	
+	private final Path pDirectory;
+	private final long pInterval;
+	
+	/**
+	 * Initializes a new instance of this class.
+	 * 
+	 * @param directory
+	 * (a {@link Path} locating) the existing directory
+	 * for the checkpoint files; not {@code null}
+	 * 
+	 * @param interval
+	 * the minimum time between two saves of the state of
+	 * a computation, in milliseconds
+	 */
+	public CheckpointDirectory(final Path directory, final long interval) {
+		pDirectory = directory;
+		pInterval = interval;
+	}
+	
+	/**
+	 * Returns a new {@link Checkpoint} for a computation
+	 * in one direction of a comparison.
+	 * 
+	 * @param subSequenceFile
+	 * (a {@link Path} locating) the file whose tokens are
+	 * to become a sub-sequence of the tokens of the other file;
+	 * not {@code null}
+	 * 
+	 * @param superSequenceFile
+	 * (a {@link Path} locating) the other file; not {@code null}
+	 * 
+	 * @return
+	 * the checkpoint; not {@code null}
+	 */
+	public Checkpoint get(final Path subSequenceFile, final Path superSequenceFile) {
+		return new Checkpoint(pDirectory.resolve(fileName(subSequenceFile, superSequenceFile)), pInterval);
+	}
+	
+	/**
+	 * Deletes the checkpoint files for both directions
+	 * of a comparison (if they exist).
+	 * 
+	 * @param file1
+	 * (a {@link Path} locating) the first file; not {@code null}
+	 * 
+	 * @param file2
+	 * (a {@link Path} locating) the second file; not {@code null}
+	 */
+	public void delete(final Path file1, final Path file2) {
+		get(file1, file2).delete();
+		get(file2, file1).delete();
+	}
+	
+	private static String fileName(final Path subSequenceFile, final Path superSequenceFile) {
+		final MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (final NoSuchAlgorithmException e) {
+			// every Java platform supports SHA-256
+			throw new IllegalStateException(e);
+		}
+		digest.update(subSequenceFile.normalize().toString().getBytes(StandardCharsets.UTF_8));
+		digest.update((byte) 0);
+		digest.update(superSequenceFile.normalize().toString().getBytes(StandardCharsets.UTF_8));
+		final byte[] hash = digest.digest();
+		final StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 16; i++)
+			sb.append(String.format("%02x", Integer.valueOf(hash[i] & 0xFF)));
+		return sb.append(".checkpoint").toString();
+	}
+	
+}
@@ -5,23 +5,43 @@
  */
 package batchsed;
 
-import java.util.Collections;
-import java.util.HashSet;
-import java.util.Set;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
 
 /**
- * A table with the ID combinations already compared.
+ * A table with the ID combinations already compared
+ * (or scheduled for comparison).
  * Effectively, this class stores unordered pairs of IDs.
+ * <p>
+ * The IDs are the (non-negative) indices of files in the
+ * comparison plan. Every pair is packed into a single {@code long}
+ * (the smaller index in the upper half), and the pairs are stored
+ * in hash tables with open addressing, so that a table with many
+ * millions of pairs needs little memory. The pairs are distributed
+ * over several such hash tables (<i>stripes</i>) with a lock each,
+ * so that threads accessing different stripes do not block
+ * each other.
+ * This class is thread safe.
  */
 public class CombinationTable {
 	
-	private final Set<Combination> pCombinations;
+	private static final int STRIPE_BITS = 6;
+	
+	// marks an empty slot; packed pairs are never negative
+	private static final long EMPTY = -1L;
+	
+	private final Stripe[] pStripes;
 	
 	/**
 	 * Initializes a new empty table.
 	 */
 	public CombinationTable() {
-		pCombinations = Collections.synchronizedSet(new HashSet<>());
+		pStripes = new Stripe[1 << STRIPE_BITS];
+		for (int i = 0; i < pStripes.length; i++)
+			pStripes[i] = new Stripe();
 	}
 	
 	/**
@@ -34,7 +54,30 @@ public class CombinationTable {
 	 * the second ID; not {@code null}
 	 */
 	public void addCombination(final String id1, final String id2) {
-		pCombinations.add(new Combination(id1, id2));
+		addCombination(parseId(id1), parseId(id2));
+	}
+	
+	/**
+	 * Adds an ID combination to this table if it is not
+	 * contained yet. As this is an atomic operation, it can be
+	 * used for claiming a comparison before performing it,
+	 * so that it is not performed twice (for example, if the
+	 * comparison plan contains both orders of two IDs).
+	 * 
+	 * @param index1
+	 * the first ID; not negative
+	 * 
+	 * @param index2
+	 * the second ID; not negative
+	 * 
+	 * @return
+	 * {@code true} if the combination has been added;
+	 * {@code false} if the table already contained it
+	 */
+	public boolean addCombination(final int index1, final int index2) {
+		final long key = pack(index1, index2);
+		final long hash = hash(key);
+		return stripe(hash).add(key, (int) hash);
 	}
 	
 	/**
@@ -52,33 +95,157 @@ public class CombinationTable {
 	 * {@code false} otherwise
 	 */
 	public boolean containsCombination(final String id1, final String id2) {
-		return pCombinations.contains(new Combination(id1, id2));
+		return containsCombination(parseId(id1), parseId(id2));
+	}
+	
+	/**
+	 * Checks whether this table contains a given combination
+	 * of IDs.
+	 * 
+	 * @param index1
+	 * the first ID; not negative
+	 * 
+	 * @param index2
+	 * the second ID; not negative
+	 * 
+	 * @return
+	 * {@code true} if the table contains the combination;
+	 * {@code false} otherwise
+	 */
+	public boolean containsCombination(final int index1, final int index2) {
+		final long key = pack(index1, index2);
+		final long hash = hash(key);
+		return stripe(hash).contains(key, (int) hash);
+	}
+	
+	/**
+	 * Adds the ID combinations in the first two columns of an
+	 * output file (as written by {@link ToAppendableComparisonOutput})
+	 * to this table. The file is parsed as a stream of bytes
+	 * without decoding it to strings.
+	 * 
+	 * @param outputFile
+	 * (a {@link Path} locating) the output file; not {@code null}
+	 * 
+	 * @throws IOException
+	 * if an I/O error occurs
+	 * 
+	 * @throws IllegalArgumentException
+	 * if a line of the file does not start with two IDs
+	 * followed by a tabulator character each
+	 */
+	public void load(final Path outputFile) throws IOException {
+		try (final InputStream input = Files.newInputStream(outputFile)) {
+			final byte[] buffer = new byte[1 << 16];
+			long lineNumber = 1L;
+			// 0 and 1: in the first or second ID; 2: after the second ID
+			int column = 0;
+			int digits = 0;
+			long index1 = 0L;
+			long index = 0L;
+			while (true) {
+				final int length = input.read(buffer);
+				if (length < 0)
+					break;
+				for (int i = 0; i < length; i++) {
+					final byte b = buffer[i];
+					if (b == '\n') {
+						if (column < 2)
+							throw new IllegalArgumentException("line has wrong format: line " + lineNumber + " of " + outputFile);
+						lineNumber++;
+						column = 0;
+						digits = 0;
+						index = 0L;
+					} else if (column < 2) {
+						if ((b >= '0') && (b <= '9') && (index <= Integer.MAX_VALUE)) {
+							index = 10L * index + (b - '0');
+							digits++;
+						} else if ((b == '\t') && (digits > 0) && (index <= Integer.MAX_VALUE)) {
+							if (column == 0)
+								index1 = index;
+							else
+								addCombination((int) index1, (int) index);
+							column++;
+							digits = 0;
+							index = 0L;
+						} else {
+							throw new IllegalArgumentException("line has wrong format: line " + lineNumber + " of " + outputFile);
+						}
+					}
+				}
+			}
+			// last line without line break
+			if ((column < 2) && ((column > 0) || (digits > 0)))
+				throw new IllegalArgumentException("line has wrong format: line " + lineNumber + " of " + outputFile);
+		}
 	}
 	
-	private static class Combination {
+	private static int parseId(final String id) {
+		final int index = Integer.parseInt(id);
+		if (index < 0)
+			throw new IllegalArgumentException("negative ID: " + id);
+		return index;
+	}
+	
+	private static long pack(final int index1, final int index2) {
+		if (index1 <= index2)
+			return ((long) index1 << 32) | index2;
+		return ((long) index2 << 32) | index1;
+	}
+	
+	private static long hash(final long key) {
+		final long hash = key * 0x9E3779B97F4A7C15L;
+		return hash ^ (hash >>> 29);
+	}
+	
+	private Stripe stripe(final long hash) {
+		return pStripes[(int) (hash >>> (64 - STRIPE_BITS))];
+	}
+	
+	private static class Stripe {
 		
-		private final String pId1;
-		private final String pId2;
+		private long[] pKeys;
+		private int pSize;
+		
+		public Stripe() {
+			pKeys = new long[16];
+			Arrays.fill(pKeys, EMPTY);
+			pSize = 0;
+		}
 		
-		public Combination(final String id1, final String id2) {
-			pId1 = id1;
-			pId2 = id2;
+		public synchronized boolean add(final long key, final int hash) {
+			final int slot = find(pKeys, key, hash);
+			if (pKeys[slot] == key)
+				return false;
+			pKeys[slot] = key;
+			pSize++;
+			// load factor at most 1/2
+			if (2 * pSize > pKeys.length)
+				grow();
+			return true;
 		}
 		
-		@Override
-		public int hashCode() {
-			return pId1.hashCode() ^ pId2.hashCode();
+		public synchronized boolean contains(final long key, final int hash) {
+			return pKeys[find(pKeys, key, hash)] == key;
 		}
 		
-		@Override
-		public boolean equals(final Object other) {
-			if (other instanceof Combination)
-				return equals((Combination) other);
-			return super.equals(other);
+		private void grow() {
+			final long[] keys = new long[2 * pKeys.length];
+			Arrays.fill(keys, EMPTY);
+			for (final long key : pKeys) {
+				if (key != EMPTY)
+					keys[find(keys, key, (int) hash(key))] = key;
+			}
+			pKeys = keys;
 		}
 		
-		public boolean equals(final Combination other) {
-			return (pId1.equals(other.pId1) && pId2.equals(other.pId2)) || (pId1.equals(other.pId2) && pId2.equals(other.pId1));
+		// finds the slot of the key or the empty slot for it
+		private static int find(final long[] keys, final long key, final int hash) {
+			final int mask = keys.length - 1;
+			int slot = hash & mask;
+			while ((keys[slot] != key) && (keys[slot] != EMPTY))
+				slot = (slot + 1) & mask;
+			return slot;
 		}
 		
 	}
@@ -0,0 +1,289 @@
+/* This Source Code Form is subject to the terms of the hermA Licence.
+ * If a copy of the licence was not distributed with this file, You have
+ * received this Source Code Form in a manner that does not comply with
+ * the terms of the licence.
+ */
+package batchsed;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Collects statistics about the progress and throughput of
+ * the comparisons: the numbers and estimated costs of planned
+ * and done comparisons (recorded by a
+ * {@link FullTextComparisonOrganizer}) and the numbers of
+ * dynamic programming table cells computed and the times spent
+ * on loading and computing (recorded by a
+ * {@link SimpleFullTextComparer}).
+ * The statistics can be monitored via JMX
+ * (see {@link #register()}) or written as lines of JSON
+ * (see {@link #toJson()}).
+ * This class is thread safe.
+ */
+public class ComparisonStatistics implements ComparisonStatisticsMXBean {
+	
+	/**
+	 * The name under which {@link #register()} registers
+	 * the statistics with the platform MBean server.
+	 */
+	public static final String OBJECT_NAME = "batchsed:type=ComparisonStatistics";
+	
+	private final long pStartTime;
+	
+	private final LongAdder pPairsPlanned;
+	private final LongAdder pPairsDone;
+	private final DoubleAdder pCostPlanned;
+	private final DoubleAdder pCostDone;
+	private final LongAdder pLoadTime;
+	private final ConcurrentHashMap<String, ThreadStatistics> pThreads;
+	
+	/**
+	 * Initializes new statistics with all numbers 0.
+	 */
+	public ComparisonStatistics() {
+		pStartTime = System.nanoTime();
+		
+		pPairsPlanned = new LongAdder();
+		pPairsDone = new LongAdder();
+		pCostPlanned = new DoubleAdder();
+		pCostDone = new DoubleAdder();
+		pLoadTime = new LongAdder();
+		pThreads = new ConcurrentHashMap<>();
+	}
+	
+	/**
+	 * Registers these statistics with the platform MBean server
+	 * under the name {@link #OBJECT_NAME}.
+	 * 
+	 * @throws JMException
+	 * if the registration fails (for example, because
+	 * other statistics have already been registered)
+	 */
+	public void register() throws JMException {
+		ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+	}
+	
+	/**
+	 * Records planned comparisons. Comparisons found to have
+	 * been performed before can be removed from the planned
+	 * comparisons with negative numbers.
+	 * 
+	 * @param pairs
+	 * the number of comparisons
+	 * 
+	 * @param cost
+	 * the estimated cost of the comparisons
+	 */
+	public void addPlanned(final long pairs, final double cost) {
+		pPairsPlanned.add(pairs);
+		pCostPlanned.add(cost);
+	}
+	
+	/**
+	 * Records comparisons done.
+	 * 
+	 * @param pairs
+	 * the number of comparisons
+	 * 
+	 * @param cost
+	 * the estimated cost of the comparisons
+	 */
+	public void addDone(final long pairs, final double cost) {
+		pPairsDone.add(pairs);
+		pCostDone.add(cost);
+	}
+	
+	/**
+	 * Records the time the current thread has spent
+	 * on loading token sequences.
+	 * 
+	 * @param nanos
+	 * the time in nanoseconds
+	 */
+	public void addLoad(final long nanos) {
+		pLoadTime.add(nanos);
+	}
+	
+	/**
+	 * Records a substring edit distance computed by
+	 * the current thread.
+	 * 
+	 * @param cells
+	 * the number of table cells (<i>m</i> &middot; <i>n</i>)
+	 * 
+	 * @param nanos
+	 * the computation time in nanoseconds
+	 */
+	public void addComputation(final long cells, final long nanos) {
+		final ThreadStatistics thread = pThreads.computeIfAbsent(Thread.currentThread().getName(), name -> new ThreadStatistics());
+		thread.pCells.add(cells);
+		thread.pTime.add(nanos);
+	}
+	
+	@Override
+	public long getPairsPlanned() {
+		return pPairsPlanned.sum();
+	}
+	
+	@Override
+	public long getPairsDone() {
+		return pPairsDone.sum();
+	}
+	
+	@Override
+	public long getPairsRemaining() {
+		return Math.max(0L, getPairsPlanned() - getPairsDone());
+	}
+	
+	@Override
+	public double getCostPlanned() {
+		return pCostPlanned.sum();
+	}
+	
+	@Override
+	public double getCostDone() {
+		return pCostDone.sum();
+	}
+	
+	@Override
+	public long getCellsComputed() {
+		long cells = 0L;
+		for (final ThreadStatistics thread : pThreads.values())
+			cells += thread.pCells.sum();
+		return cells;
+	}
+	
+	@Override
+	public double getCellsPerSecond() {
+		double cellsPerSecond = 0.0;
+		for (final double threadCellsPerSecond : getThreadCellsPerSecond().values())
+			cellsPerSecond += threadCellsPerSecond;
+		return cellsPerSecond;
+	}
+	
+	@Override
+	public Map<String, Double> getThreadCellsPerSecond() {
+		final TreeMap<String, Double> result = new TreeMap<>();
+		for (final Map.Entry<String, ThreadStatistics> entry : pThreads.entrySet()) {
+			final ThreadStatistics thread = entry.getValue();
+			final long time = thread.pTime.sum();
+			result.put(entry.getKey(), Double.valueOf((time == 0L) ? 0.0 : thread.pCells.sum() / seconds(time)));
+		}
+		return result;
+	}
+	
+	@Override
+	public double getLoadSeconds() {
+		return seconds(pLoadTime.sum());
+	}
+	
+	@Override
+	public double getComputeSeconds() {
+		long time = 0L;
+		for (final ThreadStatistics thread : pThreads.values())
+			time += thread.pTime.sum();
+		return seconds(time);
+	}
+	
+	@Override
+	public double getElapsedSeconds() {
+		return seconds(System.nanoTime() - pStartTime);
+	}
+	
+	@Override
+	public double getEstimatedSecondsRemaining() {
+		final double costDone = getCostDone();
+		if (costDone <= 0.0)
+			return -1.0;
+		return getElapsedSeconds() * Math.max(0.0, getCostPlanned() - costDone) / costDone;
+	}
+	
+	@Override
+	public long getHeapUsed() {
+		final Runtime runtime = Runtime.getRuntime();
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+	
+	@Override
+	public long getHeapMax() {
+		return Runtime.getRuntime().maxMemory();
+	}
+	
+	/**
+	 * Returns the current statistics as a single line of JSON
+	 * (an object with the property names of
+	 * {@link ComparisonStatisticsMXBean}, starting with
+	 * a lower-case letter, and a time stamp).
+	 * 
+	 * @return
+	 * the current statistics as JSON; not {@code null}
+	 */
+	public String toJson() {
+		final StringBuilder sb = new StringBuilder();
+		sb.append("{\"time\":").append(System.currentTimeMillis());
+		sb.append(",\"elapsedSeconds\":").append(getElapsedSeconds());
+		sb.append(",\"pairsPlanned\":").append(getPairsPlanned());
+		sb.append(",\"pairsDone\":").append(getPairsDone());
+		sb.append(",\"pairsRemaining\":").append(getPairsRemaining());
+		sb.append(",\"costPlanned\":").append(getCostPlanned());
+		sb.append(",\"costDone\":").append(getCostDone());
+		sb.append(",\"estimatedSecondsRemaining\":").append(getEstimatedSecondsRemaining());
+		sb.append(",\"cellsComputed\":").append(getCellsComputed());
+		sb.append(",\"cellsPerSecond\":").append(getCellsPerSecond());
+		sb.append(",\"threadCellsPerSecond\":{");
+		boolean first = true;
+		for (final Map.Entry<String, Double> entry : getThreadCellsPerSecond().entrySet()) {
+			if (!first)
+				sb.append(',');
+			first = false;
+			appendString(sb, entry.getKey());
+			sb.append(':').append(entry.getValue().doubleValue());
+		}
+		sb.append('}');
+		sb.append(",\"loadSeconds\":").append(getLoadSeconds());
+		sb.append(",\"computeSeconds\":").append(getComputeSeconds());
+		sb.append(",\"heapUsed\":").append(getHeapUsed());
+		sb.append(",\"heapMax\":").append(getHeapMax());
+		return sb.append('}').toString();
+	}
+	
+	private static double seconds(final long nanos) {
+		return nanos / (double) TimeUnit.SECONDS.toNanos(1L);
+	}
+	
+	private static void appendString(final StringBuilder sb, final String s) {
+		sb.append('"');
+		for (int i = 0; i < s.length(); i++) {
+			final char c = s.charAt(i);
+			if ((c == '"') || (c == '\\'))
+				sb.append('\\').append(c);
+			else if (c < ' ')
+				sb.append(String.format("\\u%04x", Integer.valueOf(c)));
+			else
+				sb.append(c);
+		}
+		sb.append('"');
+	}
+	
+	private static class ThreadStatistics {
+		
+		private final LongAdder pCells;
+		private final LongAdder pTime;
+		
+		public ThreadStatistics() {
+			pCells = new LongAdder();
+			pTime = new LongAdder();
+		}
+		
+	}
+	
+}
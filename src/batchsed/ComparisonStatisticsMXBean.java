@@ -0,0 +1,143 @@
+/* This Source Code Form is subject to the terms of the hermA Licence.
+ * If a copy of the licence was not distributed with this file, You have
+ * received this Source Code Form in a manner that does not comply with
+ * the terms of the licence.
+ */
+package batchsed;
+
+import java.util.Map;
+
+/**
+ * Management interface of {@link ComparisonStatistics},
+ * for monitoring a running program with JMX clients
+ * (such as JConsole).
+ */
+public interface ComparisonStatisticsMXBean {
+	
+	/**
+	 * Returns the number of comparisons (pairs of files) planned,
+	 * excluding comparisons performed in earlier runs.
+	 * 
+	 * @return
+	 * the number of comparisons planned
+	 */
+	long getPairsPlanned();
+	
+	/**
+	 * Returns the number of comparisons whose results
+	 * have been output.
+	 * 
+	 * @return
+	 * the number of comparisons done
+	 */
+	long getPairsDone();
+	
+	/**
+	 * Returns the number of planned comparisons not yet done.
+	 * 
+	 * @return
+	 * the number of comparisons remaining
+	 */
+	long getPairsRemaining();
+	
+	/**
+	 * Returns the estimated cost of all planned comparisons
+	 * (see {@link FullTextComparisonOrganizer}).
+	 * 
+	 * @return
+	 * the estimated cost of the planned comparisons
+	 */
+	double getCostPlanned();
+	
+	/**
+	 * Returns the estimated cost of the comparisons done.
+	 * 
+	 * @return
+	 * the estimated cost of the comparisons done
+	 */
+	double getCostDone();
+	
+	/**
+	 * Returns the number of dynamic programming table cells
+	 * (<i>m</i> &middot; <i>n</i> per direction) of all substring
+	 * edit distances computed, including cells skipped
+	 * due to a maximum distance.
+	 * 
+	 * @return
+	 * the number of table cells
+	 */
+	long getCellsComputed();
+	
+	/**
+	 * Returns the number of table cells computed per second
+	 * of computation time, summed over all threads.
+	 * 
+	 * @return
+	 * the number of table cells computed per second
+	 */
+	double getCellsPerSecond();
+	
+	/**
+	 * Returns the number of table cells computed per second
+	 * of computation time for every thread.
+	 * 
+	 * @return
+	 * a map from thread names to numbers of table cells
+	 * per second; not {@code null}
+	 */
+	Map<String, Double> getThreadCellsPerSecond();
+	
+	/**
+	 * Returns the time spent by all threads on loading
+	 * token sequences.
+	 * 
+	 * @return
+	 * the time in seconds
+	 */
+	double getLoadSeconds();
+	
+	/**
+	 * Returns the time spent by all threads on computing
+	 * substring edit distances.
+	 * 
+	 * @return
+	 * the time in seconds
+	 */
+	double getComputeSeconds();
+	
+	/**
+	 * Returns the time since the statistics were created.
+	 * 
+	 * @return
+	 * the time in seconds
+	 */
+	double getElapsedSeconds();
+	
+	/**
+	 * Estimates the time until all planned comparisons are done,
+	 * from the estimated costs of the comparisons done and
+	 * remaining.
+	 * 
+	 * @return
+	 * the estimated time in seconds; negative if no estimate
+	 * is possible yet
+	 */
+	double getEstimatedSecondsRemaining();
+	
+	/**
+	 * Returns the number of bytes currently used on the heap.
+	 * 
+	 * @return
+	 * the number of bytes used on the heap
+	 */
+	long getHeapUsed();
+	
+	/**
+	 * Returns the maximum number of bytes the heap can grow to.
+	 * 
+	 * @return
+	 * the maximum heap size in bytes
+	 */
+	long getHeapMax();
+	
+}
@@ -0,0 +1,35 @@
+/* This Source Code Form is subject to the terms of the hermA Licence.
+ * If a copy of the licence was not distributed with this file, You have
+ * received this Source Code Form in a manner that does not comply with
+ * the terms of the licence.
+ */
+package batchsed;
+
+import java.nio.file.Path;
+
+/**
+ * A {@link FullTextComparer} that can also compute the two directions
+ * of a comparison independently of each other, for example
+ * in different threads.
+ */
+public interface DirectionalFullTextComparer extends FullTextComparer {
+	
+	/**
+	 * Compares two full text files in one direction,
+	 * determining how far the first full text is from being
+	 * a sub-sequence of the second full text.
+	 * 
+	 * @param subSequenceFile
+	 * (a {@link Path} locating) the file with the full text
+	 * to become a sub-sequence of the other; not {@code null}
+	 * 
+	 * @param superSequenceFile
+	 * (a {@link Path} locating) the other file; not {@code null}
+	 * 
+	 * @return
+	 * a {@link SubstringComparison} with the comparison result;
+	 * not {@code null}
+	 */
+	SubstringComparison compareDirection(Path subSequenceFile, Path superSequenceFile);
+	
+}
@@ -0,0 +1,282 @@
+/* This Source Code Form is subject to the terms of the hermA Licence.
+ * If a copy of the licence was not distributed with this file, You have
+ * received this Source Code Form in a manner that does not comply with
+ * the terms of the licence.
+ */
+package batchsed;
+
+import java.io.Closeable;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * {@link ComparisonOutput} implementation that appends
+ * {@link FullTextComparison} objects to a file in the format
+ * of {@link ToAppendableComparisonOutput} (or, in subclasses,
+ * another format), such that results survive a termination
+ * of the program.
+ * <p>
+ * Results are passed to a dedicated writer thread through a
+ * lock-free queue, so that the calling threads do not wait for
+ * the disk. The writer thread writes the queued results in
+ * batches and forces them to the storage device when a given
+ * number of results has been queued or a given time has passed
+ * since the previous batch, whatever happens first.
+ * A result is thus only lost in case of a crash if it has been
+ * output less than that time before.
+ * <p>
+ * A line left incomplete by an earlier termination of the
+ * program while writing is removed from the file when an
+ * instance of this class is created. As the combination of
+ * such a line must not be considered done, {@link #repair(Path)}
+ * should be called before loading the file into a
+ * {@link CombinationTable}.
+ * <p>
+ * {@link #close()} must be called after the last result
+ * has been output.
+ */
+public class DurableFileComparisonOutput implements ComparisonOutput, Closeable {
+	
+	private static final int BUFFER_SIZE = 1 << 16;
+	
+	private final FileChannel pChannel;
+	private final long pSyncIntervalNanos;
+	private final int pSyncCount;
+	
+	private final ConcurrentLinkedQueue<byte[]> pQueue;
+	private final AtomicInteger pQueued;
+	private final Thread pWriterThread;
+	
+	private volatile boolean pClosing;
+	private volatile IOException pException;
+	
+	/**
+	 * Initializes a new instance of this class, opening a file
+	 * for appending (creating it if it does not yet exist)
+	 * and starting the writer thread.
+	 * 
+	 * @param file
+	 * (a {@link Path} locating) the output file; not {@code null}
+	 * 
+	 * @param syncInterval
+	 * the maximum time (in milliseconds) between outputting a result
+	 * and forcing it to the storage device
+	 * 
+	 * @param syncCount
+	 * the number of queued results at which they are written
+	 * and forced to the storage device before the time
+	 * interval has passed
+	 * 
+	 * @throws IOException
+	 * if an I/O error occurs
+	 */
+	public DurableFileComparisonOutput(final Path file, final long syncInterval, final int syncCount) throws IOException {
+		this(openRepaired(file), syncInterval, syncCount);
+	}
+	
+	/**
+	 * Initializes a new instance of this class for a file
+	 * format other than the one of {@link ToAppendableComparisonOutput}
+	 * (as determined by {@link #encode(String, String, FullTextComparison)}),
+	 * starting the writer thread.
+	 * 
+	 * @param channel
+	 * a {@link FileChannel} to append the data to, which
+	 * is closed by {@link #close()}; not {@code null}
+	 * 
+	 * @param syncInterval
+	 * the maximum time (in milliseconds) between outputting a result
+	 * and forcing it to the storage device
+	 * 
+	 * @param syncCount
+	 * the number of queued results at which they are written
+	 * and forced to the storage device before the time
+	 * interval has passed
+	 */
+	protected DurableFileComparisonOutput(final FileChannel channel, final long syncInterval, final int syncCount) {
+		pChannel = channel;
+		pSyncIntervalNanos = TimeUnit.MILLISECONDS.toNanos(syncInterval);
+		pSyncCount = Math.max(1, syncCount);
+		
+		pQueue = new ConcurrentLinkedQueue<>();
+		pQueued = new AtomicInteger();
+		pWriterThread = new Thread(this::writeLoop, "output-writer");
+		pWriterThread.setDaemon(true);
+		
+		pClosing = false;
+		pException = null;
+		
+		pWriterThread.start();
+	}
+	
+	/**
+	 * Removes an incomplete last line (without line break)
+	 * from an output file. Nothing happens if the file does
+	 * not exist or ends with a line break.
+	 * 
+	 * @param file
+	 * (a {@link Path} locating) the output file; not {@code null}
+	 * 
+	 * @return
+	 * {@code true} if an incomplete line has been removed;
+	 * {@code false} otherwise
+	 * 
+	 * @throws IOException
+	 * if an I/O error occurs
+	 */
+	public static boolean repair(final Path file) throws IOException {
+		try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			final long size = channel.size();
+			final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+			long end = size;
+			// searching backwards for the last line break
+			while (end > 0L) {
+				final int length = (int) Math.min(buffer.capacity(), end);
+				buffer.clear();
+				buffer.limit(length);
+				while (buffer.hasRemaining())
+					if (channel.read(buffer, end - length + buffer.position()) < 0)
+						throw new IOException("unexpected end of file: " + file);
+				int i = length;
+				while ((i > 0) && (buffer.get(i - 1) != '\n'))
+					i--;
+				if (i > 0) {
+					end -= length - i;
+					break;
+				}
+				end -= length;
+			}
+			if (end == size)
+				return false;
+			channel.truncate(end);
+			channel.force(true);
+			return true;
+		} catch (final FileNotFoundException | NoSuchFileException e) {
+			return false;
+		}
+	}
+	
+	@Override
+	public void output(final String id1, final String id2, final FullTextComparison comparisonResult) {
+		final IOException exception = pException;
+		if (exception != null)
+			throw new UncheckedIOException(exception);
+		if (pClosing)
+			throw new IllegalStateException("output closed");
+		pQueue.add(encode(id1, id2, comparisonResult));
+		if (pQueued.incrementAndGet() == pSyncCount)
+			LockSupport.unpark(pWriterThread);
+	}
+	
+	/**
+	 * Encodes a result as it is appended to the file;
+	 * by default, as a UTF-8 encoded line in the format of
+	 * {@link ToAppendableComparisonOutput}. This method
+	 * is called by the threads outputting results.
+	 * 
+	 * @param id1
+	 * the ID of the first full text; not {@code null}
+	 * 
+	 * @param id2
+	 * the ID of the second full text; not {@code null}
+	 * 
+	 * @param comparisonResult
+	 * the result of the comparison between the two full texts;
+	 * not {@code null}
+	 * 
+	 * @return
+	 * the bytes to append; not {@code null}
+	 */
+	protected byte[] encode(final String id1, final String id2, final FullTextComparison comparisonResult) {
+		return ToAppendableComparisonOutput.line(id1, id2, comparisonResult).getBytes(StandardCharsets.UTF_8);
+	}
+	
+	/**
+	 * Writes all queued results, forces them to the storage
+	 * device, stops the writer thread and closes the file.
+	 * 
+	 * @throws IOException
+	 * if an I/O error has occurred while writing
+	 */
+	@Override
+	public void close() throws IOException {
+		pClosing = true;
+		LockSupport.unpark(pWriterThread);
+		boolean interrupted = false;
+		while (pWriterThread.isAlive()) {
+			try {
+				pWriterThread.join();
+			} catch (final InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted)
+			Thread.currentThread().interrupt();
+		pChannel.close();
+		final IOException exception = pException;
+		if (exception != null)
+			throw exception;
+	}
+	
+	private static FileChannel openRepaired(final Path file) throws IOException {
+		repair(file);
+		return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+	}
+	
+	private void writeLoop() {
+		final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		try {
+			while (true) {
+				// read before draining, so that no result queued
+				// before closing is left in the queue
+				final boolean closing = pClosing;
+				int count = 0;
+				while (true) {
+					final byte[] bytes = pQueue.poll();
+					if (bytes == null)
+						break;
+					count++;
+					if (bytes.length > buffer.remaining())
+						write(buffer);
+					if (bytes.length > buffer.capacity()) {
+						final ByteBuffer wrapped = ByteBuffer.wrap(bytes);
+						while (wrapped.hasRemaining())
+							pChannel.write(wrapped);
+					} else {
+						buffer.put(bytes);
+					}
+				}
+				if (count > 0) {
+					write(buffer);
+					pChannel.force(false);
+					pQueued.addAndGet(-count);
+				}
+				if (closing)
+					return;
+				LockSupport.parkNanos(this, pSyncIntervalNanos);
+			}
+		} catch (final IOException e) {
+			pException = e;
+		}
+	}
+	
+	// writes the contents of a buffer and clears it
+	private void write(final ByteBuffer buffer) throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining())
+			pChannel.write(buffer);
+		buffer.clear();
+	}
+	
+}
@@ -27,4 +27,20 @@ public interface FullTextComparer {
 	 */
 	FullTextComparison compare(Path file1, Path file2);
 	
+	/**
+	 * Notifies this comparer that the result of the comparison
+	 * of two full text files has been output, so that any state
+	 * kept for resuming the comparison can be discarded.
+	 * The default implementation does nothing.
+	 * 
+	 * @param file1
+	 * (a {@link Path} locating) the first file; not {@code null}
+	 * 
+	 * @param file2
+	 * (a {@link Path} locating) the second file; not {@code null}
+	 */
+	default void release(final Path file1, final Path file2) {
+		// nothing to discard
+	}
+	
 }
@@ -7,15 +7,25 @@ package batchsed;
 
 /**
  * The result of a comparison between two full texts.
+ * If the comparison has been performed with a maximum distance,
+ * a substring edit distance exceeding it may only be known
+ * to exceed a certain value
+ * (see {@link #isEditDistance1in2Exceeded()} and
+ * {@link #isEditDistance2in1Exceeded()}).
  */
 public class FullTextComparison {
 	
 	private final long pEditDistance1in2;
 	private final long pEditDistance2in1;
+	private final boolean pEditDistance1in2Exceeded;
+	private final boolean pEditDistance2in1Exceeded;
 	
 	private final long pSize1;
 	private final long pSize2;
 	
+	private final SubstringAlignment pAlignment1in2;
+	private final SubstringAlignment pAlignment2in1;
+	
 	/**
 	 * Initializes a new instance of this class.
 	 * 
@@ -36,17 +46,115 @@ public class FullTextComparison {
 	 * (number of items in the sequence)
 	 */
 	public FullTextComparison(final long editDistance1in2, final long editDistance2in1, final long size1, final long size2) {
+		this(editDistance1in2, false, editDistance2in1, false, size1, size2);
+	}
+	
+	/**
+	 * Initializes a new instance of this class
+	 * for a comparison that may have exceeded
+	 * a maximum distance.
+	 * 
+	 * @param editDistance1in2
+	 * the substring edit distance for turning the first full text
+	 * into a sub-sequence of the second full text,
+	 * or, if {@code editDistance1in2Exceeded} is {@code true},
+	 * a value the substring edit distance is known to exceed
+	 * 
+	 * @param editDistance1in2Exceeded
+	 * whether the actual substring edit distance for turning
+	 * the first full text into a sub-sequence of the second
+	 * full text is higher than {@code editDistance1in2}
+	 * 
+	 * @param editDistance2in1
+	 * the substring edit distance for turning the second full text
+	 * into a sub-sequence of the first full text,
+	 * or, if {@code editDistance2in1Exceeded} is {@code true},
+	 * a value the substring edit distance is known to exceed
+	 * 
+	 * @param editDistance2in1Exceeded
+	 * whether the actual substring edit distance for turning
+	 * the second full text into a sub-sequence of the first
+	 * full text is higher than {@code editDistance2in1}
+	 * 
+	 * @param size1
+	 * the size of the first full text
+	 * (number of items in the sequence)
+	 * 
+	 * @param size2
+	 * the size of the second full text
+	 * (number of items in the sequence)
+	 */
+	public FullTextComparison(final long editDistance1in2, final boolean editDistance1in2Exceeded, final long editDistance2in1, final boolean editDistance2in1Exceeded, final long size1, final long size2) {
 		pEditDistance1in2 = editDistance1in2;
 		pEditDistance2in1 = editDistance2in1;
+		pEditDistance1in2Exceeded = editDistance1in2Exceeded;
+		pEditDistance2in1Exceeded = editDistance2in1Exceeded;
 		
 		pSize1 = size1;
 		pSize2 = size2;
+		
+		pAlignment1in2 = null;
+		pAlignment2in1 = null;
+	}
+	
+	/**
+	 * Initializes a new instance of this class
+	 * from the results of both directions of the comparison.
+	 * 
+	 * @param comparison1in2
+	 * the result for turning the first full text
+	 * into a sub-sequence of the second full text;
+	 * not {@code null}
+	 * 
+	 * @param comparison2in1
+	 * the result for turning the second full text
+	 * into a sub-sequence of the first full text;
+	 * not {@code null}
+	 */
+	public FullTextComparison(final SubstringComparison comparison1in2, final SubstringComparison comparison2in1) {
+		pEditDistance1in2 = comparison1in2.getEditDistance();
+		pEditDistance2in1 = comparison2in1.getEditDistance();
+		pEditDistance1in2Exceeded = comparison1in2.isEditDistanceExceeded();
+		pEditDistance2in1Exceeded = comparison2in1.isEditDistanceExceeded();
+		
+		pSize1 = comparison1in2.getSubSequenceSize();
+		pSize2 = comparison2in1.getSubSequenceSize();
+		
+		pAlignment1in2 = comparison1in2.getAlignment();
+		pAlignment2in1 = comparison2in1.getAlignment();
+	}
+	
+	private FullTextComparison(final FullTextComparison comparison2in1) {
+		pEditDistance1in2 = comparison2in1.pEditDistance2in1;
+		pEditDistance2in1 = comparison2in1.pEditDistance1in2;
+		pEditDistance1in2Exceeded = comparison2in1.pEditDistance2in1Exceeded;
+		pEditDistance2in1Exceeded = comparison2in1.pEditDistance1in2Exceeded;
+		
+		pSize1 = comparison2in1.pSize2;
+		pSize2 = comparison2in1.pSize1;
+		
+		pAlignment1in2 = comparison2in1.pAlignment2in1;
+		pAlignment2in1 = comparison2in1.pAlignment1in2;
+	}
+	
+	/**
+	 * Returns the result of this comparison with the roles
+	 * of the two full texts swapped.
+	 * 
+	 * @return
+	 * a new {@link FullTextComparison} with the second full text
+	 * of this comparison as the first full text and vice versa;
+	 * not {@code null}
+	 */
+	public FullTextComparison swap() {
+		return new FullTextComparison(this);
 	}
 	
 	/**
 	 * Returns the substring edit distance
 	 * for turning the first full text
-	 * into a sub-sequence of the second full text.
+	 * into a sub-sequence of the second full text
+	 * (or a value it exceeds, see {@link #isEditDistance1in2Exceeded()}).
 	 * 
 	 * @return
 	 * the substring edit distance for turning the first full text
@@ -56,10 +164,28 @@ public class FullTextComparison {
 		return pEditDistance1in2;
 	}
 	
+	/**
+	 * Returns whether the actual substring edit distance
+	 * for turning the first full text
+	 * into a sub-sequence of the second full text
+	 * is higher than the value returned by
+	 * {@link #getEditDistance1in2()}
+	 * (because the comparison was stopped at a maximum distance).
+	 * 
+	 * @return
+	 * {@code true} if the actual substring edit distance
+	 * is higher than {@link #getEditDistance1in2()};
+	 * {@code false} if it is equal
+	 */
+	public boolean isEditDistance1in2Exceeded() {
+		return pEditDistance1in2Exceeded;
+	}
+	
 	/**
 	 * Returns the substring edit distance
 	 * for turning the second full text
-	 * into a sub-sequence of the first full text.
+	 * into a sub-sequence of the first full text
+	 * (or a value it exceeds, see {@link #isEditDistance2in1Exceeded()}).
 	 * 
 	 * @return
 	 * the substring edit distance for turning the second full text
@@ -69,6 +195,23 @@ public class FullTextComparison {
 		return pEditDistance2in1;
 	}
 	
+	/**
+	 * Returns whether the actual substring edit distance
+	 * for turning the second full text
+	 * into a sub-sequence of the first full text
+	 * is higher than the value returned by
+	 * {@link #getEditDistance2in1()}
+	 * (because the comparison was stopped at a maximum distance).
+	 * 
+	 * @return
+	 * {@code true} if the actual substring edit distance
+	 * is higher than {@link #getEditDistance2in1()};
+	 * {@code false} if it is equal
+	 */
+	public boolean isEditDistance2in1Exceeded() {
+		return pEditDistance2in1Exceeded;
+	}
+	
 	/**
 	 * Returns the size of the first full text
 	 * (number of items in the sequence).
@@ -93,4 +236,24 @@ public class FullTextComparison {
 		return pSize2;
 	}
 	
+	/**
+	 * Returns where the first full text lands in the second full text.
+	 * 
+	 * @return
+	 * the alignment; {@code null} if not computed
+	 */
+	public SubstringAlignment getAlignment1in2() {
+		return pAlignment1in2;
+	}
+	
+	/**
+	 * Returns where the second full text lands in the first full text.
+	 * 
+	 * @return
+	 * the alignment; {@code null} if not computed
+	 */
+	public SubstringAlignment getAlignment2in1() {
+		return pAlignment2in1;
+	}
+	
 }
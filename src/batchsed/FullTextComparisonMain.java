@@ -9,7 +9,9 @@ import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.FileSystem;
 import java.nio.file.FileSystems;
@@ -18,28 +20,485 @@ import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
-import java.util.stream.Stream;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+
+import javax.management.JMException;
 
 public class FullTextComparisonMain {
 	
+	private static final String PREPROCESS_COMMAND = "preprocess";
+	private static final String SHARD_COMMAND = "shard";
+	private static final String WORK_COMMAND = "work";
+	private static final String MERGE_COMMAND = "merge";
+	private static final String CONVERT_COMMAND = "convert";
+	private static final String INDEX_COMMAND = "index";
+	private static final String QUERY_COMMAND = "query";
+	
+	private static final String CORPUS_OPTION = "corpus";
+	private static final String MAX_DISTANCE_OPTION = "max-distance";
+	private static final String ANCHORED_OPTION = "anchored";
+	private static final String OCR_COSTS_OPTION = "ocr-costs";
+	private static final String LSH_OPTION = "lsh";
+	private static final String SHINGLE_LENGTH_OPTION = "shingle-length";
+	private static final String CHECKPOINT_DIR_OPTION = "checkpoint-dir";
+	private static final String CHECKPOINT_INTERVAL_OPTION = "checkpoint-interval";
+	private static final String MEMORY_BUDGET_OPTION = "memory-budget";
+	private static final String PREFETCH_THREADS_OPTION = "prefetch-threads";
+	
+	private static final String ALIGNMENT_OUTPUT_OPTION = "alignment-output";
+	private static final String ALIGNMENT_MAX_DISTANCE_OPTION = "alignment-max-distance";
+	private static final String EDIT_SCRIPTS_OPTION = "edit-scripts";
+	private static final String BINARY_OUTPUT_OPTION = "binary-output";
+	private static final String SYNC_INTERVAL_OPTION = "sync-interval";
+	private static final String SYNC_COUNT_OPTION = "sync-count";
+	
+	private static final String STATS_LOG_OPTION = "stats-log";
+	private static final String STATS_INTERVAL_OPTION = "stats-interval";
+	
+	private static final String WORKER_ID_OPTION = "worker-id";
+	
+	// in seconds
+	private static final long DEFAULT_CHECKPOINT_INTERVAL = 600L;
+	private static final long DEFAULT_STATS_INTERVAL = 60L;
+	private static final long DEFAULT_SYNC_INTERVAL = 5L;
+	
+	private static final int DEFAULT_SYNC_COUNT = 100;
+	private static final int DEFAULT_PREFETCH_THREADS = 2;
+	
+	private static final String DEFAULT_ALIGNMENT_MAX_DISTANCE = "10%";
+	
+	// estimated bytes needed during a comparison per token of a file
+	// (the token sequence and the arrays of the computation) and,
+	// for text files, per byte of the file (additionally the lines
+	// while loading the file)
+	private static final long FOOTPRINT_PER_TOKEN = 16L;
+	private static final long FOOTPRINT_PER_FILE_BYTE = 4L;
+	
 	public static void main(final String[] args) {
-		if (args.length != 3) {
+		final ArrayList<String> arguments = new ArrayList<>();
+		final HashMap<String, String> options = new HashMap<>();
+		for (final String arg : args) {
+			if (arg.startsWith("--")) {
+				final int equalsIndex = arg.indexOf('=');
+				if (equalsIndex < 0)
+					options.put(arg.substring(2), "");
+				else
+					options.put(arg.substring(2, equalsIndex), arg.substring(equalsIndex + 1));
+			} else {
+				arguments.add(arg);
+			}
+		}
+		
+		final FileSystem fs = FileSystems.getDefault();
+		
+		if ((arguments.size() == 4) && PREPROCESS_COMMAND.equals(arguments.get(0)) && options.isEmpty()) {
+			preprocess(makePath(fs, arguments.get(1)), makePath(fs, arguments.get(2)), makePath(fs, arguments.get(3)));
+			return;
+		}
+		
+		if ((arguments.size() == 5) && SHARD_COMMAND.equals(arguments.get(0)) && options.keySet().stream().allMatch(CORPUS_OPTION::equals)) {
+			final int shardCount;
+			try {
+				shardCount = Integer.parseInt(arguments.get(4));
+			} catch (final NumberFormatException e) {
+				System.err.println("invalid number of shards: " + arguments.get(4));
+				System.exit(1);
+				return;
+			}
+			final String corpusOption = options.get(CORPUS_OPTION);
+			shard(makePath(fs, arguments.get(1)), makePath(fs, arguments.get(2)), makePath(fs, arguments.get(3)), shardCount, (corpusOption == null) ? null : makePath(fs, corpusOption));
+			return;
+		}
+		
+		if ((arguments.size() == 3) && MERGE_COMMAND.equals(arguments.get(0)) && options.isEmpty()) {
+			merge(makePath(fs, arguments.get(1)), makePath(fs, arguments.get(2)));
+			return;
+		}
+		
+		if ((arguments.size() == 3) && CONVERT_COMMAND.equals(arguments.get(0)) && options.isEmpty()) {
+			convert(makePath(fs, arguments.get(1)), makePath(fs, arguments.get(2)));
+			return;
+		}
+		
+		if ((arguments.size() == 2) && INDEX_COMMAND.equals(arguments.get(0)) && options.isEmpty()) {
+			index(makePath(fs, arguments.get(1)));
+			return;
+		}
+		
+		if ((arguments.size() == 3) && QUERY_COMMAND.equals(arguments.get(0)) && options.isEmpty()) {
+			final MaximumDistance maxDistance;
+			try {
+				maxDistance = MaximumDistance.parse(arguments.get(2));
+			} catch (final IllegalArgumentException e) {
+				System.err.println("invalid maximum distance: " + arguments.get(2));
+				System.exit(1);
+				return;
+			}
+			query(makePath(fs, arguments.get(1)), maxDistance);
+			return;
+		}
+		
+		if ((arguments.size() == 4) && QUERY_COMMAND.equals(arguments.get(0)) && options.isEmpty()) {
+			final int id1;
+			final int id2;
+			try {
+				id1 = Integer.parseInt(arguments.get(2));
+				id2 = Integer.parseInt(arguments.get(3));
+			} catch (final NumberFormatException e) {
+				System.err.println("invalid IDs: " + arguments.get(2) + " " + arguments.get(3));
+				System.exit(1);
+				return;
+			}
+			query(makePath(fs, arguments.get(1)), id1, id2);
+			return;
+		}
+		
+		final boolean work = (arguments.size() == 3) && WORK_COMMAND.equals(arguments.get(0));
+		
+		if ((arguments.size() != 3) || (!work && options.containsKey(WORKER_ID_OPTION)) || (work && (options.containsKey(BINARY_OUTPUT_OPTION) || options.containsKey(LSH_OPTION)))) {
 			System.err.println("expecting three arguments:");
 			System.err.println("comparison plan input file");
 			System.err.println("base path for resolving filenames");
 			System.err.println("output file name");
+			System.err.println("optionally preceded by:");
+			System.err.println("--" + CORPUS_OPTION + "=<corpus file created with " + PREPROCESS_COMMAND + ">");
+			System.err.println("--" + MAX_DISTANCE_OPTION + "=<maximum distance, absolute or in % of the sub-sequence length>");
+			System.err.println("--" + ANCHORED_OPTION + " (compare near-duplicates faster in bands around shared rare token sequences)");
+			System.err.println("--" + OCR_COSTS_OPTION + " (replacing lines by lines differing in a few characters costs a fraction of a token)");
+			System.err.println("--" + LSH_OPTION + "=<bands>x<rows> (also compare the pairs of similar files found with MinHash sketches)");
+			System.err.println("--" + SHINGLE_LENGTH_OPTION + "=<tokens per shingle for the sketches, default " + MinHashCandidates.DEFAULT_SHINGLE_LENGTH + ">");
+			System.err.println("--" + CHECKPOINT_DIR_OPTION + "=<directory for saving the state of long computations>");
+			System.err.println("--" + CHECKPOINT_INTERVAL_OPTION + "=<seconds between saves, default " + DEFAULT_CHECKPOINT_INTERVAL + ">");
+			System.err.println("--" + MEMORY_BUDGET_OPTION + "=<megabytes for the comparisons in progress, default half of the maximum heap size>");
+			System.err.println("--" + PREFETCH_THREADS_OPTION + "=<threads loading files ahead of the comparisons, 0 for none, default " + DEFAULT_PREFETCH_THREADS + ">");
+			System.err.println("--" + ALIGNMENT_OUTPUT_OPTION + "=<file to write the locations of similar texts in each other to>");
+			System.err.println("--" + ALIGNMENT_MAX_DISTANCE_OPTION + "=<maximum distance for locating texts, absolute or in %, default " + DEFAULT_ALIGNMENT_MAX_DISTANCE + ">");
+			System.err.println("--" + EDIT_SCRIPTS_OPTION + " (also write the edit operations to the alignment output file)");
+			System.err.println("--" + BINARY_OUTPUT_OPTION + " (write the output file in the format of " + CONVERT_COMMAND + ")");
+			System.err.println("--" + SYNC_INTERVAL_OPTION + "=<maximum seconds between writing results to the disk, default " + DEFAULT_SYNC_INTERVAL + ">");
+			System.err.println("--" + SYNC_COUNT_OPTION + "=<number of results written to the disk earlier, default " + DEFAULT_SYNC_COUNT + ">");
+			System.err.println("--" + STATS_LOG_OPTION + "=<file to append statistics to periodically, as lines of JSON>");
+			System.err.println("--" + STATS_INTERVAL_OPTION + "=<seconds between statistics, default " + DEFAULT_STATS_INTERVAL + ">");
+			System.err.println();
+			System.err.println("or, for creating a corpus file, four arguments:");
+			System.err.println(PREPROCESS_COMMAND);
+			System.err.println("comparison plan input file");
+			System.err.println("base path for resolving filenames");
+			System.err.println("corpus output file name");
+			System.err.println();
+			System.err.println("or, for partitioning a comparison plan into shards for several processes, five arguments:");
+			System.err.println(SHARD_COMMAND);
+			System.err.println("comparison plan input file");
+			System.err.println("base path for resolving filenames");
+			System.err.println("shard directory shared by the processes");
+			System.err.println("number of shards");
+			System.err.println("optionally preceded by --" + CORPUS_OPTION + "=<corpus file>");
+			System.err.println();
+			System.err.println("or, for performing the comparisons of shards, three arguments:");
+			System.err.println(WORK_COMMAND);
+			System.err.println("shard directory");
+			System.err.println("base path for resolving filenames");
+			System.err.println("optionally preceded by the options above and:");
+			System.err.println("--" + WORKER_ID_OPTION + "=<unique ID of the process, default <process ID>@<host name>>");
+			System.err.println();
+			System.err.println("or, for merging the output files of the shards, three arguments:");
+			System.err.println(MERGE_COMMAND);
+			System.err.println("shard directory");
+			System.err.println("output file name");
+			System.err.println();
+			System.err.println("or, for converting an output file to or from a binary result log, three arguments:");
+			System.err.println(CONVERT_COMMAND);
+			System.err.println("input file (output file or binary result log)");
+			System.err.println("converted output file (binary result log or output file)");
+			System.err.println();
+			System.err.println("or, for indexing a binary result log, two arguments:");
+			System.err.println(INDEX_COMMAND);
+			System.err.println("binary result log");
+			System.err.println();
+			System.err.println("or, for printing results from a binary result log, three or four arguments:");
+			System.err.println(QUERY_COMMAND);
+			System.err.println("binary result log");
+			System.err.println("maximum distance (absolute or in %) in both directions, or two IDs");
 			System.exit(1);
 			return;
 		}
 		
-		final FileSystem fs = FileSystems.getDefault();
-		final Path inputPath = makePath(fs, args[0]);
-		final Path baseDir = makePath(fs, args[1]);
-		final Path outputPath = makePath(fs, args[2]);
+		final ShardDirectory shardDirectory = work ? new ShardDirectory(makePath(fs, arguments.get(1))) : null;
+		final Path inputPath = work ? null : makePath(fs, arguments.get(0));
+		final Path baseDir = makePath(fs, arguments.get(work ? 2 : 1));
+		final Path outputPath = work ? null : makePath(fs, arguments.get(2));
+		
+		final String corpusOption = options.remove(CORPUS_OPTION);
+		final String maxDistanceOption = options.remove(MAX_DISTANCE_OPTION);
+		final boolean anchored = (options.remove(ANCHORED_OPTION) != null);
+		final boolean ocrCosts = (options.remove(OCR_COSTS_OPTION) != null);
+		final String lshOption = options.remove(LSH_OPTION);
+		final String shingleLengthOption = options.remove(SHINGLE_LENGTH_OPTION);
+		final String alignmentOutputOption = options.remove(ALIGNMENT_OUTPUT_OPTION);
+		final String alignmentMaxDistanceOption = options.remove(ALIGNMENT_MAX_DISTANCE_OPTION);
+		final boolean editScripts = (options.remove(EDIT_SCRIPTS_OPTION) != null);
+		final String checkpointDirOption = options.remove(CHECKPOINT_DIR_OPTION);
+		final String checkpointIntervalOption = options.remove(CHECKPOINT_INTERVAL_OPTION);
+		final String memoryBudgetOption = options.remove(MEMORY_BUDGET_OPTION);
+		final String prefetchThreadsOption = options.remove(PREFETCH_THREADS_OPTION);
+		final boolean binaryOutput = (options.remove(BINARY_OUTPUT_OPTION) != null);
+		final String syncIntervalOption = options.remove(SYNC_INTERVAL_OPTION);
+		final String syncCountOption = options.remove(SYNC_COUNT_OPTION);
+		final String statsLogOption = options.remove(STATS_LOG_OPTION);
+		final String statsIntervalOption = options.remove(STATS_INTERVAL_OPTION);
+		final String workerIdOption = options.remove(WORKER_ID_OPTION);
+		if (!options.isEmpty()) {
+			System.err.println("unknown option: --" + options.keySet().iterator().next());
+			System.exit(1);
+			return;
+		}
+		
+		if (ocrCosts && ((corpusOption != null) || anchored || (checkpointDirOption != null) || (alignmentOutputOption != null))) {
+			System.err.println("--" + OCR_COSTS_OPTION + " cannot be combined with --" + CORPUS_OPTION + ", --" + ANCHORED_OPTION + ", --" + CHECKPOINT_DIR_OPTION + " and --" + ALIGNMENT_OUTPUT_OPTION);
+			System.exit(1);
+			return;
+		}
+		
+		final TokenSequenceLoader loader;
+		final ToLongFunction<Path> sizeEstimator;
+		final ToLongFunction<Path> footprint;
+		// the size of a token sequence in memory, which is
+		// at most the size of the text file
+		final ToLongFunction<Path> tokenSequenceSize;
+		if (corpusOption == null) {
+			loader = new TextTokenSequenceLoader(new TokenDictionary());
+			sizeEstimator = FullTextComparisonOrganizer.FILE_SIZE;
+			footprint = path -> FOOTPRINT_PER_FILE_BYTE * FullTextComparisonOrganizer.FILE_SIZE.applyAsLong(path);
+			tokenSequenceSize = FullTextComparisonOrganizer.FILE_SIZE;
+		} else {
+			final BinaryCorpus corpus;
+			try {
+				corpus = BinaryCorpus.open(makePath(fs, corpusOption), baseDir);
+			} catch (final IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			loader = corpus;
+			sizeEstimator = corpus::getTokenCount;
+			footprint = path -> FOOTPRINT_PER_TOKEN * corpus.getTokenCount(path);
+			tokenSequenceSize = path -> 4L * corpus.getTokenCount(path);
+		}
+		
+		final MaximumDistance maxDistance;
+		try {
+			maxDistance = (maxDistanceOption == null) ? null : MaximumDistance.parse(maxDistanceOption);
+		} catch (final IllegalArgumentException e) {
+			System.err.println("invalid maximum distance: " + maxDistanceOption);
+			System.exit(1);
+			return;
+		}
+		
+		final MinHashCandidates candidates;
+		if (lshOption == null) {
+			if (shingleLengthOption != null) {
+				System.err.println("--" + SHINGLE_LENGTH_OPTION + " requires --" + LSH_OPTION);
+				System.exit(1);
+				return;
+			}
+			candidates = null;
+		} else {
+			try {
+				final int separatorIndex = lshOption.indexOf('x');
+				final int bands = Integer.parseInt(lshOption.substring(0, separatorIndex));
+				final int rows = Integer.parseInt(lshOption.substring(separatorIndex + 1));
+				final int shingleLength = (shingleLengthOption == null) ? MinHashCandidates.DEFAULT_SHINGLE_LENGTH : Integer.parseInt(shingleLengthOption);
+				candidates = new MinHashCandidates(loader, bands, rows, shingleLength);
+			} catch (final IndexOutOfBoundsException | IllegalArgumentException e) {
+				System.err.println("invalid LSH parameters: " + lshOption + ((shingleLengthOption == null) ? "" : ", " + shingleLengthOption));
+				System.exit(1);
+				return;
+			}
+		}
+		
+		final MaximumDistance alignmentMaxDistance;
+		if (alignmentOutputOption == null) {
+			if ((alignmentMaxDistanceOption != null) || editScripts) {
+				System.err.println("--" + ALIGNMENT_MAX_DISTANCE_OPTION + " and --" + EDIT_SCRIPTS_OPTION + " require --" + ALIGNMENT_OUTPUT_OPTION);
+				System.exit(1);
+				return;
+			}
+			alignmentMaxDistance = null;
+		} else {
+			try {
+				alignmentMaxDistance = MaximumDistance.parse((alignmentMaxDistanceOption == null) ? DEFAULT_ALIGNMENT_MAX_DISTANCE : alignmentMaxDistanceOption);
+			} catch (final IllegalArgumentException e) {
+				System.err.println("invalid maximum distance: " + alignmentMaxDistanceOption);
+				System.exit(1);
+				return;
+			}
+		}
+		
+		final CheckpointDirectory checkpoints;
+		if (checkpointDirOption == null) {
+			checkpoints = null;
+		} else {
+			final long checkpointInterval = parseSeconds(checkpointIntervalOption, DEFAULT_CHECKPOINT_INTERVAL);
+			if (checkpointInterval < 0L) {
+				System.err.println("invalid checkpoint interval: " + checkpointIntervalOption);
+				System.exit(1);
+				return;
+			}
+			final Path checkpointDir = makePath(fs, checkpointDirOption);
+			try {
+				Files.createDirectories(checkpointDir);
+			} catch (final IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			checkpoints = new CheckpointDirectory(checkpointDir, TimeUnit.SECONDS.toMillis(checkpointInterval));
+		}
+		
+		final long memoryBudgetBytes;
+		try {
+			memoryBudgetBytes = (memoryBudgetOption == null) ? Runtime.getRuntime().maxMemory() / 2 : Long.parseLong(memoryBudgetOption) << 20;
+		} catch (final NumberFormatException e) {
+			System.err.println("invalid memory budget: " + memoryBudgetOption);
+			System.exit(1);
+			return;
+		}
+		if (memoryBudgetBytes <= 0L) {
+			System.err.println("invalid memory budget: " + memoryBudgetOption);
+			System.exit(1);
+			return;
+		}
+		final MemoryBudget memoryBudget = new MemoryBudget(memoryBudgetBytes, footprint);
+		
+		final int prefetchThreads;
+		try {
+			prefetchThreads = (prefetchThreadsOption == null) ? DEFAULT_PREFETCH_THREADS : Integer.parseInt(prefetchThreadsOption);
+		} catch (final NumberFormatException e) {
+			System.err.println("invalid number of prefetch threads: " + prefetchThreadsOption);
+			System.exit(1);
+			return;
+		}
+		if (prefetchThreads < 0) {
+			System.err.println("invalid number of prefetch threads: " + prefetchThreadsOption);
+			System.exit(1);
+			return;
+		}
+		
+		final long syncInterval = parseSeconds(syncIntervalOption, DEFAULT_SYNC_INTERVAL);
+		if (syncInterval <= 0L) {
+			System.err.println("invalid sync interval: " + syncIntervalOption);
+			System.exit(1);
+			return;
+		}
+		final int syncCount;
+		try {
+			syncCount = (syncCountOption == null) ? DEFAULT_SYNC_COUNT : Integer.parseInt(syncCountOption);
+		} catch (final NumberFormatException e) {
+			System.err.println("invalid sync count: " + syncCountOption);
+			System.exit(1);
+			return;
+		}
+		if (syncCount <= 0) {
+			System.err.println("invalid sync count: " + syncCountOption);
+			System.exit(1);
+			return;
+		}
+		
+		final long statsInterval = parseSeconds(statsIntervalOption, DEFAULT_STATS_INTERVAL);
+		if (statsInterval <= 0L) {
+			System.err.println("invalid statistics interval: " + statsIntervalOption);
+			System.exit(1);
+			return;
+		}
+		
+		final ComparisonStatistics statistics = new ComparisonStatistics();
+		try {
+			statistics.register();
+		} catch (final JMException e) {
+			System.err.println("statistics not available via JMX: " + e);
+		}
+		
+		// token sequences of files compared with several other files
+		// are kept in memory, up to a quarter of the maximum heap size
+		final long cacheCapacity = Runtime.getRuntime().maxMemory() / 4;
+		final TokenSequenceCache tokenSequenceCache = new TokenSequenceCache(loader, cacheCapacity);
+		// files are loaded ahead into the cache, up to half of its capacity
+		// (so that they are not evicted before they are needed); the
+		// comparer with graded costs does not load through the cache
+		final TokenSequencePrefetcher prefetcher = ((prefetchThreads == 0) || ocrCosts) ? null : new TokenSequencePrefetcher(tokenSequenceCache, prefetchThreads, cacheCapacity / 2, tokenSequenceSize);
+		final SimpleFullTextComparer.Options comparerOptions = new SimpleFullTextComparer.Options()
+				.maxDistance(maxDistance)
+				.checkpoints(checkpoints)
+				.statistics(statistics)
+				.alignments(alignmentMaxDistance)
+				.editScripts(editScripts)
+				.anchored(anchored);
+		final DirectionalFullTextComparer comparer = ocrCosts ? new OcrFullTextComparer(maxDistance, statistics) : new SimpleFullTextComparer(tokenSequenceCache, comparerOptions);
+		
+		final AlignmentFileOutput alignmentOutput;
+		try {
+			alignmentOutput = (alignmentOutputOption == null) ? null : new AlignmentFileOutput(makePath(fs, alignmentOutputOption), TimeUnit.SECONDS.toMillis(syncInterval), syncCount);
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		
+		final StatisticsLogThread statisticsLogThread;
+		if (statsLogOption == null) {
+			statisticsLogThread = null;
+		} else {
+			statisticsLogThread = new StatisticsLogThread(statistics, makePath(fs, statsLogOption), TimeUnit.SECONDS.toMillis(statsInterval));
+			statisticsLogThread.start();
+		}
+		
+		if (work) {
+			final String workerId = (workerIdOption == null) ? ManagementFactory.getRuntimeMXBean().getName() : workerIdOption;
+			try {
+				while (true) {
+					final Path shard = shardDirectory.claim(workerId);
+					if (shard == null)
+						break;
+					System.out.println("Comparing " + shard.getFileName());
+					compare(shard, baseDir, shardDirectory.getOutputFile(shard), comparer, sizeEstimator, statistics, binaryOutput, TimeUnit.SECONDS.toMillis(syncInterval), syncCount, alignmentOutput, null, memoryBudget, prefetcher);
+					shardDirectory.complete(shard);
+				}
+			} catch (final IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		} else {
+			compare(inputPath, baseDir, outputPath, comparer, sizeEstimator, statistics, binaryOutput, TimeUnit.SECONDS.toMillis(syncInterval), syncCount, alignmentOutput, candidates, memoryBudget, prefetcher);
+		}
+		
+		if (alignmentOutput != null) {
+			try {
+				alignmentOutput.close();
+			} catch (final IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+		
+		if (prefetcher != null)
+			prefetcher.shutdown();
+		
+		if (statisticsLogThread != null)
+			statisticsLogThread.finish();
+		
+		System.out.println("Terminated successfully.");
+	}
+	
+	// performs the comparisons of a comparison plan input file
+	private static void compare(final Path inputPath, final Path baseDir, final Path outputPath, final FullTextComparer comparer, final ToLongFunction<Path> sizeEstimator, final ComparisonStatistics statistics, final boolean binaryOutput, final long syncInterval, final int syncCount, final ComparisonOutput alignmentOutput, final MinHashCandidates candidates, final MemoryBudget memoryBudget, final TokenSequencePrefetcher prefetcher) {
+		final FileSystem fs = baseDir.getFileSystem();
 		
 		final CombinationTable combinationTable = new CombinationTable();
-		try (final Stream<String> lines = Files.lines(outputPath, StandardCharsets.UTF_8)) {
-			lines.forEach(l -> loadCombination(l, combinationTable));
+		try {
+			// a line or record left incomplete must not count as done
+			if (binaryOutput) {
+				if (BinaryResultStore.repair(outputPath))
+					System.err.println("removed incomplete last record of " + outputPath);
+				BinaryResultStore.open(outputPath).addCombinations(combinationTable);
+			} else {
+				if (DurableFileComparisonOutput.repair(outputPath))
+					System.err.println("removed incomplete last line of " + outputPath);
+				combinationTable.load(outputPath);
+			}
 		} catch (final FileNotFoundException | NoSuchFileException e) {
 			// comparison file does not yet exist
 		} catch (final IOException e) {
@@ -51,7 +510,7 @@ public class FullTextComparisonMain {
 		final int nThreads = Runtime.getRuntime().availableProcessors();
 		final Thread[] threads = new Thread[nThreads];
 		
-		try (final BufferedWriter writer = Files.newBufferedWriter(outputPath, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+		try (final DurableFileComparisonOutput output = binaryOutput ? BinaryResultStore.openOutput(outputPath, syncInterval, syncCount) : new DurableFileComparisonOutput(outputPath, syncInterval, syncCount)) {
 			try (final BufferedReader reader = Files.newBufferedReader(inputPath, StandardCharsets.UTF_8)) {
 				while (true) {
 					final String line = reader.readLine();
@@ -60,10 +519,37 @@ public class FullTextComparisonMain {
 					pathTable.add(baseDir.resolve(fs.getPath(line)));
 				}
 				
-				final FullTextComparisonOrganizer comparisonOrganizer = new FullTextComparisonOrganizer(combinationTable, pathTable, new SimpleFullTextComparer(), new ToAppendableComparisonOutput(writer));
+				final ComparisonOutput comparisonOutput;
+				if (alignmentOutput == null) {
+					comparisonOutput = output;
+				} else {
+					comparisonOutput = (id1, id2, comparisonResult) -> {
+						output.output(id1, id2, comparisonResult);
+						alignmentOutput.output(id1, id2, comparisonResult);
+					};
+				}
+				final FullTextComparisonOrganizer.Options organizerOptions = new FullTextComparisonOrganizer.Options()
+						.sizeEstimator(sizeEstimator)
+						.statistics(statistics)
+						.memoryBudget(memoryBudget)
+						.prefetcher(prefetcher);
+				final FullTextComparisonOrganizer comparisonOrganizer = new FullTextComparisonOrganizer(combinationTable, pathTable, comparer, comparisonOutput, organizerOptions);
+				
+				while (true) {
+					final String line = reader.readLine();
+					if (line == null)
+						break;
+					comparisonOrganizer.schedule(line);
+				}
+				if (candidates != null) {
+					System.out.println("Finding similar files");
+					candidates.forEachCandidate(pathTable, comparisonOrganizer::schedule);
+				}
+				comparisonOrganizer.sortSchedule(nThreads);
 				
 				for (int i = 0; i < nThreads; i++) {
-					final Thread thread = new ParallelizerThread(reader, comparisonOrganizer);
+					final Thread thread = new ParallelizerThread(comparisonOrganizer);
+					thread.setName("comparison-" + i);
 					threads[i] = thread;
 					thread.start();
 				}
@@ -75,7 +561,23 @@ public class FullTextComparisonMain {
 					// should not happen
 				}
 			}
-			writer.flush();
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	private static void preprocess(final Path inputPath, final Path baseDir, final Path corpusPath) {
+		final ArrayList<String> filenames = new ArrayList<>();
+		try {
+			try (final BufferedReader reader = Files.newBufferedReader(inputPath, StandardCharsets.UTF_8)) {
+				while (true) {
+					final String line = reader.readLine();
+					if ((line == null) || "".equals(line))
+						break;
+					filenames.add(line);
+				}
+			}
+			BinaryCorpus.create(filenames, baseDir, corpusPath);
 		} catch (final IOException e) {
 			throw new UncheckedIOException(e);
 		}
@@ -83,45 +585,182 @@ public class FullTextComparisonMain {
 		System.out.println("Terminated successfully.");
 	}
 	
-	private static Path makePath(final FileSystem fs, final String pathString) {
-		return fs.getPath(pathString).toAbsolutePath().normalize();
+	private static void shard(final Path inputPath, final Path baseDir, final Path shardDir, final int shardCount, final Path corpusPath) {
+		try {
+			final ArrayList<Path> pathTable = new ArrayList<>();
+			try (final BufferedReader reader = Files.newBufferedReader(inputPath, StandardCharsets.UTF_8)) {
+				while (true) {
+					final String line = reader.readLine();
+					if ((line == null) || "".equals(line))
+						break;
+					pathTable.add(baseDir.resolve(baseDir.getFileSystem().getPath(line)));
+				}
+			}
+			// the token counts, determined once per file
+			final long[] tokenCounts = new long[pathTable.size()];
+			if (corpusPath == null) {
+				// counted without interning, so that the vocabulary
+				// of the collection is not kept in memory
+				for (int i = 0; i < tokenCounts.length; i++)
+					tokenCounts[i] = TextTokenSequenceLoader.countTokens(pathTable.get(i));
+			} else {
+				final BinaryCorpus corpus = BinaryCorpus.open(corpusPath, baseDir);
+				for (int i = 0; i < tokenCounts.length; i++)
+					tokenCounts[i] = corpus.getTokenCount(pathTable.get(i));
+			}
+			Files.createDirectories(shardDir);
+			new ShardDirectory(shardDir).partition(inputPath, shardCount, index -> tokenCounts[index]);
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		
+		System.out.println("Terminated successfully.");
 	}
 	
-	private static void loadCombination(final String line, final CombinationTable combinationTable) {
-		final int tabIndex1 = line.indexOf('\t');
-		if (tabIndex1 < 0)
-			throw new IllegalArgumentException("line has wrong format: " + line);
-		final int afterTabIndex1 = tabIndex1 + 1;
-		final int tabIndex2 = line.indexOf('\t', afterTabIndex1);
-		if (tabIndex2 < 0)
-			throw new IllegalArgumentException("line has wrong format: " + line);
-		combinationTable.addCombination(line.substring(0, tabIndex1), line.substring(afterTabIndex1, tabIndex2));
+	private static void merge(final Path shardDir, final Path outputPath) {
+		final ShardDirectory shardDirectory = new ShardDirectory(shardDir);
+		try {
+			System.out.println("Appended " + shardDirectory.merge(outputPath) + " results.");
+			final int pending = shardDirectory.getPendingShardCount();
+			if (pending > 0)
+				System.out.println(pending + " shards are not yet done; merge again when they are.");
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		
+		System.out.println("Terminated successfully.");
+	}
+	
+	private static void convert(final Path inputPath, final Path outputPath) {
+		try {
+			if (BinaryResultStore.isLog(inputPath))
+				System.out.println("Converted " + BinaryResultStore.toText(inputPath, outputPath) + " results.");
+			else
+				System.out.println("Converted " + BinaryResultStore.fromText(inputPath, outputPath) + " results.");
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		
+		System.out.println("Terminated successfully.");
+	}
+	
+	private static void index(final Path logPath) {
+		try {
+			System.out.println("Indexed " + BinaryResultStore.index(logPath) + " results.");
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		
+		System.out.println("Terminated successfully.");
+	}
+	
+	// prints the results with distances up to the maximum in both directions
+	private static void query(final Path logPath, final MaximumDistance maxDistance) {
+		try {
+			final BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+			final ComparisonOutput output = new ToAppendableComparisonOutput(writer);
+			BinaryResultStore.open(logPath).forEach((id1, id2, comparisonResult) -> {
+				if (!comparisonResult.isEditDistance1in2Exceeded() && (comparisonResult.getEditDistance1in2() <= maxDistance.forSubSequence(comparisonResult.getSize1()))
+						&& !comparisonResult.isEditDistance2in1Exceeded() && (comparisonResult.getEditDistance2in1() <= maxDistance.forSubSequence(comparisonResult.getSize2())))
+					output.output(Integer.toString(id1), Integer.toString(id2), comparisonResult);
+			});
+			writer.flush();
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	// prints the result for a pair of IDs
+	private static void query(final Path logPath, final int id1, final int id2) {
+		try {
+			final FullTextComparison comparisonResult = BinaryResultStore.open(logPath).find(id1, id2);
+			if (comparisonResult == null) {
+				System.err.println("not found: " + id1 + " " + id2);
+				System.exit(1);
+				return;
+			}
+			final StringBuilder sb = new StringBuilder();
+			new ToAppendableComparisonOutput(sb).output(Integer.toString(id1), Integer.toString(id2), comparisonResult);
+			System.out.print(sb);
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	// returns -1 if the value is invalid
+	private static long parseSeconds(final String value, final long defaultValue) {
+		if (value == null)
+			return defaultValue;
+		try {
+			return Math.max(-1L, Long.parseLong(value));
+		} catch (final NumberFormatException e) {
+			return -1L;
+		}
+	}
+	
+	private static Path makePath(final FileSystem fs, final String pathString) {
+		return fs.getPath(pathString).toAbsolutePath().normalize();
 	}
 	
 	private static class ParallelizerThread extends Thread {
 		
-		private final BufferedReader pReader;
 		private final FullTextComparisonOrganizer pComparisonOrganizer;
 		
-		public ParallelizerThread(final BufferedReader reader, final FullTextComparisonOrganizer comparisonOrganizer) {
-			pReader = reader;
+		public ParallelizerThread(final FullTextComparisonOrganizer comparisonOrganizer) {
 			pComparisonOrganizer = comparisonOrganizer;
 		}
 		
+		@Override
+		public void run() {
+			while (pComparisonOrganizer.compareNext()) {
+				// continue with the next comparison
+			}
+		}
+		
+	}
+	
+	private static class StatisticsLogThread extends Thread {
+		
+		private final ComparisonStatistics pStatistics;
+		private final Path pLogFile;
+		private final long pInterval;
+		
+		public StatisticsLogThread(final ComparisonStatistics statistics, final Path logFile, final long interval) {
+			pStatistics = statistics;
+			pLogFile = logFile;
+			pInterval = interval;
+			setDaemon(true);
+		}
+		
 		@Override
 		public void run() {
 			while (true) {
-				final String line;
 				try {
-					synchronized (pReader) {
-						line = pReader.readLine();
-					}
-				} catch (final IOException e) {
-					throw new UncheckedIOException(e);
+					Thread.sleep(pInterval);
+				} catch (final InterruptedException e) {
+					return;
 				}
-				if (line == null)
-					break;
-				pComparisonOrganizer.compare(line);
+				log();
+			}
+		}
+		
+		// stops the thread and logs the final statistics
+		public void finish() {
+			interrupt();
+			try {
+				join();
+			} catch (final InterruptedException e) {
+				// should not happen
+			}
+			log();
+		}
+		
+		private void log() {
+			try (final BufferedWriter writer = Files.newBufferedWriter(pLogFile, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+				writer.write(pStatistics.toJson());
+				writer.newLine();
+			} catch (final IOException e) {
+				throw new UncheckedIOException(e);
 			}
 		}
 		
@@ -5,22 +5,100 @@
  */
 package batchsed;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntToLongFunction;
+import java.util.function.ToLongFunction;
 
 /**
  * Class to hide the details of the full text comparison
  * organization from calling code.
+ * Before a comparison is performed or scheduled, it is added to the
+ * {@link CombinationTable}, so that the same combination of files
+ * (in either order) is only compared once.
  * This class is thread safe in the sense that it does
  * not alter the state of any of the objects it references.
  * However, it does not synchronize accesses to those objects.
+ * <p>
+ * Besides comparing plan lines directly with {@link #compare(String)},
+ * the comparisons can be scheduled: All lines are first passed to
+ * {@link #schedule(String)}, then {@link #sortSchedule(int)} orders
+ * the comparisons by their estimated cost, most expensive first,
+ * and then any number of threads can call {@link #compareNext()}
+ * until it returns {@code false}.
+ * The cost of a comparison is estimated as the product of the sizes
+ * of the two files (by default, the numbers of bytes, which are
+ * roughly proportional to the numbers of tokens). Comparisons whose estimated costs differ
+ * by less than a factor of two are ordered such that comparisons
+ * sharing a file are performed one after another (grouped by the file
+ * with more scheduled comparisons), so that the token sequences
+ * of the files can be reused from a {@link TokenSequenceCache}.
+ * If the {@link FullTextComparer} is a {@link DirectionalFullTextComparer},
+ * the two directions of each comparison are scheduled independently.
+ * If it is a {@link BatchFullTextComparer}, such groups of comparisons
+ * sharing a file (up to {@link #MAX_BATCH_SIZE} comparisons, split
+ * among the threads) are performed together with {@link BatchFullTextComparer#compareAll(Path, Path[])}
+ * instead, so that the shared file is prepared only once.
+ * After the result of a comparison has been output,
+ * {@link FullTextComparer#release(Path, Path)} is called.
+ * Optionally, every comparison (or direction or batch of comparisons)
+ * is only started when it fits into a {@link MemoryBudget}, and the
+ * files of the scheduled comparisons following the ones in progress
+ * are loaded ahead by a {@link TokenSequencePrefetcher}.
+ * Scheduling is not thread safe and must be finished before
+ * {@link #compareNext()} is called.
+ * <p>
+ * Lines of the comparison plan can also be {@link PlanDirective}s,
+ * which stand for many comparisons. These comparisons are not
+ * scheduled individually, but enumerated when the individually
+ * scheduled comparisons have been performed, in the order given
+ * by {@link PlanDirective#sortBySize(IntToLongFunction)}
+ * (and with both directions of a comparison performed together).
  */
 public class FullTextComparisonOrganizer {
 	
+	/**
+	 * Determines the number of bytes of a file, throwing
+	 * an {@link UncheckedIOException} if an I/O error occurs.
+	 */
+	public static final ToLongFunction<Path> FILE_SIZE = path -> {
+		try {
+			return Files.size(path);
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	};
+	
+	/**
+	 * The maximum number of comparisons sharing a file
+	 * that are performed together by a {@link BatchFullTextComparer}.
+	 */
+	public static final int MAX_BATCH_SIZE = 64;
+	
 	private final CombinationTable pCombinationTable;
 	private final ArrayList<Path> pPathTable;
 	private final FullTextComparer pComparer;
 	private final ComparisonOutput pComparisonOutput;
+	private final ToLongFunction<Path> pSizeEstimator;
+	private final ComparisonStatistics pStatistics;
+	private final MemoryBudget pMemoryBudget;
+	private final TokenSequencePrefetcher pPrefetcher;
+	
+	private final ArrayList<ScheduledTask> pSchedule;
+	private final AtomicInteger pNextTask;
+	private final ArrayList<PlanDirective> pDirectives;
+	private final AtomicInteger pNextDirective;
+	private long[] pFileSizes;
+	
+	// the index of the next scheduled task to prefetch
+	private final Object pPrefetchLock;
+	private int pNextPrefetch;
 	
 	/**
 	 * Initializes a new instance of this class.
@@ -44,27 +122,587 @@ public class FullTextComparisonOrganizer {
 	 * results; not {@code null}
 	 */
 	public FullTextComparisonOrganizer(final CombinationTable combinationTable, final ArrayList<Path> pathTable, final FullTextComparer comparer, final ComparisonOutput comparisonOutput) {
+		this(combinationTable, pathTable, comparer, comparisonOutput, new Options());
+	}
+	
+	/**
+	 * Initializes a new instance of this class
+	 * that uses the given optional features.
+	 * 
+	 * @param combinationTable
+	 * the combination table to use for determining
+	 * whether a combination has already been tested;
+	 * not {@code null}
+	 * 
+	 * @param pathTable
+	 * the lists of paths to which the indices in the second
+	 * section of the comparison plan input file correspond;
+	 * not {@code null}
+	 * 
+	 * @param comparer
+	 * a {@link FullTextComparer} that will perform the
+	 * comparisons; not {@code null}
+	 * 
+	 * @param comparisonOutput
+	 * a {@link ComparisonOutput} to output the comparison
+	 * results; not {@code null}
+	 * 
+	 * @param options
+	 * the optional features; not {@code null}, read only
+	 * by this constructor
+	 */
+	public FullTextComparisonOrganizer(final CombinationTable combinationTable, final ArrayList<Path> pathTable, final FullTextComparer comparer, final ComparisonOutput comparisonOutput, final Options options) {
 		pCombinationTable = combinationTable;
 		pPathTable = pathTable;
 		pComparer = comparer;
 		pComparisonOutput = comparisonOutput;
+		pSizeEstimator = options.pSizeEstimator;
+		pStatistics = options.pStatistics;
+		pMemoryBudget = options.pMemoryBudget;
+		pPrefetcher = options.pPrefetcher;
+		
+		pSchedule = new ArrayList<>();
+		pNextTask = new AtomicInteger();
+		pDirectives = new ArrayList<>();
+		pNextDirective = new AtomicInteger();
+		pFileSizes = new long[0];
+		
+		pPrefetchLock = new Object();
+		pNextPrefetch = 0;
 	}
 	
 	/**
 	 * Takes a line from the second section of the comparison
-	 * plan input file and performs the corresponding comparison.
+	 * plan input file and performs the corresponding comparison
+	 * (unless it has already been performed or is in progress)
+	 * or comparisons (if the line is a {@link PlanDirective}).
 	 * 
 	 * @param line
 	 * the line from the second section of the comparison
 	 * plan input file; not {@code null}
 	 */
 	public void compare(final String line) {
+		if (PlanDirective.isDirective(line)) {
+			final PlanDirective directive = PlanDirective.parse(line, pPathTable.size());
+			if (pStatistics != null)
+				pStatistics.addPlanned(directive.getPairCount(), 2.0 * directive.getCost(this::fileSize));
+			while (compareNext(directive)) {
+				// continue with the next pair
+			}
+			return;
+		}
 		final int tabIndex = line.indexOf('\t');
 		final String id1 = line.substring(0, tabIndex);
 		final String id2 = line.substring(tabIndex + 1);
-		if (pCombinationTable.containsCombination(id1, id2))
+		final int index1 = Integer.parseInt(id1);
+		final int index2 = Integer.parseInt(id2);
+		if (!pCombinationTable.addCombination(index1, index2))
+			return;
+		final Path path1 = pPathTable.get(index1);
+		final Path path2 = pPathTable.get(index2);
+		final long bytes = acquire(path1, path2);
+		try {
+			pComparisonOutput.output(id1, id2, pComparer.compare(path1, path2));
+		} finally {
+			release(bytes);
+		}
+		pComparer.release(path1, path2);
+		if (pStatistics != null) {
+			final double cost = 2.0 * fileSize(index1) * fileSize(index2);
+			pStatistics.addPlanned(1L, cost);
+			pStatistics.addDone(1L, cost);
+		}
+	}
+	
+	/**
+	 * Takes a line from the second section of the comparison
+	 * plan input file and schedules the corresponding comparison
+	 * (unless it has already been performed or scheduled)
+	 * or comparisons (if the line is a {@link PlanDirective}).
+	 * 
+	 * @param line
+	 * the line from the second section of the comparison
+	 * plan input file; not {@code null}
+	 */
+	public void schedule(final String line) {
+		if (PlanDirective.isDirective(line)) {
+			final PlanDirective directive = PlanDirective.parse(line, pPathTable.size());
+			directive.sortBySize(this::fileSize);
+			pDirectives.add(directive);
+			if (pStatistics != null)
+				pStatistics.addPlanned(directive.getPairCount(), 2.0 * directive.getCost(this::fileSize));
+			return;
+		}
+		final int tabIndex = line.indexOf('\t');
+		final String id1 = line.substring(0, tabIndex);
+		final String id2 = line.substring(tabIndex + 1);
+		schedule(id1, id2, Integer.parseInt(id1), Integer.parseInt(id2));
+	}
+	
+	/**
+	 * Schedules the comparison of two files
+	 * (unless it has already been performed or scheduled),
+	 * like a line of the second section of the comparison
+	 * plan input file with the two indices.
+	 * This allows for comparisons not listed in the comparison
+	 * plan, such as those found by {@link MinHashCandidates}.
+	 * 
+	 * @param index1
+	 * the index of the first file in the list of paths
+	 * 
+	 * @param index2
+	 * the index of the second file in the list of paths
+	 */
+	public void schedule(final int index1, final int index2) {
+		schedule(Integer.toString(index1), Integer.toString(index2), index1, index2);
+	}
+	
+	private void schedule(final String id1, final String id2, final int index1, final int index2) {
+		if (!pCombinationTable.addCombination(index1, index2))
+			return;
+		final ScheduledComparison comparison = new ScheduledComparison(id1, id2, index1, index2, pPathTable.get(index1), pPathTable.get(index2));
+		final long cost = fileSize(index1) * fileSize(index2);
+		if (pComparer instanceof DirectionalFullTextComparer) {
+			pSchedule.add(new ScheduledTask(comparison, ScheduledTask.DIRECTION_1IN2, cost));
+			pSchedule.add(new ScheduledTask(comparison, ScheduledTask.DIRECTION_2IN1, cost));
+		} else {
+			pSchedule.add(new ScheduledTask(comparison, ScheduledTask.BOTH_DIRECTIONS, cost));
+		}
+		if (pStatistics != null)
+			pStatistics.addPlanned(1L, 2.0 * cost);
+	}
+	
+	/**
+	 * Sorts the scheduled comparisons by their estimated cost,
+	 * most expensive first, and groups comparisons of similar
+	 * cost by the files they share. With a {@link BatchFullTextComparer},
+	 * the comparisons of each group are then combined into
+	 * batches of up to {@link #MAX_BATCH_SIZE} comparisons, but no
+	 * larger than needed to give each of the threads calling
+	 * {@link #compareNext()} a batch of the group, so that
+	 * a large group is still performed by all threads.
+	 * 
+	 * @param threadCount
+	 * the number of threads that will call {@link #compareNext()};
+	 * positive
+	 */
+	public void sortSchedule(final int threadCount) {
+		// the number of scheduled tasks per file
+		final int[] taskCounts = new int[pPathTable.size()];
+		for (final ScheduledTask task : pSchedule) {
+			taskCounts[task.pComparison.pIndex1]++;
+			taskCounts[task.pComparison.pIndex2]++;
+		}
+		pSchedule.sort(Comparator.comparingInt((final ScheduledTask task) -> -costClass(task.pCost))
+				.thenComparingInt(task -> sharedIndex(task.pComparison, taskCounts))
+				.thenComparingInt(task -> otherIndex(task.pComparison, taskCounts)));
+		if (!(pComparer instanceof BatchFullTextComparer))
 			return;
-		pComparisonOutput.output(id1, id2, pComparer.compare(pPathTable.get(Integer.parseInt(id1)), pPathTable.get(Integer.parseInt(id2))));
+		
+		final ArrayList<ScheduledTask> schedule = new ArrayList<>(pSchedule.size());
+		final ArrayList<ScheduledComparison> group = new ArrayList<>();
+		int start = 0;
+		while (start < pSchedule.size()) {
+			final ScheduledTask first = pSchedule.get(start);
+			final int costClass = costClass(first.pCost);
+			final int sharedIndex = sharedIndex(first.pComparison, taskCounts);
+			group.clear();
+			int end = start;
+			while (end < pSchedule.size()) {
+				final ScheduledTask task = pSchedule.get(end);
+				if ((costClass(task.pCost) != costClass) || (sharedIndex(task.pComparison, taskCounts) != sharedIndex))
+					break;
+				// the tasks of both directions of a comparison are adjacent
+				if (group.isEmpty() || (group.get(group.size() - 1) != task.pComparison))
+					group.add(task.pComparison);
+				end++;
+			}
+			final int batchSize = Math.min(MAX_BATCH_SIZE, (group.size() + threadCount - 1) / threadCount);
+			if (batchSize > 1) {
+				for (int from = 0; from < group.size(); from += batchSize) {
+					final ScheduledComparison[] batch = group.subList(from, Math.min(from + batchSize, group.size())).toArray(new ScheduledComparison[0]);
+					long cost = 0L;
+					for (final ScheduledComparison comparison : batch)
+						cost += fileSize(comparison.pIndex1) * fileSize(comparison.pIndex2);
+					schedule.add(new ScheduledTask(batch, sharedIndex, cost));
+				}
+			} else {
+				schedule.addAll(pSchedule.subList(start, end));
+			}
+			start = end;
+		}
+		pSchedule.clear();
+		pSchedule.addAll(schedule);
+	}
+	
+	/**
+	 * Performs the next scheduled comparison (or direction
+	 * of a comparison). Results are output as soon as both
+	 * directions of a comparison have been computed.
+	 * This method can be called by multiple threads concurrently.
+	 * 
+	 * @return
+	 * {@code true} if a comparison has been performed;
+	 * {@code false} if there are no more scheduled comparisons
+	 */
+	public boolean compareNext() {
+		final int taskIndex = pNextTask.getAndIncrement();
+		if (taskIndex >= pSchedule.size()) {
+			while (true) {
+				final int directiveIndex = pNextDirective.get();
+				if (directiveIndex >= pDirectives.size())
+					return false;
+				if (compareNext(pDirectives.get(directiveIndex)))
+					return true;
+				pNextDirective.compareAndSet(directiveIndex, directiveIndex + 1);
+			}
+		}
+		final ScheduledTask task = pSchedule.get(taskIndex);
+		// allow the task to be garbage collected after it has been performed
+		pSchedule.set(taskIndex, null);
+		prefetch(taskIndex, task);
+		if (task.pDirection == ScheduledTask.BATCH) {
+			compareBatch(task.pBatch, task.pSharedIndex);
+			return true;
+		}
+		final ScheduledComparison comparison = task.pComparison;
+		final boolean output;
+		final long bytes = acquire(comparison.pPath1, comparison.pPath2);
+		try {
+			switch (task.pDirection) {
+				case ScheduledTask.DIRECTION_1IN2:
+					output = comparison.complete1in2(((DirectionalFullTextComparer) pComparer).compareDirection(comparison.pPath1, comparison.pPath2), pComparisonOutput);
+					break;
+				case ScheduledTask.DIRECTION_2IN1:
+					output = comparison.complete2in1(((DirectionalFullTextComparer) pComparer).compareDirection(comparison.pPath2, comparison.pPath1), pComparisonOutput);
+					break;
+				default:
+					pComparisonOutput.output(comparison.pId1, comparison.pId2, pComparer.compare(comparison.pPath1, comparison.pPath2));
+					output = true;
+			}
+		} finally {
+			release(bytes);
+		}
+		if (output)
+			pComparer.release(comparison.pPath1, comparison.pPath2);
+		if (pStatistics != null)
+			pStatistics.addDone(output ? 1L : 0L, (task.pDirection == ScheduledTask.BOTH_DIRECTIONS) ? 2.0 * task.pCost : task.pCost);
+		return true;
+	}
+	
+	// performs the comparisons of a batch sharing the file with
+	// the given index and outputs their results
+	private void compareBatch(final ScheduledComparison[] batch, final int sharedIndex) {
+		final Path[] otherPaths = new Path[batch.length];
+		for (int k = 0; k < batch.length; k++)
+			otherPaths[k] = (batch[k].pIndex1 == sharedIndex) ? batch[k].pPath2 : batch[k].pPath1;
+		final Path[] paths = Arrays.copyOf(otherPaths, batch.length + 1);
+		paths[batch.length] = pPathTable.get(sharedIndex);
+		final FullTextComparison[] results;
+		final long bytes = acquire(paths);
+		try {
+			results = ((BatchFullTextComparer) pComparer).compareAll(paths[batch.length], otherPaths);
+		} finally {
+			release(bytes);
+		}
+		for (int k = 0; k < batch.length; k++) {
+			final ScheduledComparison comparison = batch[k];
+			pComparisonOutput.output(comparison.pId1, comparison.pId2, (comparison.pIndex1 == sharedIndex) ? results[k] : results[k].swap());
+			pComparer.release(comparison.pPath1, comparison.pPath2);
+			if (pStatistics != null)
+				pStatistics.addDone(1L, 2.0 * fileSize(comparison.pIndex1) * fileSize(comparison.pIndex2));
+		}
+	}
+	
+	// performs the next comparison of a directive not yet
+	// performed; returns false if there is none
+	private boolean compareNext(final PlanDirective directive) {
+		while (true) {
+			final int[] pair = directive.next();
+			if (pair == null)
+				return false;
+			final int index1 = pair[0];
+			final int index2 = pair[1];
+			final double cost = (pStatistics == null) ? 0.0 : 2.0 * fileSize(index1) * fileSize(index2);
+			if (pCombinationTable.addCombination(index1, index2)) {
+				final Path path1 = pPathTable.get(index1);
+				final Path path2 = pPathTable.get(index2);
+				final long bytes = acquire(path1, path2);
+				try {
+					pComparisonOutput.output(Integer.toString(index1), Integer.toString(index2), pComparer.compare(path1, path2));
+				} finally {
+					release(bytes);
+				}
+				pComparer.release(path1, path2);
+				if (pStatistics != null)
+					pStatistics.addDone(1L, cost);
+				return true;
+			}
+			if (pStatistics != null)
+				// performed before
+				pStatistics.addPlanned(-1L, -cost);
+		}
+	}
+	
+	// called when a task starts: prefetches the files of the
+	// following tasks as far as the prefetcher has room for them
+	private void prefetch(final int taskIndex, final ScheduledTask task) {
+		if (pPrefetcher == null)
+			return;
+		synchronized (pPrefetchLock) {
+			if (task.pPrefetched >= 0L)
+				pPrefetcher.release(task.pPrefetched);
+			if (pNextPrefetch <= taskIndex)
+				pNextPrefetch = taskIndex + 1;
+			while (pNextPrefetch < pSchedule.size()) {
+				final ScheduledTask nextTask = pSchedule.get(pNextPrefetch);
+				// null if already started
+				if (nextTask != null) {
+					final long bytes = pPrefetcher.prefetch(files(nextTask));
+					if (bytes < 0L)
+						break;
+					nextTask.pPrefetched = bytes;
+				}
+				pNextPrefetch++;
+			}
+		}
+	}
+	
+	// the files of a task
+	private Path[] files(final ScheduledTask task) {
+		if (task.pDirection != ScheduledTask.BATCH)
+			return new Path[] { task.pComparison.pPath1, task.pComparison.pPath2 };
+		final Path[] files = new Path[task.pBatch.length + 1];
+		files[0] = pPathTable.get(task.pSharedIndex);
+		for (int k = 0; k < task.pBatch.length; k++)
+			files[k + 1] = (task.pBatch[k].pIndex1 == task.pSharedIndex) ? task.pBatch[k].pPath2 : task.pBatch[k].pPath1;
+		return files;
+	}
+	
+	// waits until the comparison of the files fits into the memory budget
+	private long acquire(final Path... files) {
+		if (pMemoryBudget == null)
+			return 0L;
+		return pMemoryBudget.acquire(files);
+	}
+	
+	private void release(final long bytes) {
+		if (pMemoryBudget != null)
+			pMemoryBudget.release(bytes);
+	}
+	
+	// the file of a comparison by which it is grouped with other
+	// comparisons: the one with more scheduled tasks, or else
+	// the one with the smaller index
+	private static int sharedIndex(final ScheduledComparison comparison, final int[] taskCounts) {
+		final int index1 = comparison.pIndex1;
+		final int index2 = comparison.pIndex2;
+		if (taskCounts[index1] != taskCounts[index2])
+			return (taskCounts[index1] > taskCounts[index2]) ? index1 : index2;
+		return Math.min(index1, index2);
+	}
+	
+	// the other file of a comparison
+	private static int otherIndex(final ScheduledComparison comparison, final int[] taskCounts) {
+		return (sharedIndex(comparison, taskCounts) == comparison.pIndex1) ? comparison.pIndex2 : comparison.pIndex1;
+	}
+	
+	private static int costClass(final long cost) {
+		return 64 - Long.numberOfLeadingZeros(cost);
+	}
+	
+	// synchronized as it is also called while enumerating
+	// the comparisons of directives
+	private synchronized long fileSize(final int index) {
+		if (index >= pFileSizes.length) {
+			final int oldLength = pFileSizes.length;
+			pFileSizes = Arrays.copyOf(pFileSizes, pPathTable.size());
+			Arrays.fill(pFileSizes, oldLength, pFileSizes.length, -1L);
+		}
+		long size = pFileSizes[index];
+		if (size < 0L) {
+			size = pSizeEstimator.applyAsLong(pPathTable.get(index));
+			pFileSizes[index] = size;
+		}
+		return size;
+	}
+	
+	private static class ScheduledComparison {
+		
+		private final String pId1;
+		private final String pId2;
+		private final int pIndex1;
+		private final int pIndex2;
+		private final Path pPath1;
+		private final Path pPath2;
+		
+		private SubstringComparison pComparison1in2;
+		private SubstringComparison pComparison2in1;
+		
+		public ScheduledComparison(final String id1, final String id2, final int index1, final int index2, final Path path1, final Path path2) {
+			pId1 = id1;
+			pId2 = id2;
+			pIndex1 = index1;
+			pIndex2 = index2;
+			pPath1 = path1;
+			pPath2 = path2;
+		}
+		
+		// returns whether the result has been output
+		public boolean complete1in2(final SubstringComparison comparison1in2, final ComparisonOutput comparisonOutput) {
+			final SubstringComparison comparison2in1;
+			synchronized (this) {
+				pComparison1in2 = comparison1in2;
+				comparison2in1 = pComparison2in1;
+			}
+			if (comparison2in1 == null)
+				return false;
+			comparisonOutput.output(pId1, pId2, new FullTextComparison(comparison1in2, comparison2in1));
+			return true;
+		}
+		
+		// returns whether the result has been output
+		public boolean complete2in1(final SubstringComparison comparison2in1, final ComparisonOutput comparisonOutput) {
+			final SubstringComparison comparison1in2;
+			synchronized (this) {
+				pComparison2in1 = comparison2in1;
+				comparison1in2 = pComparison1in2;
+			}
+			if (comparison1in2 == null)
+				return false;
+			comparisonOutput.output(pId1, pId2, new FullTextComparison(comparison1in2, comparison2in1));
+			return true;
+		}
+		
+	}
+	
+	private static class ScheduledTask {
+		
+		public static final int BOTH_DIRECTIONS = 0;
+		public static final int DIRECTION_1IN2 = 1;
+		public static final int DIRECTION_2IN1 = 2;
+		public static final int BATCH = 3;
+		
+		private final ScheduledComparison pComparison;
+		private final int pDirection;
+		private final long pCost;
+		
+		// only for batches
+		private final ScheduledComparison[] pBatch;
+		private final int pSharedIndex;
+		
+		// the bytes reserved by the prefetcher; -1 if not prefetched
+		// (guarded by pPrefetchLock)
+		private long pPrefetched;
+		
+		public ScheduledTask(final ScheduledComparison comparison, final int direction, final long cost) {
+			pComparison = comparison;
+			pDirection = direction;
+			pCost = cost;
+			pBatch = null;
+			pSharedIndex = -1;
+			pPrefetched = -1L;
+		}
+		
+		public ScheduledTask(final ScheduledComparison[] batch, final int sharedIndex, final long cost) {
+			pComparison = null;
+			pDirection = BATCH;
+			pCost = cost;
+			pBatch = batch;
+			pSharedIndex = sharedIndex;
+			pPrefetched = -1L;
+		}
+		
+	}
+	
+	/**
+	 * The optional features of a {@link FullTextComparisonOrganizer}.
+	 * In a new instance, the cost of a comparison is estimated from
+	 * the numbers of bytes of the files ({@link FullTextComparisonOrganizer#FILE_SIZE}) and all
+	 * other features are off. The methods return this instance,
+	 * so that calls can be chained.
+	 */
+	public static class Options {
+		
+		private ToLongFunction<Path> pSizeEstimator;
+		private ComparisonStatistics pStatistics;
+		private MemoryBudget pMemoryBudget;
+		private TokenSequencePrefetcher pPrefetcher;
+		
+		/**
+		 * Initializes a new instance of this class
+		 * with the default options.
+		 */
+		public Options() {
+			pSizeEstimator = FILE_SIZE;
+			pStatistics = null;
+			pMemoryBudget = null;
+			pPrefetcher = null;
+		}
+		
+		/**
+		 * Uses a custom estimation of file sizes for scheduling.
+		 * 
+		 * @param sizeEstimator
+		 * determines the size of a file (such as
+		 * {@link FullTextComparisonOrganizer#FILE_SIZE} or the number of tokens),
+		 * which is used for estimating the cost of comparisons;
+		 * not {@code null}
+		 * 
+		 * @return
+		 * this instance
+		 */
+		public Options sizeEstimator(final ToLongFunction<Path> sizeEstimator) {
+			pSizeEstimator = sizeEstimator;
+			return this;
+		}
+		
+		/**
+		 * Records the progress of the comparisons.
+		 * 
+		 * @param statistics
+		 * the statistics to record the numbers and estimated costs
+		 * of planned and done comparisons in;
+		 * {@code null} for no statistics
+		 * 
+		 * @return
+		 * this instance
+		 */
+		public Options statistics(final ComparisonStatistics statistics) {
+			pStatistics = statistics;
+			return this;
+		}
+		
+		/**
+		 * Admits comparisons according to a memory budget.
+		 * 
+		 * @param memoryBudget
+		 * the budget the comparisons performed concurrently
+		 * must fit into; {@code null} for no limit
+		 * 
+		 * @return
+		 * this instance
+		 */
+		public Options memoryBudget(final MemoryBudget memoryBudget) {
+			pMemoryBudget = memoryBudget;
+			return this;
+		}
+		
+		/**
+		 * Loads the files of scheduled comparisons ahead.
+		 * 
+		 * @param prefetcher
+		 * the prefetcher loading the files of the scheduled comparisons
+		 * into the memory of the comparer; {@code null} for no prefetching
+		 * 
+		 * @return
+		 * this instance
+		 */
+		public Options prefetcher(final TokenSequencePrefetcher prefetcher) {
+			pPrefetcher = prefetcher;
+			return this;
+		}
+		
 	}
 	
 }
@@ -0,0 +1,93 @@
+/* This Source Code Form is subject to the terms of the hermA Licence.
+ * If a copy of the licence was not distributed with this file, You have
+ * received this Source Code Form in a manner that does not comply with
+ * the terms of the licence.
+ */
+package batchsed;
+
+/**
+ * A maximum substring edit distance beyond which the exact value
+ * is not of interest, either as an absolute number or relative
+ * to the length of the sequence to become a sub-sequence
+ * of the other.
+ */
+public class MaximumDistance {
+	
+	private final long pAbsolute;
+	private final double pRelative;
+	
+	private MaximumDistance(final long absolute, final double relative) {
+		pAbsolute = absolute;
+		pRelative = relative;
+	}
+	
+	/**
+	 * Returns an absolute maximum distance.
+	 * 
+	 * @param maxDistance
+	 * the maximum distance; not negative
+	 * 
+	 * @return
+	 * the maximum distance; not {@code null}
+	 */
+	public static MaximumDistance absolute(final long maxDistance) {
+		if (maxDistance < 0L)
+			throw new IllegalArgumentException("negative maximum distance: " + maxDistance);
+		return new MaximumDistance(maxDistance, Double.NaN);
+	}
+	
+	/**
+	 * Returns a maximum distance relative to the length of the
+	 * sequence to become a sub-sequence of the other.
+	 * 
+	 * @param fraction
+	 * the maximum distance as a fraction of the length of the
+	 * sequence; not negative
+	 * 
+	 * @return
+	 * the maximum distance; not {@code null}
+	 */
+	public static MaximumDistance relative(final double fraction) {
+		if (!(fraction >= 0.0))
+			throw new IllegalArgumentException("negative maximum distance: " + fraction);
+		return new MaximumDistance(-1L, fraction);
+	}
+	
+	/**
+	 * Parses a maximum distance, which is either a non-negative
+	 * integer (an absolute maximum distance) or a non-negative
+	 * decimal number followed by {@code %} (a percentage of the
+	 * length of the sequence to become a sub-sequence of the other).
+	 * 
+	 * @param s
+	 * the string to parse; not {@code null}
+	 * 
+	 * @return
+	 * the maximum distance; not {@code null}
+	 * 
+	 * @throws IllegalArgumentException
+	 * if the string does not specify a maximum distance
+	 */
+	public static MaximumDistance parse(final String s) {
+		if (s.endsWith("%"))
+			return relative(Double.parseDouble(s.substring(0, s.length() - 1)) / 100.0);
+		return absolute(Long.parseLong(s));
+	}
+	
+	/**
+	 * Returns the maximum distance for a sequence of a given length
+	 * to become a sub-sequence of another sequence.
+	 * 
+	 * @param subSequenceSize
+	 * the length of the sequence to become a sub-sequence
+	 * 
+	 * @return
+	 * the maximum distance; not negative
+	 */
+	public long forSubSequence(final long subSequenceSize) {
+		if (pAbsolute >= 0L)
+			return pAbsolute;
+		return (long) Math.floor(pRelative * subSequenceSize);
+	}
+	
+}
@@ -0,0 +1,136 @@
+/* This Source Code Form is subject to the terms of the hermA Licence.
+ * If a copy of the licence was not distributed with this file, You have
+ * received this Source Code Form in a manner that does not comply with
+ * the terms of the licence.
+ */
+package batchsed;
+
+import java.nio.file.Path;
+import java.util.function.ToLongFunction;
+
+/**
+ * Admits comparisons to be performed concurrently as long as
+ * their estimated memory footprints fit into a fixed number of bytes,
+ * so that many small comparisons can run alongside a few large ones
+ * without the large ones running out of memory together.
+ * <p>
+ * The footprint of a comparison is estimated as the sum of the
+ * footprints of its files, which are determined by a function
+ * (such as a multiple of the number of bytes or tokens of a file,
+ * covering the token sequence and the arrays of the computation).
+ * A thread calls {@link #acquire(Path...)} before performing a
+ * comparison, which waits until the footprint fits into the budget
+ * besides the footprints of the comparisons in progress,
+ * and {@link #release(long)} afterwards. A comparison whose footprint
+ * exceeds the whole budget is admitted when no other comparison
+ * is in progress, and no other comparison is admitted until it
+ * has been released.
+ * Comparisons are admitted in the order in which they arrive: while
+ * a comparison is waiting, later comparisons wait behind it even if
+ * they would fit, so that a large comparison is not overtaken by
+ * a stream of small ones.
+ * This class is thread safe.
+ */
+public class MemoryBudget {
+	
+	private final long pCapacity;
+	private final ToLongFunction<Path> pFootprint;
+	
+	private long pUsed;
+	
+	// the ticket of the next comparison to arrive and
+	// the ticket of the oldest comparison waiting
+	private long pNextTicket;
+	private long pNextAdmitted;
+	
+	/**
+	 * Initializes a new instance of this class.
+	 * 
+	 * @param capacity
+	 * the number of bytes available to the comparisons
+	 * in progress; positive
+	 * 
+	 * @param footprint
+	 * determines the estimated number of bytes needed for a file
+	 * during a comparison; not {@code null}, thread safe
+	 */
+	public MemoryBudget(final long capacity, final ToLongFunction<Path> footprint) {
+		pCapacity = capacity;
+		pFootprint = footprint;
+		pUsed = 0L;
+		pNextTicket = 0L;
+		pNextAdmitted = 0L;
+	}
+	
+	/**
+	 * Waits until a comparison of the given files fits into this
+	 * budget and all comparisons that arrived earlier have been
+	 * admitted, and reserves its estimated footprint. If the calling
+	 * thread is interrupted while waiting, it continues waiting
+	 * and its interrupt status is set when this method returns.
+	 * 
+	 * @param files
+	 * the files of the comparison; not {@code null}
+	 * 
+	 * @return
+	 * the number of bytes reserved, to be passed to
+	 * {@link #release(long)} when the comparison is done
+	 */
+	public long acquire(final Path... files) {
+		long bytes = 0L;
+		for (final Path file : files)
+			bytes += pFootprint.applyAsLong(file);
+		
+		boolean interrupted = false;
+		synchronized (this) {
+			final long ticket = pNextTicket++;
+			while ((ticket != pNextAdmitted) || ((pUsed > 0L) && (pUsed + bytes > pCapacity))) {
+				try {
+					wait();
+				} catch (final InterruptedException e) {
+					interrupted = true;
+				}
+			}
+			pUsed += bytes;
+			pNextAdmitted++;
+			// the next comparison may fit as well
+			notifyAll();
+		}
+		if (interrupted)
+			Thread.currentThread().interrupt();
+		return bytes;
+	}
+	
+	/**
+	 * Releases bytes reserved with {@link #acquire(Path...)}.
+	 * 
+	 * @param bytes
+	 * the number of bytes returned by {@link #acquire(Path...)}
+	 */
+	public synchronized void release(final long bytes) {
+		pUsed -= bytes;
+		notifyAll();
+	}
+	
+	/**
+	 * Returns the number of bytes currently reserved.
+	 * 
+	 * @return
+	 * the number of bytes reserved by the comparisons in progress
+	 */
+	public synchronized long getUsed() {
+		return pUsed;
+	}
+	
+	/**
+	 * Returns the number of bytes available to the comparisons
+	 * in progress.
+	 * 
+	 * @return
+	 * the capacity of this budget
+	 */
+	public long getCapacity() {
+		return pCapacity;
+	}
+	
+}
@@ -0,0 +1,230 @@
+/* This Source Code Form is subject to the terms of the hermA Licence.
+ * If a copy of the licence was not distributed with this file, You have
+ * received this Source Code Form in a manner that does not comply with
+ * the terms of the licence.
+ */
+package batchsed;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Finds candidate pairs of similar full texts without comparing
+ * every file with every other file, with MinHash sketches and
+ * locality-sensitive hashing (LSH).
+ * <p>
+ * The <i>shingles</i> of a token sequence are its sub-sequences of
+ * a fixed number of consecutive tokens. Two files whose sets of
+ * shingles have the Jaccard similarity <i>s</i> (the number of shingles
+ * they have in common divided by the number of shingles in either file)
+ * agree in each value of their MinHash sketches with probability
+ * <i>s</i>. The sketches are computed by one-permutation hashing:
+ * the hash values of the shingles are distributed over
+ * <i>b</i> &middot; <i>r</i> bins, the sketch consists of the smallest
+ * hash value in every bin, and empty bins take the value of the next
+ * non-empty bin (which keeps the probability of agreement, but needs
+ * only one hash value per shingle). The sketch is divided into
+ * <i>b</i> bands of <i>r</i> values, and two files become a candidate
+ * pair if they agree in all values of at least one band, which happens
+ * with probability 1 &minus; (1 &minus; <i>s</i><sup><i>r</i></sup>)<sup><i>b</i></sup>.
+ * This probability rises steeply around the similarity
+ * (1/<i>b</i>)<sup>1/<i>r</i></sup>: more bands find more pairs
+ * of lower similarity (higher recall), more rows per band fewer.
+ * <p>
+ * The sketches are computed in parallel, with one file in memory per
+ * thread at a time; only the sketches of all files are kept in memory.
+ * As a file can become a sub-sequence of a much longer file only if
+ * the shingles of the shorter file make up a large part of those of
+ * the longer one, Jaccard similarities are best suited to files of
+ * similar lengths (such as near-duplicates).
+ */
+public class MinHashCandidates {
+	
+	/**
+	 * The default number of tokens per shingle.
+	 */
+	public static final int DEFAULT_SHINGLE_LENGTH = 5;
+	
+	private static final long HASH_BASE = 0x9E3779B97F4A7C15L;
+	
+	private final TokenSequenceLoader pLoader;
+	private final int pBands;
+	private final int pRows;
+	private final int pShingleLength;
+	
+	/**
+	 * Initializes a new instance of this class.
+	 * 
+	 * @param loader
+	 * the loader for the token sequences of the files;
+	 * not {@code null}, thread safe
+	 * 
+	 * @param bands
+	 * the number of bands <i>b</i>; positive
+	 * 
+	 * @param rows
+	 * the number of values per band <i>r</i>; positive
+	 * 
+	 * @param shingleLength
+	 * the number of tokens per shingle; positive
+	 */
+	public MinHashCandidates(final TokenSequenceLoader loader, final int bands, final int rows, final int shingleLength) {
+		if ((bands <= 0) || (rows <= 0) || ((long) bands * rows > Integer.MAX_VALUE) || (shingleLength <= 0))
+			throw new IllegalArgumentException("invalid parameters: " + bands + ", " + rows + ", " + shingleLength);
+		pLoader = loader;
+		pBands = bands;
+		pRows = rows;
+		pShingleLength = shingleLength;
+	}
+	
+	/**
+	 * Computes the MinHash sketch of a token sequence.
+	 * 
+	 * @param tokens
+	 * the token sequence; not {@code null}
+	 * 
+	 * @return
+	 * the sketch (<i>b</i> &middot; <i>r</i> values);
+	 * {@code null} if the token sequence is empty
+	 */
+	public int[] sketch(final int[] tokens) {
+		if (tokens.length == 0)
+			return null;
+		final int bins = pBands * pRows;
+		// smallest hash values as non-negative longs; -1 for empty bins
+		final long[] minima = new long[bins];
+		Arrays.fill(minima, -1L);
+		
+		// sequences shorter than a shingle form a single shingle
+		final int length = Math.min(pShingleLength, tokens.length);
+		long power = 1L;
+		for (int t = 1; t < length; t++)
+			power *= HASH_BASE;
+		long hash = 0L;
+		for (int i = 0; i < tokens.length; i++) {
+			if (i >= length)
+				hash -= tokens[i - length] * power;
+			hash = hash * HASH_BASE + tokens[i];
+			if (i < length - 1)
+				continue;
+			final long mixed = mix(hash);
+			final int bin = (int) (((mixed >>> 32) * bins) >>> 32);
+			final long value = mixed & 0xFFFFFFFFL;
+			if ((minima[bin] < 0L) || (value < minima[bin]))
+				minima[bin] = value;
+		}
+		
+		// densification: every empty bin takes the value of the next
+		// non-empty bin (cyclically), changed by the distance
+		final int[] sketch = new int[bins];
+		int next = 0;
+		while (minima[next] < 0L)
+			next++;
+		for (int bin = bins - 1; bin >= 0; bin--) {
+			if (minima[bin] >= 0L) {
+				next = bin;
+				sketch[bin] = (int) minima[bin];
+			} else {
+				final int distance = (next > bin) ? next - bin : next + bins - bin;
+				sketch[bin] = (int) mix(minima[next] + distance * HASH_BASE);
+			}
+		}
+		return sketch;
+	}
+	
+	/**
+	 * Finds the candidate pairs among a list of files. The sketches
+	 * are computed by the threads of the common {@link java.util.concurrent.ForkJoinPool};
+	 * the candidate pairs are passed to the consumer by the calling
+	 * thread only. A pair of files can be passed more than once
+	 * (if the files agree in several bands). Empty files
+	 * are not part of any candidate pair.
+	 * 
+	 * @param paths
+	 * the files; not {@code null}
+	 * 
+	 * @param consumer
+	 * receives the candidate pairs as indices in {@code paths},
+	 * the smaller index first; not {@code null}
+	 */
+	public void forEachCandidate(final List<Path> paths, final PairConsumer consumer) {
+		final int n = paths.size();
+		final int[][] sketches = new int[n][];
+		IntStream.range(0, n).parallel().forEach(i -> sketches[i] = sketch(pLoader.loadTokenSequence(paths.get(i))));
+		
+		// per band: the files sorted by a hash value of their band,
+		// as the hash value in the high and the index in the low bits
+		final long[] keys = new long[n];
+		for (int band = 0; band < pBands; band++) {
+			final int from = band * pRows;
+			int count = 0;
+			for (int i = 0; i < n; i++) {
+				final int[] sketch = sketches[i];
+				if (sketch == null)
+					continue;
+				long hash = band;
+				for (int row = from; row < from + pRows; row++)
+					hash = hash * HASH_BASE + sketch[row];
+				keys[count++] = (mix(hash) & 0xFFFFFFFF00000000L) | i;
+			}
+			Arrays.sort(keys, 0, count);
+			
+			int start = 0;
+			while (start < count) {
+				int end = start + 1;
+				while ((end < count) && ((keys[end] >>> 32) == (keys[start] >>> 32)))
+					end++;
+				for (int a = start; a < end; a++) {
+					final int index1 = (int) keys[a];
+					for (int b = a + 1; b < end; b++) {
+						final int index2 = (int) keys[b];
+						// different values of the band can have the same hash value
+						if (equal(sketches[index1], sketches[index2], from, from + pRows))
+							consumer.accept(index1, index2);
+					}
+				}
+				start = end;
+			}
+		}
+	}
+	
+	private static boolean equal(final int[] sketch1, final int[] sketch2, final int from, final int to) {
+		for (int row = from; row < to; row++)
+			if (sketch1[row] != sketch2[row])
+				return false;
+		return true;
+	}
+	
+	// finalization step of MurmurHash3
+	private static long mix(final long hash) {
+		long h = hash;
+		h ^= h >>> 33;
+		h *= 0xFF51AFD7ED558CCDL;
+		h ^= h >>> 33;
+		h *= 0xC4CEB93FE1A85A2BL;
+		h ^= h >>> 33;
+		return h;
+	}
+	
+	/**
+	 * Receives candidate pairs.
+	 */
+	@FunctionalInterface
+	public interface PairConsumer {
+		
+		/**
+		 * Receives a candidate pair.
+		 * 
+		 * @param index1
+		 * the index of the first file
+		 * 
+		 * @param index2
+		 * the index of the second file
+		 */
+		void accept(int index1, int index2);
+		
+	}
+	
+}
@@ -0,0 +1,117 @@
+/* This Source Code Form is subject to the terms of the hermA Licence.
+ * If a copy of the licence was not distributed with this file, You have
+ * received this Source Code Form in a manner that does not comply with
+ * the terms of the licence.
+ */
+package batchsed;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+
+/**
+ * {@link DirectionalFullTextComparer} implementation that loads the lines
+ * of the given files as sequence items (ignoring empty lines)
+ * and computes substring edit distances with graded substitution
+ * costs between similar lines, as determined by {@link TokenSimilarity},
+ * so that lines differing in a few characters (such as OCR errors)
+ * count as a fraction of a replacement.
+ * The substring edit distances are rounded to whole tokens.
+ * <p>
+ * For every comparison, the similar lines of the two files are found
+ * once, and the costs of replacing them by each other are taken from
+ * a cache shared by all comparisons. Optionally, the edit distances
+ * exceeding a {@link MaximumDistance} are reported as exceeded
+ * (they are computed in full, though), and the times spent on loading
+ * and computing are recorded in {@link ComparisonStatistics}.
+ * This class is thread safe.
+ */
+public class OcrFullTextComparer implements DirectionalFullTextComparer {
+	
+	private final TokenDictionary pDictionary;
+	private final TokenSimilarity pSimilarity;
+	private final MaximumDistance pMaxDistance;
+	private final ComparisonStatistics pStatistics;
+	
+	/**
+	 * Initializes a new instance of this class.
+	 * 
+	 * @param maxDistance
+	 * the maximum distance; {@code null} to report
+	 * all substring edit distances
+	 * 
+	 * @param statistics
+	 * the statistics to record the loading and computation
+	 * times in; {@code null} for no statistics
+	 */
+	public OcrFullTextComparer(final MaximumDistance maxDistance, final ComparisonStatistics statistics) {
+		pDictionary = new TokenDictionary();
+		pSimilarity = new TokenSimilarity();
+		pMaxDistance = maxDistance;
+		pStatistics = statistics;
+	}
+	
+	@Override
+	public FullTextComparison compare(final Path file1, final Path file2) {
+		final Tokens tokens = loadTokens(file1, file2);
+		return new FullTextComparison(compare(tokens, tokens.pTokens1, tokens.pTokens2), compare(tokens, tokens.pTokens2, tokens.pTokens1));
+	}
+	
+	@Override
+	public SubstringComparison compareDirection(final Path subSequenceFile, final Path superSequenceFile) {
+		final Tokens tokens = loadTokens(subSequenceFile, superSequenceFile);
+		return compare(tokens, tokens.pTokens1, tokens.pTokens2);
+	}
+	
+	private SubstringComparison compare(final Tokens tokens, final int[] subSequence, final int[] superSequence) {
+		final long start = System.nanoTime();
+		final long scaledDistance = tokens.pCosts.substringEditDistance(subSequence, superSequence);
+		if (pStatistics != null)
+			pStatistics.addComputation((long) subSequence.length * superSequence.length, System.nanoTime() - start);
+		final long ed = (scaledDistance + TokenSimilarity.SCALE / 2) / TokenSimilarity.SCALE;
+		if (pMaxDistance != null) {
+			final long maxDistance = pMaxDistance.forSubSequence(subSequence.length);
+			if (ed > maxDistance)
+				return new SubstringComparison(maxDistance, true, subSequence.length, superSequence.length);
+		}
+		return new SubstringComparison(ed, subSequence.length, superSequence.length);
+	}
+	
+	private Tokens loadTokens(final Path file1, final Path file2) {
+		final long start = System.nanoTime();
+		final String[] lines1;
+		final String[] lines2;
+		try {
+			lines1 = TextTokenSequenceLoader.loadTokens(file1);
+			lines2 = TextTokenSequenceLoader.loadTokens(file2);
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		if (pStatistics != null)
+			pStatistics.addLoad(System.nanoTime() - start);
+		
+		// local IDs for the arrays of the computation, global IDs
+		// for the cache
+		final TokenDictionary localDictionary = new TokenDictionary();
+		final int[] tokens1 = localDictionary.intern(lines1);
+		final int[] tokens2 = localDictionary.intern(lines2);
+		final String[] vocabulary = localDictionary.toArray();
+		final int[] ids = pDictionary.intern(vocabulary);
+		return new Tokens(tokens1, tokens2, pSimilarity.getSubstitutionCosts(vocabulary, ids));
+	}
+	
+	private static class Tokens {
+		
+		private final int[] pTokens1;
+		private final int[] pTokens2;
+		private final TokenSimilarity.SubstitutionCosts pCosts;
+		
+		public Tokens(final int[] tokens1, final int[] tokens2, final TokenSimilarity.SubstitutionCosts costs) {
+			pTokens1 = tokens1;
+			pTokens2 = tokens2;
+			pCosts = costs;
+		}
+		
+	}
+	
+}
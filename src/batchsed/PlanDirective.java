@@ -0,0 +1,228 @@
+/* This Source Code Form is subject to the terms of the hermA Licence.
+ * If a copy of the licence was not distributed with this file, You have
+ * received this Source Code Form in a manner that does not comply with
+ * the terms of the licence.
+ */
+package batchsed;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.function.IntToLongFunction;
+
+/**
+ * A line from the second section of the comparison plan input file
+ * that specifies many pairs of files at once: two sets of file
+ * indices separated by a tabulator character, standing for all pairs
+ * of a file from the first set and a different file from the second
+ * set. Each set is given as a comma-separated list of indices and
+ * ranges of indices (such as {@code 100-199}, both inclusive)
+ * or as {@code *} for all files; a line consisting only of
+ * {@code *} stands for all pairs of different files.
+ * Pairs contained in both orders are only included once.
+ * <p>
+ * The pairs are not materialized but enumerated one after another
+ * by {@link #next()}; the files of the first set in the outer loop,
+ * the files of the second set in the inner loop.
+ * This class is thread safe.
+ */
+public class PlanDirective {
+	
+	private static final String ALL = "*";
+	
+	private final int[] pFirst;
+	private final int[] pSecond;
+	private final BitSet pFirstSet;
+	private final BitSet pSecondSet;
+	
+	private int pFirstPosition;
+	private int pSecondPosition;
+	
+	private PlanDirective(final BitSet first, final BitSet second) {
+		pFirst = first.stream().toArray();
+		pSecond = second.stream().toArray();
+		pFirstSet = first;
+		pSecondSet = second;
+		
+		pFirstPosition = 0;
+		pSecondPosition = 0;
+	}
+	
+	/**
+	 * Determines whether a line from the second section of the
+	 * comparison plan input file is a directive (rather than
+	 * two single indices separated by a tabulator character).
+	 * 
+	 * @param line
+	 * the line; not {@code null}
+	 * 
+	 * @return
+	 * {@code true} if the line is a directive;
+	 * {@code false} otherwise
+	 */
+	public static boolean isDirective(final String line) {
+		for (int i = 0; i < line.length(); i++) {
+			final char c = line.charAt(i);
+			if (((c < '0') || (c > '9')) && (c != '\t'))
+				return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * Parses a directive.
+	 * 
+	 * @param line
+	 * the line from the second section of the comparison
+	 * plan input file; not {@code null}
+	 * 
+	 * @param fileCount
+	 * the number of files in the first section of the
+	 * comparison plan input file
+	 * 
+	 * @return
+	 * the directive; not {@code null}
+	 * 
+	 * @throws IllegalArgumentException
+	 * if the line is not a valid directive
+	 */
+	public static PlanDirective parse(final String line, final int fileCount) {
+		if (ALL.equals(line.trim())) {
+			final BitSet all = parseSet(ALL, fileCount, line);
+			return new PlanDirective(all, all);
+		}
+		final int tabIndex = line.indexOf('\t');
+		if (tabIndex < 0)
+			throw new IllegalArgumentException("invalid plan line: " + line);
+		return new PlanDirective(parseSet(line.substring(0, tabIndex), fileCount, line), parseSet(line.substring(tabIndex + 1), fileCount, line));
+	}
+	
+	/**
+	 * Orders the files of both sets by decreasing size,
+	 * so that the most expensive comparisons tend to be
+	 * enumerated first. This must be called before the
+	 * first call of {@link #next()}.
+	 * 
+	 * @param fileSize
+	 * determines the size of the file with a given index;
+	 * not {@code null}
+	 */
+	public synchronized void sortBySize(final IntToLongFunction fileSize) {
+		sortBySize(pFirst, fileSize);
+		sortBySize(pSecond, fileSize);
+	}
+	
+	/**
+	 * Returns the number of pairs of this directive.
+	 * 
+	 * @return
+	 * the number of pairs
+	 */
+	public long getPairCount() {
+		final long first = pFirst.length;
+		final long second = pSecond.length;
+		final long both = both().cardinality();
+		// pairs of the same file and pairs in both orders are excluded
+		return first * second - both - both * (both - 1L) / 2L;
+	}
+	
+	/**
+	 * Returns the sum of the products of the sizes of the files
+	 * of every pair of this directive.
+	 * 
+	 * @param fileSize
+	 * determines the size of the file with a given index;
+	 * not {@code null}
+	 * 
+	 * @return
+	 * the sum of the products of the file sizes
+	 */
+	public double getCost(final IntToLongFunction fileSize) {
+		final double first = sum(pFirst, fileSize);
+		final double second = sum(pSecond, fileSize);
+		final int[] both = both().stream().toArray();
+		final double sumBoth = sum(both, fileSize);
+		double squaresBoth = 0.0;
+		for (final int index : both) {
+			final double size = fileSize.applyAsLong(index);
+			squaresBoth += size * size;
+		}
+		// pairs of the same file and pairs in both orders are excluded
+		return first * second - squaresBoth - (sumBoth * sumBoth - squaresBoth) / 2.0;
+	}
+	
+	/**
+	 * Returns the next pair of file indices.
+	 * 
+	 * @return
+	 * a new array with the two indices of the next pair;
+	 * {@code null} if all pairs have been enumerated
+	 */
+	public synchronized int[] next() {
+		while (pFirstPosition < pFirst.length) {
+			final int index1 = pFirst[pFirstPosition];
+			while (pSecondPosition < pSecond.length) {
+				final int index2 = pSecond[pSecondPosition++];
+				// pairs in both orders are included with the
+				// smaller index first
+				if ((index1 != index2) && ((index1 < index2) || !pFirstSet.get(index2) || !pSecondSet.get(index1)))
+					return new int[] { index1, index2 };
+			}
+			pFirstPosition++;
+			pSecondPosition = 0;
+		}
+		return null;
+	}
+	
+	// files in both sets
+	private BitSet both() {
+		final BitSet both = (BitSet) pFirstSet.clone();
+		both.and(pSecondSet);
+		return both;
+	}
+	
+	private static double sum(final int[] indices, final IntToLongFunction fileSize) {
+		double sum = 0.0;
+		for (final int index : indices)
+			sum += fileSize.applyAsLong(index);
+		return sum;
+	}
+	
+	private static BitSet parseSet(final String set, final int fileCount, final String line) {
+		final BitSet indices = new BitSet(fileCount);
+		if (ALL.equals(set.trim())) {
+			indices.set(0, fileCount);
+			return indices;
+		}
+		try {
+			for (final String element : set.split(",")) {
+				final int hyphenIndex = element.indexOf('-');
+				final int from;
+				final int to;
+				if (hyphenIndex < 0) {
+					from = Integer.parseInt(element.trim());
+					to = from;
+				} else {
+					from = Integer.parseInt(element.substring(0, hyphenIndex).trim());
+					to = Integer.parseInt(element.substring(hyphenIndex + 1).trim());
+				}
+				if ((from < 0) || (to >= fileCount) || (from > to))
+					throw new IllegalArgumentException("invalid index range in plan line: " + line);
+				indices.set(from, to + 1);
+			}
+		} catch (final NumberFormatException e) {
+			throw new IllegalArgumentException("invalid plan line: " + line, e);
+		}
+		return indices;
+	}
+	
+	private static void sortBySize(final int[] indices, final IntToLongFunction fileSize) {
+		final long[] keys = new long[indices.length];
+		for (int i = 0; i < indices.length; i++)
+			// sizes descending, then indices ascending
+			keys[i] = ((Integer.MAX_VALUE - Math.max(0L, Math.min(fileSize.applyAsLong(indices[i]), Integer.MAX_VALUE))) << 32) | indices[i];
+		Arrays.sort(keys);
+		for (int i = 0; i < indices.length; i++)
+			indices[i] = (int) keys[i];
+	}
+	
+}
@@ -0,0 +1,365 @@
+/* This Source Code Form is subject to the terms of the hermA Licence.
+ * If a copy of the licence was not distributed with this file, You have
+ * received this Source Code Form in a manner that does not comply with
+ * the terms of the licence.
+ */
+package batchsed;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.PriorityQueue;
+import java.util.function.IntToLongFunction;
+
+/**
+ * A directory shared by several processes (possibly on
+ * different machines) for distributing the comparisons
+ * of a comparison plan.
+ * <p>
+ * A coordinator partitions the plan into shards with
+ * {@link #partition(Path, int, IntToLongFunction)}.
+ * Every shard is a comparison plan input file of its own
+ * (named {@code shard-}<i>n</i>{@code .plan}) with the same
+ * first section as the original plan, so that the indices
+ * are the same in all shards, and explicit pairs of indices
+ * in the second section. The pairs are assigned to the shards
+ * greedily, every pair to the shard with the smallest sum of
+ * estimated costs so far (the product of the token counts of
+ * the two files), most expensive pairs first.
+ * <p>
+ * Workers pull shards with {@link #claim(String)}, which renames
+ * a shard atomically, so that every shard is claimed by exactly
+ * one worker, write the results of a shard to its output file
+ * ({@link #getOutputFile(Path)}) and mark it as done with
+ * {@link #complete(Path)}. A worker restarted with the same ID
+ * first claims the shards it had claimed before, whose output
+ * files then serve for resuming as usual.
+ * <p>
+ * Finally, {@link #merge(Path)} appends the results of all shards
+ * to an output file which can be used with {@link CombinationTable}
+ * like the output file of a single process.
+ */
+public class ShardDirectory {
+	
+	private static final String PREFIX = "shard-";
+	private static final String PLAN_SUFFIX = ".plan";
+	private static final String CLAIMED_INFIX = ".plan.claimed-";
+	private static final String OUTPUT_SUFFIX = ".out";
+	private static final String DONE_SUFFIX = ".done";
+	
+	private final Path pDirectory;
+	
+	/**
+	 * Initializes a new instance of this class.
+	 * 
+	 * @param directory
+	 * (a {@link Path} locating) the shared directory;
+	 * not {@code null}
+	 */
+	public ShardDirectory(final Path directory) {
+		pDirectory = directory;
+	}
+	
+	/**
+	 * Partitions a comparison plan into shards.
+	 * Pairs specified explicitly more than once are
+	 * only included once; however, pairs of
+	 * {@link PlanDirective}s are only checked against
+	 * the explicitly specified pairs, not against each other.
+	 * The shards are written to temporary files first and
+	 * renamed when they are complete, so that workers may
+	 * already be waiting.
+	 * 
+	 * @param planFile
+	 * (a {@link Path} locating) the comparison plan input file;
+	 * not {@code null}
+	 * 
+	 * @param shardCount
+	 * the number of shards (should be a multiple of the number
+	 * of workers for balancing differences in their speed)
+	 * 
+	 * @param tokenCount
+	 * determines the number of tokens of the file with a given
+	 * index in the first section of the plan; not {@code null}
+	 * 
+	 * @throws IOException
+	 * if an I/O error occurs
+	 * 
+	 * @throws IllegalArgumentException
+	 * if the shard count is not positive, a line of the plan
+	 * is invalid or the directory already contains shards
+	 */
+	public void partition(final Path planFile, final int shardCount, final IntToLongFunction tokenCount) throws IOException {
+		if (shardCount <= 0)
+			throw new IllegalArgumentException("invalid number of shards: " + shardCount);
+		if (!list(PREFIX + "*").isEmpty())
+			throw new IllegalArgumentException("directory already contains shards: " + pDirectory);
+		
+		final ArrayList<String> filenames = new ArrayList<>();
+		final CombinationTable explicitPairs = new CombinationTable();
+		final ArrayList<long[]> pairs = new ArrayList<>();
+		final ArrayList<PlanDirective> directives = new ArrayList<>();
+		try (final BufferedReader reader = Files.newBufferedReader(planFile, StandardCharsets.UTF_8)) {
+			while (true) {
+				final String line = reader.readLine();
+				if ((line == null) || "".equals(line))
+					break;
+				filenames.add(line);
+			}
+			while (true) {
+				final String line = reader.readLine();
+				if (line == null)
+					break;
+				if (PlanDirective.isDirective(line)) {
+					final PlanDirective directive = PlanDirective.parse(line, filenames.size());
+					directive.sortBySize(tokenCount);
+					directives.add(directive);
+					continue;
+				}
+				final int tabIndex = line.indexOf('\t');
+				if (tabIndex < 0)
+					throw new IllegalArgumentException("invalid plan line: " + line);
+				final int index1 = Integer.parseInt(line.substring(0, tabIndex));
+				final int index2 = Integer.parseInt(line.substring(tabIndex + 1));
+				if (explicitPairs.addCombination(index1, index2))
+					pairs.add(new long[] { index1, index2, tokenCount.applyAsLong(index1) * tokenCount.applyAsLong(index2) });
+			}
+		}
+		pairs.sort((pair1, pair2) -> Long.compare(pair2[2], pair1[2]));
+		
+		final BufferedWriter[] writers = new BufferedWriter[shardCount];
+		final Path[] temporaryFiles = new Path[shardCount];
+		// shards ordered by the sum of the costs of their pairs,
+		// as pairs {cost, shard}
+		final PriorityQueue<double[]> shards = new PriorityQueue<>(shardCount, (shard1, shard2) -> Double.compare(shard1[0], shard2[0]));
+		try {
+			for (int i = 0; i < shardCount; i++) {
+				temporaryFiles[i] = pDirectory.resolve(PREFIX + String.format("%05d", Integer.valueOf(i)) + PLAN_SUFFIX + ".tmp");
+				writers[i] = Files.newBufferedWriter(temporaryFiles[i], StandardCharsets.UTF_8);
+				for (final String filename : filenames) {
+					writers[i].write(filename);
+					writers[i].write('\n');
+				}
+				writers[i].write('\n');
+				shards.add(new double[] { 0.0, i });
+			}
+			for (final long[] pair : pairs)
+				assign(shards, writers, (int) pair[0], (int) pair[1], pair[2]);
+			for (final PlanDirective directive : directives) {
+				while (true) {
+					final int[] pair = directive.next();
+					if (pair == null)
+						break;
+					if (!explicitPairs.containsCombination(pair[0], pair[1]))
+						assign(shards, writers, pair[0], pair[1], tokenCount.applyAsLong(pair[0]) * tokenCount.applyAsLong(pair[1]));
+				}
+			}
+		} finally {
+			for (final BufferedWriter writer : writers)
+				if (writer != null)
+					writer.close();
+		}
+		for (final Path temporaryFile : temporaryFiles) {
+			final String name = temporaryFile.getFileName().toString();
+			Files.move(temporaryFile, temporaryFile.resolveSibling(name.substring(0, name.length() - 4)), StandardCopyOption.ATOMIC_MOVE);
+		}
+	}
+	
+	/**
+	 * Claims a shard for a worker. Shards claimed by
+	 * the same worker before (and not yet completed)
+	 * are returned first.
+	 * 
+	 * @param workerId
+	 * the ID of the worker, unique among all workers;
+	 * not {@code null}
+	 * 
+	 * @return
+	 * (a {@link Path} locating) the comparison plan input file
+	 * of the claimed shard; {@code null} if there are no more
+	 * shards to claim
+	 * 
+	 * @throws IOException
+	 * if an I/O error occurs
+	 */
+	public Path claim(final String workerId) throws IOException {
+		final String claimedSuffix = CLAIMED_INFIX + sanitize(workerId);
+		final ArrayList<Path> claimed = list(PREFIX + "*" + claimedSuffix);
+		if (!claimed.isEmpty())
+			return claimed.get(0);
+		for (final Path shard : list(PREFIX + "*" + PLAN_SUFFIX)) {
+			final Path target = shard.resolveSibling(shard.getFileName().toString() + claimedSuffix.substring(PLAN_SUFFIX.length()));
+			try {
+				Files.move(shard, target, StandardCopyOption.ATOMIC_MOVE);
+				return target;
+			} catch (final FileNotFoundException | NoSuchFileException | FileAlreadyExistsException e) {
+				// claimed by another worker in the meantime
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * Returns the output file of a claimed shard.
+	 * 
+	 * @param claimedShard
+	 * the comparison plan input file of the shard as returned
+	 * by {@link #claim(String)}; not {@code null}
+	 * 
+	 * @return
+	 * (a {@link Path} locating) the output file; not {@code null}
+	 */
+	public Path getOutputFile(final Path claimedShard) {
+		return pDirectory.resolve(shardName(claimedShard) + OUTPUT_SUFFIX);
+	}
+	
+	/**
+	 * Marks a claimed shard as done.
+	 * 
+	 * @param claimedShard
+	 * the comparison plan input file of the shard as returned
+	 * by {@link #claim(String)}; not {@code null}
+	 * 
+	 * @throws IOException
+	 * if an I/O error occurs
+	 */
+	public void complete(final Path claimedShard) throws IOException {
+		Files.move(claimedShard, pDirectory.resolve(shardName(claimedShard) + DONE_SUFFIX), StandardCopyOption.ATOMIC_MOVE);
+	}
+	
+	/**
+	 * Returns the number of shards not yet done
+	 * (not yet claimed or claimed but not completed).
+	 * 
+	 * @return
+	 * the number of shards not yet done
+	 * 
+	 * @throws IOException
+	 * if an I/O error occurs
+	 */
+	public int getPendingShardCount() throws IOException {
+		return list(PREFIX + "*" + PLAN_SUFFIX + "*").size();
+	}
+	
+	/**
+	 * Appends the results in the output files of all shards
+	 * (including shards not yet done) to an output file,
+	 * omitting combinations already contained in that file
+	 * or in the output file of another shard, as well as an
+	 * incomplete last line of an output file (as left by a worker
+	 * terminated while writing). Merging again after more
+	 * shards are done thus only appends the new results.
+	 * 
+	 * @param outputFile
+	 * (a {@link Path} locating) the output file;
+	 * not {@code null}
+	 * 
+	 * @return
+	 * the number of lines appended
+	 * 
+	 * @throws IOException
+	 * if an I/O error occurs
+	 */
+	public long merge(final Path outputFile) throws IOException {
+		final CombinationTable combinationTable = new CombinationTable();
+		try {
+			combinationTable.load(outputFile);
+		} catch (final FileNotFoundException | NoSuchFileException e) {
+			// output file does not yet exist
+		}
+		long count = 0L;
+		try (final BufferedWriter writer = Files.newBufferedWriter(outputFile, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+			for (final Path shardOutput : list(PREFIX + "*" + OUTPUT_SUFFIX)) {
+				final boolean complete = endsWithLineBreak(shardOutput);
+				try (final BufferedReader reader = Files.newBufferedReader(shardOutput, StandardCharsets.UTF_8)) {
+					String line = reader.readLine();
+					while (line != null) {
+						final String next = reader.readLine();
+						if ((next == null) && !complete)
+							break;
+						final int tabIndex1 = line.indexOf('\t');
+						final int tabIndex2 = (tabIndex1 < 0) ? -1 : line.indexOf('\t', tabIndex1 + 1);
+						if (tabIndex2 < 0)
+							throw new IllegalArgumentException("line has wrong format: " + line + " in " + shardOutput);
+						final int index1 = Integer.parseInt(line.substring(0, tabIndex1));
+						final int index2 = Integer.parseInt(line.substring(tabIndex1 + 1, tabIndex2));
+						if (combinationTable.addCombination(index1, index2)) {
+							writer.write(line);
+							writer.write('\n');
+							count++;
+						}
+						line = next;
+					}
+				}
+			}
+		}
+		return count;
+	}
+	
+	private static void assign(final PriorityQueue<double[]> shards, final BufferedWriter[] writers, final int index1, final int index2, final long cost) {
+		final double[] shard = shards.poll();
+		try {
+			final BufferedWriter writer = writers[(int) shard[1]];
+			writer.write(Integer.toString(index1));
+			writer.write('\t');
+			writer.write(Integer.toString(index2));
+			writer.write('\n');
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		shard[0] += cost;
+		shards.add(shard);
+	}
+	
+	private static boolean endsWithLineBreak(final Path file) throws IOException {
+		try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			final long size = channel.size();
+			if (size == 0L)
+				return true;
+			final ByteBuffer buffer = ByteBuffer.allocate(1);
+			channel.read(buffer, size - 1L);
+			return buffer.get(0) == '\n';
+		}
+	}
+	
+	// the name of a shard without suffixes
+	private static String shardName(final Path shard) {
+		final String name = shard.getFileName().toString();
+		return name.substring(0, name.indexOf('.'));
+	}
+	
+	private static String sanitize(final String workerId) {
+		final StringBuilder sb = new StringBuilder(workerId.length());
+		for (int i = 0; i < workerId.length(); i++) {
+			final char c = workerId.charAt(i);
+			sb.append((((c >= 'a') && (c <= 'z')) || ((c >= 'A') && (c <= 'Z')) || ((c >= '0') && (c <= '9')) || (c == '-') || (c == '_')) ? c : '_');
+		}
+		return sb.toString();
+	}
+	
+	// the files matching a glob pattern, sorted by name
+	private ArrayList<Path> list(final String glob) throws IOException {
+		final ArrayList<Path> files = new ArrayList<>();
+		try (final DirectoryStream<Path> stream = Files.newDirectoryStream(pDirectory, glob)) {
+			for (final Path file : stream)
+				files.add(file);
+		}
+		Collections.sort(files);
+		return files;
+	}
+	
+}
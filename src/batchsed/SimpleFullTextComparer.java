@@ -7,44 +7,359 @@ package batchsed;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.function.Predicate;
-import java.util.stream.Stream;
 
 /**
- * {@link FullTextComparer} implementation that loads the lines
+ * {@link DirectionalFullTextComparer} implementation that loads the lines
  * of the given files as sequence items (ignoring empty lines)
  * and computes substring edit distances with unit costs
  * in both directions (subject to {@link String#equals(Object)}).
+ * The tokens are mapped to {@code int} IDs before the comparison,
+ * either with a {@link TokenDictionary} for each pair of files
+ * or by a {@link TokenSequenceLoader} shared by all comparisons.
+ * Optionally, the computations stop at a {@link MaximumDistance};
+ * then, a comparison is skipped if a lower bound of the substring
+ * edit distance (computed with {@link SubstringEditDistanceBounds})
+ * already exceeds the maximum distance.
+ * Also optionally, the intermediate states of long computations
+ * are saved to {@link Checkpoint} files in a {@link CheckpointDirectory},
+ * which are deleted when the comparison has been released,
+ * and the times spent on loading and computing are recorded
+ * in {@link ComparisonStatistics}.
+ * Without a maximum distance and checkpoints, the two directions
+ * of a comparison with {@link #compare(Path, Path)} are computed
+ * in one pass with
+ * {@link BitParallelSubstringEditDistance#bidirectionalSubstringEditDistance(int[], int[])}.
+ * For pairs whose substring edit distance does not exceed a second,
+ * typically smaller maximum distance, the {@link SubstringAlignment}
+ * can be computed as well.
+ * The same applies to the comparisons of one file with many other files
+ * with {@link #compareAll(Path, Path[])}, which prepares the one file
+ * only once for all comparisons (with
+ * {@link BitParallelSubstringEditDistance#bidirectionalSubstringEditDistances(int[], int[][])}).
+ * For collections with many near-duplicates, the substring edit
+ * distances can be computed with {@link AnchoredSubstringEditDistance}.
  * This class is thread safe
- * as it does not have any internal state.
+ * as it does not have any internal state
+ * (other than the thread safe {@link TokenSequenceLoader},
+ * {@link CheckpointDirectory} and {@link ComparisonStatistics}).
  */
-public class SimpleFullTextComparer implements FullTextComparer {
+public class SimpleFullTextComparer implements DirectionalFullTextComparer, BatchFullTextComparer {
 	
-	private static final Predicate<String> NOT_EMPTY = s -> !"".equals(s);
+	private final TokenSequenceLoader pLoader;
+	private final MaximumDistance pMaxDistance;
+	private final CheckpointDirectory pCheckpoints;
+	private final ComparisonStatistics pStatistics;
+	private final MaximumDistance pAlignmentMaxDistance;
+	private final boolean pEditScripts;
+	private final boolean pAnchored;
+	
+	/**
+	 * Initializes a new instance of this class that loads
+	 * the files of each comparison with a new {@link TokenDictionary}.
+	 */
+	public SimpleFullTextComparer() {
+		this(null, new Options());
+	}
+	
+	/**
+	 * Initializes a new instance of this class that loads
+	 * the files with a given {@link TokenSequenceLoader}.
+	 * 
+	 * @param loader
+	 * the loader for the token sequences of the files;
+	 * not {@code null}
+	 */
+	public SimpleFullTextComparer(final TokenSequenceLoader loader) {
+		this(loader, new Options());
+	}
+	
+	/**
+	 * Initializes a new instance of this class that loads
+	 * the files with a given {@link TokenSequenceLoader}
+	 * and uses the given optional features.
+	 * 
+	 * @param loader
+	 * the loader for the token sequences of the files;
+	 * {@code null} to load the files of each comparison
+	 * with a new {@link TokenDictionary}
+	 * 
+	 * @param options
+	 * the optional features; not {@code null}, read only
+	 * by this constructor
+	 */
+	public SimpleFullTextComparer(final TokenSequenceLoader loader, final Options options) {
+		pLoader = loader;
+		pMaxDistance = options.pMaxDistance;
+		pCheckpoints = options.pCheckpoints;
+		pStatistics = options.pStatistics;
+		pAlignmentMaxDistance = options.pAlignmentMaxDistance;
+		pEditScripts = options.pEditScripts;
+		pAnchored = options.pAnchored;
+	}
 	
 	@Override
 	public FullTextComparison compare(final Path file1, final Path file2) {
-		final String[] tokens1, tokens2;
+		final int[][] tokens = loadTokens(file1, file2);
+		final int[] tokens1 = tokens[0];
+		final int[] tokens2 = tokens[1];
+		
+		if (isBidirectional(tokens1, tokens2)) {
+			final long start = System.nanoTime();
+			final long[] ed = BitParallelSubstringEditDistance.bidirectionalSubstringEditDistance(tokens1, tokens2);
+			if (pStatistics != null)
+				pStatistics.addComputation(2L * tokens1.length * tokens2.length, System.nanoTime() - start);
+			return comparison(ed, tokens1, tokens2);
+		}
+		return new FullTextComparison(compare(tokens1, tokens2, checkpoint(file1, file2)), compare(tokens2, tokens1, checkpoint(file2, file1)));
+	}
+	
+	@Override
+	public FullTextComparison[] compareAll(final Path file, final Path[] otherFiles) {
+		final Path[] files = new Path[otherFiles.length + 1];
+		files[0] = file;
+		System.arraycopy(otherFiles, 0, files, 1, otherFiles.length);
+		final int[][] tokens = loadTokens(files);
+		final int[] tokens1 = tokens[0];
+		final FullTextComparison[] comparisons = new FullTextComparison[otherFiles.length];
+		
+		// the other files to compare in the batch
+		final int[] batch = new int[otherFiles.length];
+		int batchSize = 0;
+		long cells = 0L;
+		for (int k = 0; k < otherFiles.length; k++) {
+			final int[] tokens2 = tokens[k + 1];
+			if (isBidirectional(tokens1, tokens2)) {
+				batch[batchSize++] = k;
+				cells += (long) tokens1.length * tokens2.length;
+			} else {
+				comparisons[k] = new FullTextComparison(compare(tokens1, tokens2, checkpoint(file, otherFiles[k])), compare(tokens2, tokens1, checkpoint(otherFiles[k], file)));
+			}
+		}
+		if (batchSize > 0) {
+			final int[][] sequences2 = new int[batchSize][];
+			for (int b = 0; b < batchSize; b++)
+				sequences2[b] = tokens[batch[b] + 1];
+			final long start = System.nanoTime();
+			final long[][] ed = BitParallelSubstringEditDistance.bidirectionalSubstringEditDistances(tokens1, sequences2);
+			if (pStatistics != null)
+				pStatistics.addComputation(2L * cells, System.nanoTime() - start);
+			for (int b = 0; b < batchSize; b++)
+				comparisons[batch[b]] = comparison(ed[b], tokens1, sequences2[b]);
+		}
+		return comparisons;
+	}
+	
+	@Override
+	public SubstringComparison compareDirection(final Path subSequenceFile, final Path superSequenceFile) {
+		final int[][] tokens = loadTokens(subSequenceFile, superSequenceFile);
+		final int[] subSequence = tokens[0];
+		final int[] superSequence = tokens[1];
+		
+		return compare(subSequence, superSequence, checkpoint(subSequenceFile, superSequenceFile));
+	}
+	
+	@Override
+	public void release(final Path file1, final Path file2) {
+		if (pCheckpoints != null)
+			pCheckpoints.delete(file1, file2);
+	}
+	
+	// whether both directions are computed together (in one pass
+	// or in the batch of compareAll), which is the case if the
+	// computations are neither bounded nor parallel nor saved
+	// to checkpoints
+	private boolean isBidirectional(final int[] tokens1, final int[] tokens2) {
+		return (pMaxDistance == null) && (pCheckpoints == null) && !pAnchored && ((long) tokens1.length * tokens2.length < BitParallelSubstringEditDistance.PARALLEL_THRESHOLD);
+	}
+	
+	// the result of both directions computed together
+	private FullTextComparison comparison(final long[] ed, final int[] tokens1, final int[] tokens2) {
+		return new FullTextComparison(align(new SubstringComparison(ed[0], tokens1.length, tokens2.length), tokens1, tokens2), align(new SubstringComparison(ed[1], tokens2.length, tokens1.length), tokens2, tokens1));
+	}
+	
+	private SubstringComparison compare(final int[] subSequence, final int[] superSequence, final Checkpoint checkpoint) {
+		if (pStatistics == null)
+			return align(computeDistance(subSequence, superSequence, checkpoint), subSequence, superSequence);
+		final long start = System.nanoTime();
+		final SubstringComparison comparison = align(computeDistance(subSequence, superSequence, checkpoint), subSequence, superSequence);
+		pStatistics.addComputation((long) subSequence.length * superSequence.length, System.nanoTime() - start);
+		return comparison;
+	}
+	
+	private SubstringComparison computeDistance(final int[] subSequence, final int[] superSequence, final Checkpoint checkpoint) {
+		if (pMaxDistance == null) {
+			final long ed = pAnchored ? AnchoredSubstringEditDistance.substringEditDistance(subSequence, superSequence, checkpoint) : SubstringEditDistance.substringEditDistance(subSequence, superSequence, checkpoint);
+			return new SubstringComparison(ed, subSequence.length, superSequence.length);
+		}
+		final long maxDistance = pMaxDistance.forSubSequence(subSequence.length);
+		final long lowerBound = SubstringEditDistanceBounds.lowerBound(subSequence, superSequence);
+		if (lowerBound > maxDistance)
+			// the substring edit distance is greater than lowerBound - 1 (>= maxDistance)
+			return new SubstringComparison(lowerBound - 1L, true, subSequence.length, superSequence.length);
+		final long ed = pAnchored ? AnchoredSubstringEditDistance.boundedSubstringEditDistance(subSequence, superSequence, maxDistance, checkpoint) : SubstringEditDistance.substringEditDistance(subSequence, superSequence, maxDistance, checkpoint);
+		if (ed > maxDistance)
+			return new SubstringComparison(maxDistance, true, subSequence.length, superSequence.length);
+		return new SubstringComparison(ed, subSequence.length, superSequence.length);
+	}
+	
+	// adds the alignment if the distance is small enough
+	private SubstringComparison align(final SubstringComparison comparison, final int[] subSequence, final int[] superSequence) {
+		if ((pAlignmentMaxDistance == null) || comparison.isEditDistanceExceeded() || (comparison.getEditDistance() > pAlignmentMaxDistance.forSubSequence(subSequence.length)))
+			return comparison;
+		return new SubstringComparison(SubstringAlignment.align(subSequence, superSequence, pEditScripts), subSequence.length, superSequence.length);
+	}
+	
+	private Checkpoint checkpoint(final Path subSequenceFile, final Path superSequenceFile) {
+		if (pCheckpoints == null)
+			return null;
+		return pCheckpoints.get(subSequenceFile, superSequenceFile);
+	}
+	
+	private int[][] loadTokens(final Path... files) {
+		if (pStatistics == null)
+			return readTokens(files);
+		final long start = System.nanoTime();
+		final int[][] tokens = readTokens(files);
+		pStatistics.addLoad(System.nanoTime() - start);
+		return tokens;
+	}
+	
+	private int[][] readTokens(final Path... files) {
+		final int[][] tokens = new int[files.length][];
+		if (pLoader != null) {
+			for (int k = 0; k < files.length; k++)
+				tokens[k] = pLoader.loadTokenSequence(files[k]);
+			return tokens;
+		}
 		try {
-			tokens1 = loadTokens(file1);
-			tokens2 = loadTokens(file2);
+			final TokenDictionary dictionary = new TokenDictionary();
+			for (int k = 0; k < files.length; k++)
+				tokens[k] = dictionary.intern(TextTokenSequenceLoader.loadTokens(files[k]));
+			return tokens;
 		} catch (final IOException e) {
 			throw new UncheckedIOException(e);
 		}
-		
-		final long ed12 = SubstringEditDistance.substringEditDistance(tokens1, tokens2, s -> 1, s -> 1, (s1, s2) -> s1.equals(s2) ? 0 : 1);
-		final long ed21 = SubstringEditDistance.substringEditDistance(tokens2, tokens1, s -> 1, s -> 1, (s1, s2) -> s1.equals(s2) ? 0 : 1);
-		
-		return new FullTextComparison(ed12, ed21, tokens1.length, tokens2.length);
 	}
 	
-	private static String[] loadTokens(final Path file) throws IOException {
-		try (final Stream<String> lines = Files.lines(file, StandardCharsets.UTF_8)) {
-			return lines.filter(NOT_EMPTY).toArray(String[]::new);
+	/**
+	 * The optional features of a {@link SimpleFullTextComparer},
+	 * all of which are off in a new instance. The methods return
+	 * this instance, so that calls can be chained.
+	 */
+	public static class Options {
+		
+		private MaximumDistance pMaxDistance;
+		private CheckpointDirectory pCheckpoints;
+		private ComparisonStatistics pStatistics;
+		private MaximumDistance pAlignmentMaxDistance;
+		private boolean pEditScripts;
+		private boolean pAnchored;
+		
+		/**
+		 * Initializes a new instance of this class
+		 * with all features off.
+		 */
+		public Options() {
+			pMaxDistance = null;
+			pCheckpoints = null;
+			pStatistics = null;
+			pAlignmentMaxDistance = null;
+			pEditScripts = false;
+			pAnchored = false;
+		}
+		
+		/**
+		 * Stops the computations at a maximum distance.
+		 * 
+		 * @param maxDistance
+		 * the maximum distance; {@code null} to always compute
+		 * the exact substring edit distances
+		 * 
+		 * @return
+		 * this instance
+		 */
+		public Options maxDistance(final MaximumDistance maxDistance) {
+			pMaxDistance = maxDistance;
+			return this;
+		}
+		
+		/**
+		 * Saves the intermediate states of long computations.
+		 * 
+		 * @param checkpoints
+		 * the directory for the checkpoint files;
+		 * {@code null} for no checkpoints
+		 * 
+		 * @return
+		 * this instance
+		 */
+		public Options checkpoints(final CheckpointDirectory checkpoints) {
+			pCheckpoints = checkpoints;
+			return this;
+		}
+		
+		/**
+		 * Records the times spent on loading and computing.
+		 * 
+		 * @param statistics
+		 * the statistics to record the loading and computation
+		 * times in; {@code null} for no statistics
+		 * 
+		 * @return
+		 * this instance
+		 */
+		public Options statistics(final ComparisonStatistics statistics) {
+			pStatistics = statistics;
+			return this;
 		}
+		
+		/**
+		 * Computes the alignments of similar full texts.
+		 * 
+		 * @param alignmentMaxDistance
+		 * the maximum substring edit distance up to which
+		 * the alignment is computed; {@code null} for no alignments
+		 * 
+		 * @return
+		 * this instance
+		 */
+		public Options alignments(final MaximumDistance alignmentMaxDistance) {
+			pAlignmentMaxDistance = alignmentMaxDistance;
+			return this;
+		}
+		
+		/**
+		 * Determines whether the alignments include edit scripts.
+		 * 
+		 * @param editScripts
+		 * whether the alignments include edit scripts
+		 * 
+		 * @return
+		 * this instance
+		 */
+		public Options editScripts(final boolean editScripts) {
+			pEditScripts = editScripts;
+			return this;
+		}
+		
+		/**
+		 * Determines whether the substring edit distances are computed
+		 * with {@link AnchoredSubstringEditDistance} (the results are
+		 * the same, but near-duplicates are compared much faster).
+		 * 
+		 * @param anchored
+		 * whether the substring edit distances are computed
+		 * in bands around anchors
+		 * 
+		 * @return
+		 * this instance
+		 */
+		public Options anchored(final boolean anchored) {
+			pAnchored = anchored;
+			return this;
+		}
+		
 	}
 	
 }
@@ -0,0 +1,303 @@
+/* This Source Code Form is subject to the terms of the hermA Licence.
+ * If a copy of the licence was not distributed with this file, You have
+ * received this Source Code Form in a manner that does not comply with
+ * the terms of the licence.
+ */
+package batchsed;
+
+/**
+ * Where a sequence lands in another sequence when it is turned
+ * into a sub-sequence of the other one with the smallest number
+ * of edit operations (as counted by
+ * {@link SubstringEditDistance#dynamicProgrammingSubstringEditDistance(int[], int[])}):
+ * the start and end offsets of the matching part of the super-sequence
+ * and, optionally, an edit script for turning the sub-sequence
+ * into that part.
+ * <p>
+ * The alignment is computed with {@link #align(int[], int[], boolean)}
+ * in space linear in the lengths of the sequences: the end offset
+ * by a pass of the dynamic programming algorithm over the super-sequence,
+ * the start offset by a pass over the reversed sequences and the
+ * edit script by Hirschberg&rsquo;s divide-and-conquer algorithm
+ * on the matching part, which takes roughly twice as long as
+ * a pass over that part.
+ * <p>
+ * The edit script is a sequence of operations with repetition
+ * counts, similar to the CIGAR format: <i>k</i>{@code =} for
+ * <i>k</i> tokens kept, <i>k</i>{@code X} for <i>k</i> tokens
+ * replaced, <i>k</i>{@code D} for <i>k</i> tokens deleted from the
+ * sub-sequence and <i>k</i>{@code I} for <i>k</i> tokens of the
+ * super-sequence inserted (such as {@code 120=1X3I57=}).
+ */
+public class SubstringAlignment {
+	
+	private final long pEditDistance;
+	private final int pStart;
+	private final int pEnd;
+	private final String pEditScript;
+	
+	/**
+	 * Initializes a new instance of this class.
+	 * 
+	 * @param editDistance
+	 * the substring edit distance
+	 * 
+	 * @param start
+	 * the offset of the first token of the matching part
+	 * of the super-sequence
+	 * 
+	 * @param end
+	 * the offset after the last token of the matching part
+	 * of the super-sequence
+	 * 
+	 * @param editScript
+	 * the edit script; {@code null} if not computed
+	 */
+	public SubstringAlignment(final long editDistance, final int start, final int end, final String editScript) {
+		pEditDistance = editDistance;
+		pStart = start;
+		pEnd = end;
+		pEditScript = editScript;
+	}
+	
+	/**
+	 * Computes the alignment of a sequence in another sequence
+	 * (with unit costs for all edit operations). If there are
+	 * several matching parts with the smallest number of edit
+	 * operations, the one ending first is chosen, and of those
+	 * the shortest one.
+	 * 
+	 * @param subSequence
+	 * the sequence to become a sub-sequence of the other;
+	 * not {@code null}
+	 * 
+	 * @param superSequence
+	 * the other sequence; not {@code null}
+	 * 
+	 * @param editScript
+	 * whether the edit script is to be computed
+	 * 
+	 * @return
+	 * the alignment; not {@code null}
+	 */
+	public static SubstringAlignment align(final int[] subSequence, final int[] superSequence, final boolean editScript) {
+		final int m = subSequence.length;
+		final int n = superSequence.length;
+		// all intermediate values are bounded by m + n
+		if ((long) m + n >= Integer.MAX_VALUE)
+			throw new IllegalArgumentException("sequences too long: " + m + ", " + n);
+		final int[] table = new int[m + 1];
+		
+		// end: the first column of the last row with the minimum,
+		// the first row being free (matching may start anywhere)
+		for (int i = 0; i <= m; i++)
+			table[i] = i;
+		int distance = m;
+		int end = 0;
+		for (int j = 0; j < n; j++) {
+			column(subSequence, 0, m, superSequence[j], table, 0);
+			if (table[m] < distance) {
+				distance = table[m];
+				end = j + 1;
+			}
+		}
+		
+		// start: the same over the reversed sequences, up to the end,
+		// with the first row not being free
+		for (int i = 0; i <= m; i++)
+			table[i] = i;
+		int start = end;
+		for (int j = end - 1; (j >= 0) && (table[m] != distance); j--) {
+			reversedColumn(subSequence, 0, m, superSequence[j], table, end - j);
+			start = j;
+		}
+		
+		if (!editScript)
+			return new SubstringAlignment(distance, start, end, null);
+		final EditScriptBuilder script = new EditScriptBuilder();
+		final int length = end - start;
+		hirschberg(subSequence, 0, m, superSequence, start, end, new int[length + 1], new int[length + 1], script);
+		return new SubstringAlignment(distance, start, end, script.toString());
+	}
+	
+	/**
+	 * Returns the substring edit distance.
+	 * 
+	 * @return
+	 * the substring edit distance
+	 */
+	public long getEditDistance() {
+		return pEditDistance;
+	}
+	
+	/**
+	 * Returns the offset of the first token of the matching
+	 * part of the super-sequence (counting from 0).
+	 * 
+	 * @return
+	 * the start offset
+	 */
+	public int getStart() {
+		return pStart;
+	}
+	
+	/**
+	 * Returns the offset after the last token of the matching
+	 * part of the super-sequence.
+	 * 
+	 * @return
+	 * the end offset
+	 */
+	public int getEnd() {
+		return pEnd;
+	}
+	
+	/**
+	 * Returns the edit script for turning the sub-sequence into
+	 * the matching part of the super-sequence.
+	 * 
+	 * @return
+	 * the edit script; {@code null} if not computed
+	 */
+	public String getEditScript() {
+		return pEditScript;
+	}
+	
+	// advances a column of the edit distance table (rows
+	// from - 1 to to) by a token of the other sequence; the
+	// value in the first row is increased by topIncrement
+	private static void column(final int[] a, final int from, final int to, final int v, final int[] table, final int topIncrement) {
+		int leftAbove = table[0];
+		int left = leftAbove + topIncrement;
+		table[0] = left;
+		int i = 0;
+		for (int k = from; k < to; k++) {
+			i++;
+			final int above = table[i];
+			left++;
+			if (above < left)
+				left = above + 1;
+			if (a[k] != v)
+				leftAbove++;
+			if (leftAbove < left)
+				left = leftAbove;
+			table[i] = left;
+			leftAbove = above;
+		}
+	}
+	
+	// like column, but over the tokens from to - 1 down to from,
+	// and with the value in the first row set to top
+	private static void reversedColumn(final int[] a, final int from, final int to, final int v, final int[] table, final int top) {
+		int leftAbove = table[0];
+		int left = top;
+		table[0] = left;
+		int i = 0;
+		for (int k = to - 1; k >= from; k--) {
+			i++;
+			final int above = table[i];
+			left++;
+			if (above < left)
+				left = above + 1;
+			if (a[k] != v)
+				leftAbove++;
+			if (leftAbove < left)
+				left = leftAbove;
+			table[i] = left;
+			leftAbove = above;
+		}
+	}
+	
+	// appends the edit script of the global alignment
+	// of a[aFrom..aTo) and b[bFrom..bTo) to script;
+	// forward and backward have at least bTo - bFrom + 1 elements
+	private static void hirschberg(final int[] a, final int aFrom, final int aTo, final int[] b, final int bFrom, final int bTo, final int[] forward, final int[] backward, final EditScriptBuilder script) {
+		final int m = aTo - aFrom;
+		final int n = bTo - bFrom;
+		if (m == 0) {
+			script.add('I', n);
+			return;
+		}
+		if (n == 0) {
+			script.add('D', m);
+			return;
+		}
+		if (m == 1) {
+			final int u = a[aFrom];
+			for (int j = bFrom; j < bTo; j++) {
+				if (b[j] == u) {
+					script.add('I', j - bFrom);
+					script.add('=', 1);
+					script.add('I', bTo - j - 1);
+					return;
+				}
+			}
+			script.add('X', 1);
+			script.add('I', n - 1);
+			return;
+		}
+		
+		final int middle = aFrom + m / 2;
+		// forward[j]: distance between a[aFrom..middle) and b[bFrom..bFrom + j)
+		// (computed row by row over b, i.e. columns over a)
+		for (int j = 0; j <= n; j++)
+			forward[j] = j;
+		for (int k = aFrom; k < middle; k++)
+			column(b, bFrom, bTo, a[k], forward, 1);
+		// backward[j]: distance between a[middle..aTo) and b[bTo - j..bTo)
+		for (int j = 0; j <= n; j++)
+			backward[j] = j;
+		for (int k = aTo - 1; k >= middle; k--)
+			reversedColumn(b, bFrom, bTo, a[k], backward, backward[0] + 1);
+		int split = 0;
+		int best = Integer.MAX_VALUE;
+		for (int j = 0; j <= n; j++) {
+			final int cost = forward[j] + backward[n - j];
+			if (cost < best) {
+				best = cost;
+				split = j;
+			}
+		}
+		
+		hirschberg(a, aFrom, middle, b, bFrom, bFrom + split, forward, backward, script);
+		hirschberg(a, middle, aTo, b, bFrom + split, bTo, forward, backward, script);
+	}
+	
+	// builds an edit script, merging consecutive operations of the same kind
+	private static class EditScriptBuilder {
+		
+		private final StringBuilder pScript;
+		private char pOperation;
+		private long pCount;
+		
+		public EditScriptBuilder() {
+			pScript = new StringBuilder();
+			pOperation = 0;
+			pCount = 0L;
+		}
+		
+		public void add(final char operation, final int count) {
+			if (count == 0)
+				return;
+			if (operation != pOperation) {
+				flush();
+				pOperation = operation;
+			}
+			pCount += count;
+		}
+		
+		@Override
+		public String toString() {
+			flush();
+			return pScript.toString();
+		}
+		
+		private void flush() {
+			if (pCount > 0L)
+				pScript.append(pCount).append(pOperation);
+			pCount = 0L;
+		}
+		
+	}
+	
+}
@@ -0,0 +1,170 @@
+/* This Source Code Form is subject to the terms of the hermA Licence.
+ * If a copy of the licence was not distributed with this file, You have
+ * received this Source Code Form in a manner that does not comply with
+ * the terms of the licence.
+ */
+package batchsed;
+
+/**
+ * The result of one direction of a comparison between two full texts:
+ * the substring edit distance for turning one full text
+ * into a sub-sequence of the other.
+ * If the comparison has been performed with a maximum distance
+ * and the substring edit distance exceeds it, the result only
+ * states that the substring edit distance exceeds the maximum
+ * distance (see {@link #isEditDistanceExceeded()}).
+ */
+public class SubstringComparison {
+	
+	private final long pEditDistance;
+	private final boolean pEditDistanceExceeded;
+	
+	private final long pSubSequenceSize;
+	private final long pSuperSequenceSize;
+	
+	private final SubstringAlignment pAlignment;
+	
+	/**
+	 * Initializes a new instance of this class.
+	 * 
+	 * @param editDistance
+	 * the substring edit distance for turning the first full text
+	 * (the sub-sequence) into a sub-sequence of the second full text
+	 * (the super-sequence)
+	 * 
+	 * @param subSequenceSize
+	 * the size of the first full text
+	 * (number of items in the sequence)
+	 * 
+	 * @param superSequenceSize
+	 * the size of the second full text
+	 * (number of items in the sequence)
+	 */
+	public SubstringComparison(final long editDistance, final long subSequenceSize, final long superSequenceSize) {
+		this(editDistance, false, subSequenceSize, superSequenceSize);
+	}
+	
+	/**
+	 * Initializes a new instance of this class
+	 * for a comparison that may have exceeded
+	 * a maximum distance.
+	 * 
+	 * @param editDistance
+	 * the substring edit distance for turning the first full text
+	 * (the sub-sequence) into a sub-sequence of the second full text
+	 * (the super-sequence), or, if {@code editDistanceExceeded}
+	 * is {@code true}, a value the substring edit distance
+	 * is known to exceed
+	 * 
+	 * @param editDistanceExceeded
+	 * whether the actual substring edit distance
+	 * is higher than {@code editDistance}
+	 * 
+	 * @param subSequenceSize
+	 * the size of the first full text
+	 * (number of items in the sequence)
+	 * 
+	 * @param superSequenceSize
+	 * the size of the second full text
+	 * (number of items in the sequence)
+	 */
+	public SubstringComparison(final long editDistance, final boolean editDistanceExceeded, final long subSequenceSize, final long superSequenceSize) {
+		pEditDistance = editDistance;
+		pEditDistanceExceeded = editDistanceExceeded;
+		
+		pSubSequenceSize = subSequenceSize;
+		pSuperSequenceSize = superSequenceSize;
+		
+		pAlignment = null;
+	}
+	
+	/**
+	 * Initializes a new instance of this class
+	 * with the alignment of the first full text
+	 * in the second full text.
+	 * 
+	 * @param alignment
+	 * the alignment, including the substring edit distance;
+	 * not {@code null}
+	 * 
+	 * @param subSequenceSize
+	 * the size of the first full text
+	 * (number of items in the sequence)
+	 * 
+	 * @param superSequenceSize
+	 * the size of the second full text
+	 * (number of items in the sequence)
+	 */
+	public SubstringComparison(final SubstringAlignment alignment, final long subSequenceSize, final long superSequenceSize) {
+		pEditDistance = alignment.getEditDistance();
+		pEditDistanceExceeded = false;
+		
+		pSubSequenceSize = subSequenceSize;
+		pSuperSequenceSize = superSequenceSize;
+		
+		pAlignment = alignment;
+	}
+	
+	/**
+	 * Returns the substring edit distance
+	 * for turning the first full text
+	 * into a sub-sequence of the second full text
+	 * (or a value it exceeds, see {@link #isEditDistanceExceeded()}).
+	 * 
+	 * @return
+	 * the substring edit distance for turning the first full text
+	 * into a sub-sequence of the second full text
+	 */
+	public long getEditDistance() {
+		return pEditDistance;
+	}
+	
+	/**
+	 * Returns whether the actual substring edit distance
+	 * is higher than the value returned by {@link #getEditDistance()}
+	 * (because the comparison was stopped at a maximum distance).
+	 * 
+	 * @return
+	 * {@code true} if the actual substring edit distance
+	 * is higher than {@link #getEditDistance()};
+	 * {@code false} if it is equal
+	 */
+	public boolean isEditDistanceExceeded() {
+		return pEditDistanceExceeded;
+	}
+	
+	/**
+	 * Returns the size of the first full text
+	 * (number of items in the sequence).
+	 * 
+	 * @return
+	 * the size of the first full text
+	 * (number of items in the sequence)
+	 */
+	public long getSubSequenceSize() {
+		return pSubSequenceSize;
+	}
+	
+	/**
+	 * Returns the size of the second full text
+	 * (number of items in the sequence).
+	 * 
+	 * @return
+	 * the size of the second full text
+	 * (number of items in the sequence)
+	 */
+	public long getSuperSequenceSize() {
+		return pSuperSequenceSize;
+	}
+	
+	/**
+	 * Returns where the first full text lands in the second full text.
+	 * 
+	 * @return
+	 * the alignment; {@code null} if not computed
+	 */
+	public SubstringAlignment getAlignment() {
+		return pAlignment;
+	}
+	
+}
@@ -53,6 +53,155 @@ public class SubstringEditDistance {
 		return substringEditDistanceVariant1(subSequence, m, superSequence, n, insertionCost, deletionCost, substitutionCost);
 	}
 	
+	/**
+	 * Computes the substring edit distance between two sequences
+	 * of token IDs (as assigned by a {@link TokenDictionary}),
+	 * with unit costs: Insertions, deletions and replacements
+	 * of an item by a different item all cost 1; replacing an
+	 * item by an equal item (same ID) costs nothing.
+	 * <p>
+	 * This gives the same result as
+	 * {@link #substringEditDistance(Object[], Object[], ToLongFunction, ToLongFunction, ToLongBiFunction)}
+	 * with the corresponding cost functions, but uses the
+	 * bit-parallel algorithm in {@link BitParallelSubstringEditDistance},
+	 * which is only applicable to unit costs.
+	 * 
+	 * @param subSequence
+	 * the sequence to become a sub-sequence of the other;
+	 * not {@code null}, no negative IDs
+	 * 
+	 * @param superSequence
+	 * the other sequence; not {@code null}, no negative IDs
+	 * 
+	 * @return
+	 * the smallest number of insertions into the second sequence,
+	 * deletions from the first sequence and replacements of items
+	 * between the sequences to make the first sequence
+	 * a sub-sequence of the second sequence
+	 */
+	public static long substringEditDistance(final int[] subSequence, final int[] superSequence) {
+		return BitParallelSubstringEditDistance.substringEditDistance(subSequence, superSequence);
+	}
+	
+	/**
+	 * Computes the substring edit distance between two sequences
+	 * of token IDs with unit costs, like
+	 * {@link #substringEditDistance(int[], int[])}, saving the
+	 * intermediate state of the computation to a {@link Checkpoint}
+	 * periodically and resuming from a state saved before
+	 * (see {@link BitParallelSubstringEditDistance#substringEditDistance(int[], int[], Checkpoint)}).
+	 * 
+	 * @param subSequence
+	 * the sequence to become a sub-sequence of the other;
+	 * not {@code null}, no negative IDs
+	 * 
+	 * @param superSequence
+	 * the other sequence; not {@code null}, no negative IDs
+	 * 
+	 * @param checkpoint
+	 * the checkpoint; {@code null} for no checkpoint
+	 * 
+	 * @return
+	 * the smallest number of insertions into the second sequence,
+	 * deletions from the first sequence and replacements of items
+	 * between the sequences to make the first sequence
+	 * a sub-sequence of the second sequence
+	 */
+	public static long substringEditDistance(final int[] subSequence, final int[] superSequence, final Checkpoint checkpoint) {
+		return BitParallelSubstringEditDistance.substringEditDistance(subSequence, superSequence, checkpoint);
+	}
+	
+	/**
+	 * Computes the substring edit distance between two sequences
+	 * of token IDs with unit costs, like
+	 * {@link #substringEditDistance(int[], int[])}, but only
+	 * if it does not exceed a given maximum distance.
+	 * As shown by Ukkonen, parts of the computation that can only
+	 * lead to higher distances can then be skipped, which makes
+	 * the computation much faster for dissimilar sequences
+	 * (see {@link BitParallelSubstringEditDistance#boundedSubstringEditDistance(int[], int[], long)}).
+	 * 
+	 * @param subSequence
+	 * the sequence to become a sub-sequence of the other;
+	 * not {@code null}, no negative IDs
+	 * 
+	 * @param superSequence
+	 * the other sequence; not {@code null}, no negative IDs
+	 * 
+	 * @param maxDistance
+	 * the maximum distance; not negative
+	 * 
+	 * @return
+	 * the substring edit distance if it does not exceed
+	 * {@code maxDistance}; {@code maxDistance + 1} otherwise
+	 */
+	public static long substringEditDistance(final int[] subSequence, final int[] superSequence, final long maxDistance) {
+		return BitParallelSubstringEditDistance.boundedSubstringEditDistance(subSequence, superSequence, maxDistance);
+	}
+	
+	/**
+	 * Computes the substring edit distance between two sequences
+	 * of token IDs with unit costs if it does not exceed a given
+	 * maximum distance, like
+	 * {@link #substringEditDistance(int[], int[], long)}, saving the
+	 * intermediate state of the computation to a {@link Checkpoint}
+	 * periodically and resuming from a state saved before
+	 * (see {@link BitParallelSubstringEditDistance#boundedSubstringEditDistance(int[], int[], long, Checkpoint)}).
+	 * 
+	 * @param subSequence
+	 * the sequence to become a sub-sequence of the other;
+	 * not {@code null}, no negative IDs
+	 * 
+	 * @param superSequence
+	 * the other sequence; not {@code null}, no negative IDs
+	 * 
+	 * @param maxDistance
+	 * the maximum distance; not negative
+	 * 
+	 * @param checkpoint
+	 * the checkpoint; {@code null} for no checkpoint
+	 * 
+	 * @return
+	 * the substring edit distance if it does not exceed
+	 * {@code maxDistance}; {@code maxDistance + 1} otherwise
+	 */
+	public static long substringEditDistance(final int[] subSequence, final int[] superSequence, final long maxDistance, final Checkpoint checkpoint) {
+		return BitParallelSubstringEditDistance.boundedSubstringEditDistance(subSequence, superSequence, maxDistance, checkpoint);
+	}
+	
+	/**
+	 * Computes the substring edit distance between two sequences
+	 * of token IDs with unit costs, like
+	 * {@link #substringEditDistance(int[], int[])},
+	 * but with the (slower) dynamic programming algorithm
+	 * that is also used for arbitrary cost functions.
+	 * The computation works on primitive arrays
+	 * without calling any cost functions.
+	 * 
+	 * @param subSequence
+	 * the sequence to become a sub-sequence of the other;
+	 * not {@code null}
+	 * 
+	 * @param superSequence
+	 * the other sequence; not {@code null}
+	 * 
+	 * @return
+	 * the smallest number of insertions into the second sequence,
+	 * deletions from the first sequence and replacements of items
+	 * between the sequences to make the first sequence
+	 * a sub-sequence of the second sequence
+	 */
+	public static long dynamicProgrammingSubstringEditDistance(final int[] subSequence, final int[] superSequence) {
+		final int m = subSequence.length;
+		final int n = superSequence.length;
+		// all intermediate values are bounded by m + 1
+		if (m >= Integer.MAX_VALUE - 1)
+			throw new IllegalArgumentException("sequence too long: " + m);
+		if (m < n)
+			return unitCostSubstringEditDistanceVariant2(subSequence, m, superSequence, n);
+		return unitCostSubstringEditDistanceVariant1(subSequence, m, superSequence, n);
+	}
+	
 	private static <U, V> long substringEditDistanceVariant1(final U[] subSequence, final int m, final V[] superSequence, final int n, final ToLongFunction<? super V> insertionCost, final ToLongFunction<? super U> deletionCost, final ToLongBiFunction<? super U, ? super V> substitutionCost) {
 		final long[] table = new long[n + 1];
 		Arrays.fill(table, 0L);
@@ -125,4 +274,69 @@ public class SubstringEditDistance {
 		return min;
 	}
 	
+	private static int unitCostSubstringEditDistanceVariant1(final int[] subSequence, final int m, final int[] superSequence, final int n) {
+		final int[] table = new int[n + 1];
+		
+		int min = 0;
+		
+		// Iteration
+		for (final int u : subSequence) {
+			int leftAbove = table[0];
+			int left = leftAbove + 1;
+			table[0] = left;
+			min = left;
+			int j = 0;
+			for (final int v : superSequence) {
+				j++;
+				final int above = table[j];
+				left++;
+				if (above < left)
+					left = above + 1;
+				if (u != v)
+					leftAbove++;
+				if (leftAbove < left)
+					left = leftAbove;
+				table[j] = left;
+				leftAbove = above;
+				if (left < min)
+					min = left;
+			}
+		}
+		
+		return min;
+	}
+	
+	private static int unitCostSubstringEditDistanceVariant2(final int[] subSequence, final int m, final int[] superSequence, final int n) {
+		final int[] table = new int[m + 1];
+		
+		// Initialisierung
+		for (int i = 0; i <= m; i++)
+			table[i] = i;
+		int min = m;
+		
+		// Iteration
+		for (final int v : superSequence) {
+			int leftAbove = table[0];
+			int left = 0;
+			int i = 0;
+			for (final int u : subSequence) {
+				i++;
+				final int above = table[i];
+				left++;
+				if (above < left)
+					left = above + 1;
+				if (u != v)
+					leftAbove++;
+				if (leftAbove < left)
+					left = leftAbove;
+				table[i] = left;
+				leftAbove = above;
+			}
+			if (left < min)
+				min = left;
+		}
+		
+		return min;
+	}
+	
 }
@@ -0,0 +1,151 @@
+/* This Source Code Form is subject to the terms of the hermA Licence.
+ * If a copy of the licence was not distributed with this file, You have
+ * received this Source Code Form in a manner that does not comply with
+ * the terms of the licence.
+ */
+package batchsed;
+
+import java.util.Arrays;
+
+/**
+ * Contains code for computing lower bounds of substring edit distances
+ * with unit costs in time linear in the lengths of the sequences,
+ * which is much faster than computing the substring edit distances.
+ * <p>
+ * The bounds are based on <i>q</i>-grams (sequences of <i>q</i>
+ * consecutive items): Every insertion, deletion or replacement
+ * affects at most <i>q</i> of the <i>m</i> &minus; <i>q</i> + 1
+ * <i>q</i>-grams of the sequence to become a sub-sequence,
+ * and every unaffected <i>q</i>-gram must also occur in the other
+ * sequence. If only <i>s</i> of the <i>q</i>-grams can be matched
+ * with occurrences in the other sequence, at least
+ * (<i>m</i> &minus; <i>q</i> + 1 &minus; <i>s</i>) / <i>q</i>
+ * operations are needed. For <i>q</i> = 1, this is the difference
+ * between the two sequences as multisets (bags) of items.
+ */
+public class SubstringEditDistanceBounds {
+	
+	/**
+	 * The largest <i>q</i> for which
+	 * {@link #lowerBound(int[], int[])} considers <i>q</i>-grams.
+	 */
+	public static final int MAX_Q = 3;
+	
+	/**
+	 * Computes a lower bound of the substring edit distance
+	 * between two sequences of token IDs with unit costs, as the
+	 * maximum of the bounds from {@link #qGramLowerBound(int[], int[], int)}
+	 * for <i>q</i> = 1 to {@link #MAX_Q}.
+	 * 
+	 * @param subSequence
+	 * the sequence to become a sub-sequence of the other;
+	 * not {@code null}
+	 * 
+	 * @param superSequence
+	 * the other sequence; not {@code null}
+	 * 
+	 * @return
+	 * a lower bound of the substring edit distance
+	 */
+	public static long lowerBound(final int[] subSequence, final int[] superSequence) {
+		long bound = 0L;
+		for (int q = 1; q <= MAX_Q; q++)
+			bound = Math.max(bound, qGramLowerBound(subSequence, superSequence, q));
+		return bound;
+	}
+	
+	/**
+	 * Computes a lower bound of the substring edit distance
+	 * between two sequences of token IDs with unit costs
+	 * from the numbers of <i>q</i>-grams the sequences share.
+	 * 
+	 * @param subSequence
+	 * the sequence to become a sub-sequence of the other;
+	 * not {@code null}
+	 * 
+	 * @param superSequence
+	 * the other sequence; not {@code null}
+	 * 
+	 * @param q
+	 * the length of the <i>q</i>-grams; positive
+	 * 
+	 * @return
+	 * a lower bound of the substring edit distance
+	 */
+	public static long qGramLowerBound(final int[] subSequence, final int[] superSequence, final int q) {
+		final int m = subSequence.length;
+		final int grams = m - q + 1;
+		if (grams <= 0)
+			return 0L;
+		
+		final GramCounts counts = new GramCounts(grams);
+		for (int i = 0; i < grams; i++)
+			counts.add(hash(subSequence, i, q));
+		long shared = 0L;
+		for (int j = 0; j + q <= superSequence.length; j++) {
+			if (counts.remove(hash(superSequence, j, q)))
+				shared++;
+		}
+		// round up
+		return (grams - shared + q - 1) / q;
+	}
+	
+	// different q-grams may get the same hash value;
+	// this can only make the bound lower
+	private static long hash(final int[] sequence, final int from, final int q) {
+		if (q == 1)
+			return sequence[from];
+		if (q == 2)
+			return ((long) sequence[from] << 32) | (sequence[from + 1] & 0xFFFFFFFFL);
+		long hash = 0L;
+		for (int i = from; i < from + q; i++)
+			hash = (hash + sequence[i]) * 0x9E3779B97F4A7C15L;
+		return hash;
+	}
+	
+	// a multiset of hash values (open addressing)
+	private static class GramCounts {
+		
+		private final long[] pKeys;
+		private final int[] pCounts;
+		private final int pMask;
+		
+		public GramCounts(final int capacity) {
+			final int size = Integer.highestOneBit(Math.max(capacity, 8) * 2 - 1) << 1;
+			pKeys = new long[size];
+			pCounts = new int[size];
+			pMask = size - 1;
+			Arrays.fill(pCounts, -1);
+		}
+		
+		public void add(final long key) {
+			final int slot = find(key);
+			if (pCounts[slot] < 0) {
+				pKeys[slot] = key;
+				pCounts[slot] = 1;
+			} else {
+				pCounts[slot]++;
+			}
+		}
+		
+		// removes one occurrence, returning whether there was one
+		public boolean remove(final long key) {
+			final int slot = find(key);
+			if (pCounts[slot] <= 0)
+				return false;
+			pCounts[slot]--;
+			return true;
+		}
+		
+		// finds the slot of the key or the empty slot for it
+		// (a count of -1 marks an empty slot)
+		private int find(final long key) {
+			int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> 40) & pMask;
+			while ((pCounts[slot] >= 0) && (pKeys[slot] != key))
+				slot = (slot + 1) & pMask;
+			return slot;
+		}
+		
+	}
+	
+}
@@ -0,0 +1,85 @@
+/* This Source Code Form is subject to the terms of the hermA Licence.
+ * If a copy of the licence was not distributed with this file, You have
+ * received this Source Code Form in a manner that does not comply with
+ * the terms of the licence.
+ */
+package batchsed;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * {@link TokenSequenceLoader} implementation that loads the lines
+ * of UTF-8 plain text files as tokens (ignoring empty lines)
+ * and maps them to IDs with a {@link TokenDictionary}.
+ */
+public class TextTokenSequenceLoader implements TokenSequenceLoader {
+	
+	private static final Predicate<String> NOT_EMPTY = s -> !"".equals(s);
+	
+	private final TokenDictionary pDictionary;
+	
+	/**
+	 * Initializes a new instance of this class.
+	 * 
+	 * @param dictionary
+	 * the dictionary to map the tokens to IDs; not {@code null}
+	 */
+	public TextTokenSequenceLoader(final TokenDictionary dictionary) {
+		pDictionary = dictionary;
+	}
+	
+	@Override
+	public int[] loadTokenSequence(final Path file) {
+		try {
+			return pDictionary.intern(loadTokens(file));
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	/**
+	 * Loads the lines of a UTF-8 plain text file as tokens,
+	 * ignoring empty lines.
+	 * 
+	 * @param file
+	 * (a {@link Path} locating) the file; not {@code null}
+	 * 
+	 * @return
+	 * the tokens; not {@code null}
+	 * 
+	 * @throws IOException
+	 * if an I/O error occurs
+	 */
+	public static String[] loadTokens(final Path file) throws IOException {
+		try (final Stream<String> lines = Files.lines(file, StandardCharsets.UTF_8)) {
+			return lines.filter(NOT_EMPTY).toArray(String[]::new);
+		}
+	}
+	
+	/**
+	 * Counts the tokens of a UTF-8 plain text file as loaded by
+	 * {@link #loadTokens(Path)}, reading the lines one by one
+	 * without keeping them in memory.
+	 * 
+	 * @param file
+	 * (a {@link Path} locating) the file; not {@code null}
+	 * 
+	 * @return
+	 * the number of tokens (non-empty lines) of the file
+	 * 
+	 * @throws IOException
+	 * if an I/O error occurs
+	 */
+	public static long countTokens(final Path file) throws IOException {
+		try (final Stream<String> lines = Files.lines(file, StandardCharsets.UTF_8)) {
+			return lines.filter(NOT_EMPTY).count();
+		}
+	}
+	
+}
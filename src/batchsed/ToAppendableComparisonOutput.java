@@ -28,6 +28,9 @@ import java.io.UncheckedIOException;
  *     for turning the second full text
  *     into a sub-sequence of the first full text</li>
  * </ol>
+ * A substring edit distance only known to exceed a value
+ * <i>k</i> (see {@link FullTextComparison#isEditDistance1in2Exceeded()})
+ * is output as {@code >}<i>k</i>.
  */
 public class ToAppendableComparisonOutput implements ComparisonOutput {
 	
@@ -47,8 +50,8 @@ public class ToAppendableComparisonOutput implements ComparisonOutput {
 	public void output(final String id1, final String id2, final FullTextComparison comparisonResult) {
 		final String length1str = Long.toString(comparisonResult.getSize1());
 		final String length2str = Long.toString(comparisonResult.getSize2());
-		final String sed1in2str = Long.toString(comparisonResult.getEditDistance1in2());
-		final String sed2in1str = Long.toString(comparisonResult.getEditDistance2in1());
+		final String sed1in2str = editDistanceString(comparisonResult.getEditDistance1in2(), comparisonResult.isEditDistance1in2Exceeded());
+		final String sed2in1str = editDistanceString(comparisonResult.getEditDistance2in1(), comparisonResult.isEditDistance2in1Exceeded());
 		try {
 			synchronized (pAppendable) {
 				pAppendable.append(id1);
@@ -69,4 +72,17 @@ public class ToAppendableComparisonOutput implements ComparisonOutput {
 		}
 	}
 	
+	// the line for a result, including the line break
+	static String line(final String id1, final String id2, final FullTextComparison comparisonResult) {
+		return id1 + '\t' + id2 + '\t' + comparisonResult.getSize1() + '\t' + comparisonResult.getSize2() + '\t'
+				+ editDistanceString(comparisonResult.getEditDistance1in2(), comparisonResult.isEditDistance1in2Exceeded()) + '\t'
+				+ editDistanceString(comparisonResult.getEditDistance2in1(), comparisonResult.isEditDistance2in1Exceeded()) + '\n';
+	}
+	
+	private static String editDistanceString(final long editDistance, final boolean exceeded) {
+		if (exceeded)
+			return ">" + Long.toString(editDistance);
+		return Long.toString(editDistance);
+	}
+	
 }
@@ -0,0 +1,97 @@
+/* This Source Code Form is subject to the terms of the hermA Licence.
+ * If a copy of the licence was not distributed with this file, You have
+ * received this Source Code Form in a manner that does not comply with
+ * the terms of the licence.
+ */
+package batchsed;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Maps tokens to dense {@code int} IDs
+ * (0, 1, 2, &hellip; in the order of first occurrence),
+ * such that two tokens get the same ID if and only if
+ * they are equal (subject to {@link String#equals(Object)}).
+ * This class is thread safe, so that a single dictionary
+ * can be shared by all threads (as needed for comparing
+ * token sequences loaded by different threads).
+ */
+public class TokenDictionary {
+	
+	private final ConcurrentHashMap<String, Integer> pIds;
+	private final AtomicInteger pNextId;
+	
+	/**
+	 * Initializes a new empty dictionary.
+	 */
+	public TokenDictionary() {
+		pIds = new ConcurrentHashMap<>();
+		pNextId = new AtomicInteger();
+	}
+	
+	/**
+	 * Returns the ID of a token, assigning the next free ID
+	 * if the token has not been seen before.
+	 * 
+	 * @param token
+	 * the token; not {@code null}
+	 * 
+	 * @return
+	 * the ID of the token; non-negative
+	 */
+	public int intern(final String token) {
+		final Integer id = pIds.get(token);
+		if (id != null)
+			return id.intValue();
+		return pIds.computeIfAbsent(token, t -> Integer.valueOf(pNextId.getAndIncrement())).intValue();
+	}
+	
+	/**
+	 * Maps a token sequence to the corresponding sequence of IDs.
+	 * 
+	 * @param tokens
+	 * the tokens; not {@code null}
+	 * 
+	 * @return
+	 * a new array with the ID of every token
+	 * at the position of the token; not {@code null}
+	 */
+	public int[] intern(final String[] tokens) {
+		final int[] ids = new int[tokens.length];
+		for (int i = 0; i < tokens.length; i++)
+			ids[i] = intern(tokens[i]);
+		return ids;
+	}
+	
+	/**
+	 * Returns all tokens in this dictionary, ordered by their IDs.
+	 * Tokens added concurrently may or may not be included.
+	 * 
+	 * @return
+	 * a new array with every token at the position
+	 * of its ID; not {@code null}
+	 */
+	public String[] toArray() {
+		final String[] tokens = new String[size()];
+		for (final Map.Entry<String, Integer> entry : pIds.entrySet()) {
+			final int id = entry.getValue().intValue();
+			if (id < tokens.length)
+				tokens[id] = entry.getKey();
+		}
+		return tokens;
+	}
+	
+	/**
+	 * Returns the number of distinct tokens in this dictionary,
+	 * which is also the smallest ID not yet assigned.
+	 * 
+	 * @return
+	 * the number of distinct tokens in this dictionary
+	 */
+	public int size() {
+		return pNextId.get();
+	}
+	
+}
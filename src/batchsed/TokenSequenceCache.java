@@ -0,0 +1,142 @@
+/* This Source Code Form is subject to the terms of the hermA Licence.
+ * If a copy of the licence was not distributed with this file, You have
+ * received this Source Code Form in a manner that does not comply with
+ * the terms of the licence.
+ */
+package batchsed;
+
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * {@link TokenSequenceLoader} implementation that keeps the
+ * token sequences loaded by another {@link TokenSequenceLoader}
+ * in memory, so that a file compared with many other files
+ * only needs to be loaded once.
+ * <p>
+ * The cache is bounded by the (approximate) number of bytes
+ * the cached token sequences occupy; when this capacity is
+ * exceeded, the least recently used sequences are evicted.
+ * If several threads request the same file at the same time,
+ * the file is only loaded once, with the other threads waiting
+ * for the result.
+ * This class is thread safe.
+ */
+public class TokenSequenceCache implements TokenSequenceLoader {
+	
+	private final TokenSequenceLoader pLoader;
+	private final long pCapacity;
+	
+	// in access order
+	private final LinkedHashMap<Path, Entry> pEntries;
+	private long pSize;
+	
+	/**
+	 * Initializes a new empty cache.
+	 * 
+	 * @param loader
+	 * the loader to load the token sequences not in the cache;
+	 * not {@code null}
+	 * 
+	 * @param capacity
+	 * the maximum number of bytes occupied by the cached token
+	 * sequences
+	 */
+	public TokenSequenceCache(final TokenSequenceLoader loader, final long capacity) {
+		pLoader = loader;
+		pCapacity = capacity;
+		
+		pEntries = new LinkedHashMap<>(16, 0.75f, true);
+		pSize = 0L;
+	}
+	
+	@Override
+	public int[] loadTokenSequence(final Path file) {
+		final Entry entry;
+		final boolean load;
+		synchronized (pEntries) {
+			final Entry existingEntry = pEntries.get(file);
+			load = existingEntry == null;
+			if (load) {
+				entry = new Entry();
+				pEntries.put(file, entry);
+			} else {
+				entry = existingEntry;
+			}
+		}
+		
+		if (!load) {
+			try {
+				return entry.pTokens.join();
+			} catch (final CompletionException e) {
+				final Throwable cause = e.getCause();
+				if (cause instanceof RuntimeException)
+					throw (RuntimeException) cause;
+				if (cause instanceof Error)
+					throw (Error) cause;
+				throw e;
+			}
+		}
+		
+		final int[] tokens;
+		try {
+			tokens = pLoader.loadTokenSequence(file);
+		} catch (final RuntimeException | Error e) {
+			synchronized (pEntries) {
+				pEntries.remove(file, entry);
+			}
+			entry.pTokens.completeExceptionally(e);
+			throw e;
+		}
+		synchronized (pEntries) {
+			entry.pSize = size(tokens);
+			if (pEntries.get(file) == entry)
+				pSize += entry.pSize;
+			evict();
+		}
+		entry.pTokens.complete(tokens);
+		return tokens;
+	}
+	
+	/**
+	 * Returns the approximate number of bytes occupied by
+	 * a token sequence, as accounted for by this cache.
+	 * 
+	 * @param tokens
+	 * the token sequence; not {@code null}
+	 * 
+	 * @return
+	 * the approximate number of bytes occupied by the token sequence
+	 */
+	public static long size(final int[] tokens) {
+		return 4L * tokens.length + 64L;
+	}
+	
+	private void evict() {
+		final Iterator<Entry> iterator = pEntries.values().iterator();
+		while ((pSize > pCapacity) && iterator.hasNext()) {
+			final Entry entry = iterator.next();
+			// entries still being loaded have a size of 0
+			if (entry.pSize > 0L) {
+				iterator.remove();
+				pSize -= entry.pSize;
+			}
+		}
+	}
+	
+	private static class Entry {
+		
+		private final CompletableFuture<int[]> pTokens;
+		private long pSize;
+		
+		public Entry() {
+			pTokens = new CompletableFuture<>();
+			pSize = 0L;
+		}
+		
+	}
+	
+}
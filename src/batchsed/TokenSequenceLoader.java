@@ -0,0 +1,31 @@
+/* This Source Code Form is subject to the terms of the hermA Licence.
+ * If a copy of the licence was not distributed with this file, You have
+ * received this Source Code Form in a manner that does not comply with
+ * the terms of the licence.
+ */
+package batchsed;
+
+import java.nio.file.Path;
+
+/**
+ * Can load the token sequence of a full text file
+ * as a sequence of token IDs. All sequences loaded
+ * by the same loader use the same IDs for the same tokens,
+ * so that they can be compared with each other.
+ * Implementations must be thread safe.
+ */
+public interface TokenSequenceLoader {
+	
+	/**
+	 * Loads the token sequence of a full text file.
+	 * The returned array must not be modified.
+	 * 
+	 * @param file
+	 * (a {@link Path} locating) the file; not {@code null}
+	 * 
+	 * @return
+	 * the IDs of the tokens in the file; not {@code null}
+	 */
+	int[] loadTokenSequence(Path file);
+	
+}
@@ -0,0 +1,129 @@
+/* This Source Code Form is subject to the terms of the hermA Licence.
+ * If a copy of the licence was not distributed with this file, You have
+ * received this Source Code Form in a manner that does not comply with
+ * the terms of the licence.
+ */
+package batchsed;
+
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToLongFunction;
+
+/**
+ * Loads the token sequences of files ahead of the comparisons
+ * that need them, in a small pool of I/O threads, so that the
+ * threads computing substring edit distances do not wait for
+ * the disk (or network). The token sequences are loaded by a
+ * {@link TokenSequenceLoader} that keeps them in memory, typically a
+ * {@link TokenSequenceCache}, from which the comparisons take them
+ * (or wait for them if they are still being loaded).
+ * <p>
+ * The number of bytes of the files prefetched for comparisons that
+ * have not started yet is limited (as estimated by a function of the
+ * files, such as the sizes of their token sequences in the cache),
+ * so that prefetching stops while the prefetched token sequences would
+ * not fit into memory together, and resumes when comparisons start.
+ * This class is thread safe.
+ */
+public class TokenSequencePrefetcher {
+	
+	private final TokenSequenceLoader pLoader;
+	private final ExecutorService pExecutor;
+	private final long pCapacity;
+	private final ToLongFunction<Path> pFootprint;
+	
+	private long pPending;
+	
+	/**
+	 * Initializes a new instance of this class
+	 * and starts its I/O threads.
+	 * 
+	 * @param loader
+	 * the loader keeping the token sequences in memory;
+	 * not {@code null}, thread safe
+	 * 
+	 * @param threads
+	 * the number of I/O threads; positive
+	 * 
+	 * @param capacity
+	 * the maximum number of bytes prefetched for comparisons
+	 * that have not started yet
+	 * 
+	 * @param footprint
+	 * determines the estimated number of bytes a file occupies
+	 * when loaded; not {@code null}, thread safe
+	 */
+	public TokenSequencePrefetcher(final TokenSequenceLoader loader, final int threads, final long capacity, final ToLongFunction<Path> footprint) {
+		pLoader = loader;
+		pCapacity = capacity;
+		pFootprint = footprint;
+		pPending = 0L;
+		
+		final AtomicInteger threadCount = new AtomicInteger();
+		pExecutor = Executors.newFixedThreadPool(threads, runnable -> {
+			final Thread thread = new Thread(runnable);
+			thread.setName("prefetch-" + threadCount.getAndIncrement());
+			// pending loads must not keep the program running
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+	
+	/**
+	 * Starts loading the files of a comparison in the background
+	 * if they fit into the capacity besides the files prefetched
+	 * for other comparisons that have not started yet.
+	 * Errors loading a file are left to the comparison,
+	 * which loads the file itself.
+	 * 
+	 * @param files
+	 * the files of the comparison; not {@code null}
+	 * 
+	 * @return
+	 * the number of bytes reserved, to be passed to
+	 * {@link #release(long)} when the comparison starts;
+	 * -1 if the files have not been prefetched
+	 */
+	public long prefetch(final Path... files) {
+		long bytes = 0L;
+		for (final Path file : files)
+			bytes += pFootprint.applyAsLong(file);
+		synchronized (this) {
+			if ((pPending > 0L) && (pPending + bytes > pCapacity))
+				return -1L;
+			pPending += bytes;
+		}
+		for (final Path file : files) {
+			pExecutor.execute(() -> {
+				try {
+					pLoader.loadTokenSequence(file);
+				} catch (final RuntimeException e) {
+					// left to the comparison
+				}
+			});
+		}
+		return bytes;
+	}
+	
+	/**
+	 * Releases bytes reserved with {@link #prefetch(Path...)}
+	 * when the comparison starts.
+	 * 
+	 * @param bytes
+	 * the number of bytes returned by {@link #prefetch(Path...)}
+	 */
+	public synchronized void release(final long bytes) {
+		pPending -= bytes;
+	}
+	
+	/**
+	 * Stops the I/O threads, abandoning the files
+	 * not loaded yet.
+	 */
+	public void shutdown() {
+		pExecutor.shutdownNow();
+	}
+	
+}
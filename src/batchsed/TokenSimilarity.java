@@ -0,0 +1,414 @@
+/* This Source Code Form is subject to the terms of the hermA Licence.
+ * If a copy of the licence was not distributed with this file, You have
+ * received this Source Code Form in a manner that does not comply with
+ * the terms of the licence.
+ */
+package batchsed;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Graded substitution costs between similar tokens, such as
+ * the variants of a line produced by different OCR runs.
+ * <p>
+ * All costs are integers in units of 1/{@link #SCALE} of a token:
+ * inserting or deleting a token costs {@link #SCALE}, replacing a token
+ * by an equal token nothing and replacing a token by a different token
+ * {@link #SCALE}, unless the two tokens differ in few characters.
+ * Two tokens <i>u</i> and <i>v</i> with the character-level edit distance
+ * <i>d</i> (Levenshtein distance) cost
+ * min({@link #SCALE}, &lceil;2 &middot; {@link #SCALE} &middot; <i>d</i> / max(|<i>u</i>|, |<i>v</i>|)&rceil;),
+ * so that a single character wrong in a line of 60 characters costs
+ * 1/{@link #SCALE} and a single character wrong in a word of three
+ * characters (such as &ldquo;tbe&rdquo; instead of &ldquo;the&rdquo;)
+ * roughly two thirds of a token.
+ * <p>
+ * Only tokens of at least three characters that become equal after
+ * removing at most one character from each of them are considered
+ * similar; this includes all pairs of tokens differing by the insertion,
+ * deletion or replacement of a single character, and also transposed
+ * characters. These pairs are found with {@link #getSubstitutionCosts(String[], int[])}
+ * by sorting the hash values of the tokens and of all their variants
+ * with one character removed, which takes time roughly linear in the
+ * number of characters of the tokens, and their costs are kept in a
+ * bounded cache shared by all threads, so that the character-level edit
+ * distance of a pair of tokens is usually only computed once.
+ * This class is thread safe.
+ */
+public class TokenSimilarity {
+	
+	/**
+	 * The cost of inserting or deleting a token,
+	 * in which all other costs are expressed.
+	 */
+	public static final int SCALE = 16;
+	
+	/**
+	 * The default maximum number of pairs of tokens
+	 * whose costs are kept in the cache.
+	 */
+	public static final int DEFAULT_CACHE_CAPACITY = 1 << 20;
+	
+	private static final int MIN_LENGTH = 3;
+	
+	// tokens with more variants in common are not considered
+	// similar to each other, to keep the time linear
+	private static final int MAX_GROUP_SIZE = 64;
+	
+	private static final long HASH_BASE = 0x9E3779B97F4A7C15L;
+	
+	private final ConcurrentHashMap<Long, Integer> pCosts;
+	private final int pCapacity;
+	
+	/**
+	 * Initializes a new instance of this class with an empty
+	 * cache for the {@linkplain #DEFAULT_CACHE_CAPACITY default capacity}.
+	 */
+	public TokenSimilarity() {
+		this(DEFAULT_CACHE_CAPACITY);
+	}
+	
+	/**
+	 * Initializes a new instance of this class with an empty cache.
+	 * 
+	 * @param capacity
+	 * the maximum number of pairs of tokens whose costs
+	 * are kept in the cache; when the cache is full,
+	 * it is emptied
+	 */
+	public TokenSimilarity(final int capacity) {
+		pCosts = new ConcurrentHashMap<>();
+		pCapacity = capacity;
+	}
+	
+	/**
+	 * Returns the cost of replacing a token by another token,
+	 * taking it from the cache if it has been computed before.
+	 * 
+	 * @param id1
+	 * the ID of the first token, assigned by a {@link TokenDictionary}
+	 * shared by all calls; non-negative
+	 * 
+	 * @param token1
+	 * the first token; not {@code null}
+	 * 
+	 * @param id2
+	 * the ID of the second token, assigned by the same
+	 * {@link TokenDictionary}; non-negative
+	 * 
+	 * @param token2
+	 * the second token; not {@code null}
+	 * 
+	 * @return
+	 * the cost of replacing one of the tokens by the other one,
+	 * from 0 to {@link #SCALE}
+	 */
+	public int getSubstitutionCost(final int id1, final String token1, final int id2, final String token2) {
+		if (id1 == id2)
+			return 0;
+		final Long key = Long.valueOf((id1 < id2) ? ((long) id1 << 32) | id2 : ((long) id2 << 32) | id1);
+		final Integer cachedCost = pCosts.get(key);
+		if (cachedCost != null)
+			return cachedCost.intValue();
+		final int cost = substitutionCost(token1, token2);
+		if (pCosts.size() >= pCapacity)
+			pCosts.clear();
+		pCosts.put(key, Integer.valueOf(cost));
+		return cost;
+	}
+	
+	/**
+	 * Computes the cost of replacing a token by another token
+	 * (without using the cache).
+	 * 
+	 * @param token1
+	 * the first token; not {@code null}
+	 * 
+	 * @param token2
+	 * the second token; not {@code null}
+	 * 
+	 * @return
+	 * the cost of replacing one of the tokens by the other one,
+	 * from 0 to {@link #SCALE}
+	 */
+	public static int substitutionCost(final String token1, final String token2) {
+		final int length = Math.max(token1.length(), token2.length());
+		if (length == 0)
+			return 0;
+		final long cost = (2L * SCALE * characterEditDistance(token1, token2) + length - 1) / length;
+		return (int) Math.min(SCALE, cost);
+	}
+	
+	/**
+	 * Computes the character-level edit distance (Levenshtein distance)
+	 * between two tokens: the smallest number of insertions, deletions
+	 * and replacements of characters (UTF-16 code units) to turn
+	 * one of the tokens into the other one.
+	 * 
+	 * @param token1
+	 * the first token; not {@code null}
+	 * 
+	 * @param token2
+	 * the second token; not {@code null}
+	 * 
+	 * @return
+	 * the edit distance between the tokens
+	 */
+	public static int characterEditDistance(final String token1, final String token2) {
+		final int n = token2.length();
+		final int[] table = new int[n + 1];
+		for (int j = 0; j <= n; j++)
+			table[j] = j;
+		for (int i = 0; i < token1.length(); i++) {
+			final char u = token1.charAt(i);
+			int leftAbove = table[0];
+			int left = leftAbove + 1;
+			table[0] = left;
+			for (int j = 1; j <= n; j++) {
+				final int above = table[j];
+				left = Math.min(left, above) + 1;
+				if (u == token2.charAt(j - 1))
+					leftAbove--;
+				left = Math.min(left, leftAbove + 1);
+				table[j] = left;
+				leftAbove = above;
+			}
+		}
+		return table[n];
+	}
+	
+	/**
+	 * Finds the similar tokens in a vocabulary and determines
+	 * their substitution costs.
+	 * 
+	 * @param vocabulary
+	 * the distinct tokens, indexed by local IDs (as assigned
+	 * by a {@link TokenDictionary} for the sequences to compare);
+	 * not {@code null}
+	 * 
+	 * @param ids
+	 * the ID of every token of the vocabulary as assigned by
+	 * a {@link TokenDictionary} shared by all calls, at the
+	 * position of its local ID; not {@code null}
+	 * 
+	 * @return
+	 * the substitution costs between the tokens of the vocabulary;
+	 * not {@code null}
+	 */
+	public SubstitutionCosts getSubstitutionCosts(final String[] vocabulary, final int[] ids) {
+		final int size = vocabulary.length;
+		final int indexBits = Math.max(1, 32 - Integer.numberOfLeadingZeros(size - 1));
+		final long indexMask = (1L << indexBits) - 1L;
+		
+		// the hash values of every token and its variants with one
+		// character removed, in the high bits, and the local ID
+		// in the low bits
+		int count = 0;
+		int maxLength = 0;
+		for (final String token : vocabulary) {
+			if (token.length() >= MIN_LENGTH) {
+				count += token.length() + 1;
+				maxLength = Math.max(maxLength, token.length());
+			}
+		}
+		final long[] keys = new long[count];
+		final long[] powers = new long[maxLength + 1];
+		final long[] prefixes = new long[maxLength + 1];
+		powers[0] = 1L;
+		for (int k = 1; k <= maxLength; k++)
+			powers[k] = powers[k - 1] * HASH_BASE;
+		count = 0;
+		for (int local = 0; local < size; local++) {
+			final String token = vocabulary[local];
+			final int length = token.length();
+			if (length < MIN_LENGTH)
+				continue;
+			for (int k = 0; k < length; k++)
+				prefixes[k + 1] = prefixes[k] * HASH_BASE + token.charAt(k);
+			keys[count++] = (mix(prefixes[length], length) << indexBits) | local;
+			for (int k = 0; k < length; k++) {
+				// the token without the character at k
+				final long hash = prefixes[k] * powers[length - 1 - k] + prefixes[length] - prefixes[k + 1] * powers[length - 1 - k];
+				keys[count++] = (mix(hash, length - 1) << indexBits) | local;
+			}
+		}
+		Arrays.sort(keys);
+		
+		// candidate pairs as the smaller local ID in the high
+		// and the greater one in the low bits
+		long[] pairs = new long[16];
+		int pairCount = 0;
+		int start = 0;
+		while (start < count) {
+			final long hash = keys[start] >>> indexBits;
+			int end = start + 1;
+			while ((end < count) && ((keys[end] >>> indexBits) == hash))
+				end++;
+			if (end - start <= MAX_GROUP_SIZE) {
+				for (int a = start; a < end; a++) {
+					final int local1 = (int) (keys[a] & indexMask);
+					for (int b = a + 1; b < end; b++) {
+						final int local2 = (int) (keys[b] & indexMask);
+						if (local1 == local2)
+							continue;
+						if (pairCount == pairs.length)
+							pairs = Arrays.copyOf(pairs, 2 * pairCount);
+						pairs[pairCount++] = (local1 < local2) ? ((long) local1 << 32) | local2 : ((long) local2 << 32) | local1;
+					}
+				}
+			}
+			start = end;
+		}
+		Arrays.sort(pairs, 0, pairCount);
+		
+		// the costs of the distinct pairs below the full cost,
+		// in both directions
+		final int[] neighbourCounts = new int[size + 1];
+		final long[] neighbourPairs = new long[pairCount];
+		final int[] neighbourPairCosts = new int[pairCount];
+		int neighbourPairCount = 0;
+		for (int p = 0; p < pairCount; p++) {
+			if ((p > 0) && (pairs[p] == pairs[p - 1]))
+				continue;
+			final int local1 = (int) (pairs[p] >>> 32);
+			final int local2 = (int) pairs[p];
+			final int cost = getSubstitutionCost(ids[local1], vocabulary[local1], ids[local2], vocabulary[local2]);
+			if (cost >= SCALE)
+				continue;
+			neighbourCounts[local1 + 1]++;
+			neighbourCounts[local2 + 1]++;
+			neighbourPairs[neighbourPairCount] = pairs[p];
+			neighbourPairCosts[neighbourPairCount] = cost;
+			neighbourPairCount++;
+		}
+		for (int local = 0; local < size; local++)
+			neighbourCounts[local + 1] += neighbourCounts[local];
+		final int[] neighbourStarts = Arrays.copyOf(neighbourCounts, size + 1);
+		final int[] neighbours = new int[2 * neighbourPairCount];
+		final int[] costs = new int[2 * neighbourPairCount];
+		for (int p = 0; p < neighbourPairCount; p++) {
+			final int local1 = (int) (neighbourPairs[p] >>> 32);
+			final int local2 = (int) neighbourPairs[p];
+			neighbours[neighbourCounts[local1]] = local2;
+			costs[neighbourCounts[local1]++] = neighbourPairCosts[p];
+			neighbours[neighbourCounts[local2]] = local1;
+			costs[neighbourCounts[local2]++] = neighbourPairCosts[p];
+		}
+		return new SubstitutionCosts(size, neighbourStarts, neighbours, costs);
+	}
+	
+	// finalization step of MurmurHash3, with the length mixed in
+	private static long mix(final long hash, final int length) {
+		long h = hash + length * 0xC2B2AE3D27D4EB4FL;
+		h ^= h >>> 33;
+		h *= 0xFF51AFD7ED558CCDL;
+		h ^= h >>> 33;
+		h *= 0xC4CEB93FE1A85A2BL;
+		h ^= h >>> 33;
+		return h;
+	}
+	
+	/**
+	 * The substitution costs between the tokens of a vocabulary,
+	 * as a sparse table of the pairs of tokens whose costs are below
+	 * {@link #SCALE}, and the computation of substring edit distances
+	 * with these costs.
+	 * Instances of this class are immutable.
+	 */
+	public static class SubstitutionCosts {
+		
+		private final int pSize;
+		
+		// the neighbours of local ID t (and their costs)
+		// are at neighbourStarts[t] to neighbourStarts[t + 1] - 1
+		private final int[] pNeighbourStarts;
+		private final int[] pNeighbours;
+		private final int[] pCosts;
+		
+		private SubstitutionCosts(final int size, final int[] neighbourStarts, final int[] neighbours, final int[] costs) {
+			pSize = size;
+			pNeighbourStarts = neighbourStarts;
+			pNeighbours = neighbours;
+			pCosts = costs;
+		}
+		
+		/**
+		 * Returns the number of pairs of distinct tokens
+		 * whose substitution costs are below {@link #SCALE}.
+		 * 
+		 * @return
+		 * the number of pairs of similar tokens
+		 */
+		public int getSimilarPairCount() {
+			return pNeighbours.length / 2;
+		}
+		
+		/**
+		 * Computes the substring edit distance between two sequences
+		 * of local IDs with these substitution costs, in units of
+		 * 1/{@link #SCALE} of a token.
+		 * The costs are looked up in an array over the local IDs,
+		 * which is updated for every token of the super-sequence,
+		 * so the computation takes hardly more time than with
+		 * unit costs.
+		 * 
+		 * @param subSequence
+		 * the sequence to become a sub-sequence of the other;
+		 * not {@code null}, only local IDs of the vocabulary
+		 * 
+		 * @param superSequence
+		 * the other sequence; not {@code null},
+		 * only local IDs of the vocabulary
+		 * 
+		 * @return
+		 * the total cost of the cheapest combination of
+		 * insertions into the second sequence, deletions from
+		 * the first sequence and replacements of items
+		 * between the sequences to make the first sequence
+		 * a sub-sequence of the second sequence
+		 */
+		public long substringEditDistance(final int[] subSequence, final int[] superSequence) {
+			final int m = subSequence.length;
+			final int n = superSequence.length;
+			// all intermediate values are bounded by (m + n) * SCALE
+			if (((long) m + n) * SCALE >= Integer.MAX_VALUE)
+				throw new IllegalArgumentException("sequences too long: " + m + ", " + n);
+			final int[] table = new int[m + 1];
+			for (int i = 0; i <= m; i++)
+				table[i] = i * SCALE;
+			int min = table[m];
+			
+			// the costs of replacing each local ID by the current
+			// token of the super-sequence
+			final int[] columnCosts = new int[pSize];
+			Arrays.fill(columnCosts, SCALE);
+			for (final int v : superSequence) {
+				final int from = pNeighbourStarts[v];
+				final int to = pNeighbourStarts[v + 1];
+				for (int k = from; k < to; k++)
+					columnCosts[pNeighbours[k]] = pCosts[k];
+				columnCosts[v] = 0;
+				
+				// the first row is free (matching may start anywhere)
+				int leftAbove = table[0];
+				int left = leftAbove;
+				for (int i = 1; i <= m; i++) {
+					final int above = table[i];
+					left = Math.min(Math.min(left, above) + SCALE, leftAbove + columnCosts[subSequence[i - 1]]);
+					table[i] = left;
+					leftAbove = above;
+				}
+				if (left < min)
+					min = left;
+				
+				for (int k = from; k < to; k++)
+					columnCosts[pNeighbours[k]] = SCALE;
+				columnCosts[v] = SCALE;
+			}
+			return min;
+		}
+		
+	}
+	
+}